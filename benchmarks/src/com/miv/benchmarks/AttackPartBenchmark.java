@@ -0,0 +1,73 @@
+package com.miv.benchmarks;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.PooledEngine;
+import com.miv.AttackPart;
+import com.miv.AttackPattern;
+import com.miv.Simulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import factories.AttackPatternFactory;
+import systems.BulletSystem;
+
+/**
+ * Throughput of firing every attack part of an attack pattern once, one at a time or as a single batch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AttackPartBenchmark {
+    private static final long SEED = 3L;
+
+    @Param({"PLAYER_DEFAULT_1", "DOUBLE", "PINCERS", "BOSS_1_1", "BOSS_2_1"})
+    public String attackPattern;
+
+    private PooledEngine engine;
+    private BulletSystem bulletSystem;
+    private Entity player;
+    private AttackPattern pattern;
+    private ArrayList<AttackPart> attackParts;
+    private float mapAreaRadius;
+
+    @Setup
+    public void setUp() {
+        Simulation simulation = BenchmarkWorld.createSimulation(SEED);
+        engine = simulation.getEngine();
+        bulletSystem = simulation.getBulletSystem();
+        player = simulation.getPlayer();
+        pattern = AttackPatternFactory.getAttackPattern(attackPattern);
+        attackParts = pattern.getAttackParts();
+        mapAreaRadius = simulation.getMap().getCurrentArea().getRadius();
+    }
+
+    @Benchmark
+    public int fire() {
+        for(int i = 0; i < attackParts.size(); i++) {
+            attackParts.get(i).fire(engine, player, player, 0, 0, 0, mapAreaRadius);
+        }
+        return BenchmarkWorld.limitBullets(bulletSystem);
+    }
+
+    @Benchmark
+    public int fireBatch() {
+        pattern.fireBatch(engine, player, player, 0, 0, 0, mapAreaRadius);
+        return BenchmarkWorld.limitBullets(bulletSystem);
+    }
+}
@@ -0,0 +1,96 @@
+package com.miv.benchmarks;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.miv.Options;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import components.HitboxComponent;
+import factories.AttackPatternFactory;
+import systems.RenderSystem;
+import utils.CircleHitbox;
+import utils.Utils;
+
+/**
+ * Recalculating aura buffs for a player hitbox made of tightly packed circles, some of which have auras, and building
+ * a hitbox out of those circles one at a time or all at once
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AuraBuffsBenchmark {
+    private static final long SEED = 5L;
+    private static final CircleHitbox.Specialization[] AURAS = new CircleHitbox.Specialization[] {
+            CircleHitbox.Specialization.HEALTH_AURA,
+            CircleHitbox.Specialization.LIFESTEAL_AURA,
+            CircleHitbox.Specialization.DAMAGE_MITIGATOR_AURA
+    };
+
+    @Param({"16", "64", "256"})
+    public int circles;
+
+    // Fraction of circles that have an aura
+    @Param({"0.25"})
+    public float auraFraction;
+
+    private ArrayList<CircleHitbox> hitboxCircles;
+
+    @Setup
+    public void setUp() {
+        MathUtils.random.setSeed(SEED);
+        hitboxCircles = new ArrayList<CircleHitbox>();
+
+        // Square grid of touching circles
+        int side = (int)Math.ceil(Math.sqrt(circles));
+        for(int i = 0; i < circles; i++) {
+            CircleHitbox c = new CircleHitbox();
+            c.setHitboxTextureType(RenderSystem.HitboxTextureType.PLAYER);
+            c.setAttackPattern(AttackPatternFactory.getAttackPattern("PLAYER_DEFAULT_1"));
+            c.setRadius(Options.DEFAULT_NEW_CIRCLE_RADIUS);
+            c.setBaseMaxHealth(Options.DEFAULT_NEW_CIRCLE_MAX_HEALTH);
+            c.setHealth(c.getMaxHealth());
+            if(MathUtils.random() < auraFraction) {
+                c.changeSpecialization(AURAS[MathUtils.random(AURAS.length - 1)]);
+            }
+            c.setPosition((i % side) * Options.DEFAULT_NEW_CIRCLE_RADIUS * 2f, (i / side) * Options.DEFAULT_NEW_CIRCLE_RADIUS * 2f);
+            hitboxCircles.add(c);
+        }
+    }
+
+    @Benchmark
+    public void setAuraBuffsForAllCircles() {
+        Utils.setAuraBuffsForAllCircles(hitboxCircles);
+    }
+
+    @Benchmark
+    public HitboxComponent addCircle() {
+        HitboxComponent hitbox = new HitboxComponent();
+        for(CircleHitbox c : hitboxCircles) {
+            hitbox.addCircle(c, false);
+        }
+        return hitbox;
+    }
+
+    @Benchmark
+    public HitboxComponent addCircles() {
+        HitboxComponent hitbox = new HitboxComponent();
+        hitbox.addCircles(hitboxCircles, false);
+        return hitbox;
+    }
+}
@@ -0,0 +1,159 @@
+package com.miv.benchmarks;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessFiles;
+import com.badlogic.gdx.math.MathUtils;
+import com.miv.Simulation;
+
+import factories.AttackPatternFactory;
+import map.EntityCreationData;
+import map.Map;
+import map.MapArea;
+import systems.BulletSystem;
+import systems.RenderSystem;
+import utils.CircleHitbox;
+
+/**
+ * Builds reproducible headless worlds for the benchmarks.
+ */
+public class BenchmarkWorld {
+    // Health high enough that nothing dies while being measured
+    private static final float UNKILLABLE_HEALTH = 1000000f;
+    private static final float ENEMY_RADIUS = 40f;
+    private static final float OBSTACLE_RADIUS = 75f;
+    private static final float BULLET_RADIUS = 10f;
+    private static final float BULLET_SPEED = 6f;
+    // Bullets fired by the benchmarks are never updated, so they are cleared past this to keep the bullet arrays from
+    // growing forever
+    private static final int MAX_BULLETS = 10000;
+
+    public static Simulation createSimulation(long seed) {
+        // Only file access is needed, so the rest of the headless backend is not started
+        if(Gdx.files == null) {
+            Gdx.files = new HeadlessFiles();
+        }
+        MathUtils.random.setSeed(seed);
+        Simulation simulation = new Simulation(new Simulation.ListenerAdapter());
+        simulation.newGame();
+        return simulation;
+    }
+
+    /**
+     * Radius of a map area that fits the given number of entities without them all being inside each other
+     */
+    public static float getMapAreaRadius(int entities) {
+        return Math.max(MapArea.MAP_AREA_MAX_SIZE, (float)Math.sqrt(entities) * 250f);
+    }
+
+    /**
+     * Resets the simulation to a new game and fills the starting map area with enemies, obstacles and bullets
+     */
+    public static void populate(Simulation simulation, long seed, int enemies, int obstacles, int bullets) {
+        MathUtils.random.setSeed(seed);
+        simulation.newGame();
+
+        MapArea mapArea = simulation.getMap().getCurrentArea();
+        float radius = getMapAreaRadius(enemies + obstacles);
+        mapArea.setRadius(radius);
+
+        Entity player = simulation.getPlayer();
+        for(int i = 0; i < enemies; i++) {
+            mapArea.spawnEntity(player, createEnemy(radius));
+        }
+        for(int i = 0; i < obstacles; i++) {
+            mapArea.spawnEntity(player, createObstacle(radius));
+        }
+        for(int i = 0; i < bullets; i++) {
+            float angle = MathUtils.random(MathUtils.PI2);
+            float distance = MathUtils.random(radius);
+            simulation.getBulletSystem().spawn(distance * MathUtils.cos(angle), distance * MathUtils.sin(angle), BULLET_SPEED, MathUtils.random(MathUtils.PI2),
+                    BULLET_RADIUS, 1f, null, 0, 0, -1f, i % 2 == 0, RenderSystem.HitboxTextureType.ENEMY_BULLET);
+        }
+    }
+
+    /**
+     * Clears the bullets once there are more than {@link #MAX_BULLETS} of them
+     * @return the number of bullets left
+     */
+    public static int limitBullets(BulletSystem bulletSystem) {
+        if(bulletSystem.getBulletCount() > MAX_BULLETS) {
+            bulletSystem.clear();
+        }
+        return bulletSystem.getBulletCount();
+    }
+
+    /**
+     * Enters new map areas in a square spiral around the starting area until there are the given number of them
+     */
+    public static void discoverAreas(Simulation simulation, int areas) {
+        Map map = simulation.getMap();
+        Entity player = simulation.getPlayer();
+        int x = 0;
+        int y = 0;
+        int dx = 1;
+        int dy = 0;
+        int legLength = 1;
+        int stepsInLeg = 0;
+        int legsAtThisLength = 0;
+        for(int i = 1; i < areas; i++) {
+            x += dx;
+            y += dy;
+            map.enterNewArea(simulation.getEngine(), player, x, y, true);
+
+            stepsInLeg++;
+            if(stepsInLeg == legLength) {
+                stepsInLeg = 0;
+                // Turn left
+                int temp = dx;
+                dx = -dy;
+                dy = temp;
+                legsAtThisLength++;
+                if(legsAtThisLength == 2) {
+                    legsAtThisLength = 0;
+                    legLength++;
+                }
+            }
+        }
+    }
+
+    public static EntityCreationData createEnemy(float mapAreaRadius) {
+        EntityCreationData ecd = new EntityCreationData();
+        ecd.setIsEnemy(true);
+        Map.randomizeEnemyMovementAI(ecd, mapAreaRadius);
+        ecd.setMaxSpeed(MathUtils.random(1f, 3f));
+
+        CircleHitbox c = new CircleHitbox();
+        c.setHitboxTextureType(RenderSystem.HitboxTextureType.ENEMY);
+        c.setAttackPattern(AttackPatternFactory.getAttackPattern("SINGLE"));
+        c.setRadius(ENEMY_RADIUS);
+        c.setBaseMaxHealth(UNKILLABLE_HEALTH);
+        c.setHealth(c.getMaxHealth());
+        ecd.getCircleHitboxes().add(c);
+
+        setRandomSpawnPosition(ecd, mapAreaRadius, ENEMY_RADIUS);
+        return ecd;
+    }
+
+    public static EntityCreationData createObstacle(float mapAreaRadius) {
+        EntityCreationData ecd = new EntityCreationData();
+        ecd.setIsEnemy(false);
+        ecd.setObstacle(true);
+
+        CircleHitbox c = new CircleHitbox();
+        c.setHitboxTextureType(RenderSystem.HitboxTextureType.OBSTACLE);
+        c.setRadius(OBSTACLE_RADIUS);
+        c.setBaseMaxHealth(UNKILLABLE_HEALTH);
+        c.setHealth(c.getMaxHealth());
+        ecd.getCircleHitboxes().add(c);
+
+        setRandomSpawnPosition(ecd, mapAreaRadius, OBSTACLE_RADIUS);
+        return ecd;
+    }
+
+    private static void setRandomSpawnPosition(EntityCreationData ecd, float mapAreaRadius, float entityRadius) {
+        float angle = MathUtils.random(MathUtils.PI2);
+        float distance = MathUtils.random(entityRadius, mapAreaRadius - entityRadius);
+        ecd.setSpawnPosition(distance * MathUtils.cos(angle), distance * MathUtils.sin(angle));
+    }
+}
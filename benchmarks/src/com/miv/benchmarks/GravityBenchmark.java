@@ -0,0 +1,55 @@
+package com.miv.benchmarks;
+
+import com.miv.Options;
+import com.miv.Simulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import systems.MovementSystem;
+
+/**
+ * Gravity on every enemy, obstacle and the player for one tick, through {@link MovementSystem#calculateGravity(float)}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GravityBenchmark {
+    private static final long SEED = 2L;
+
+    @Param({"10", "50", "200", "1000"})
+    public int enemies;
+
+    @Param({"0", "10"})
+    public int obstacles;
+
+    private MovementSystem movementSystem;
+    private float tickTime;
+
+    @Setup
+    public void setUp() {
+        Simulation simulation = BenchmarkWorld.createSimulation(SEED);
+        BenchmarkWorld.populate(simulation, SEED, enemies, obstacles, 0);
+        movementSystem = simulation.getMovementSystem();
+        tickTime = 1f / Options.SIMULATION_TICK_RATE;
+    }
+
+    @Benchmark
+    public float gravity() {
+        return movementSystem.calculateGravity(tickTime);
+    }
+}
@@ -0,0 +1,58 @@
+package com.miv.benchmarks;
+
+import com.miv.Simulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import map.Map;
+import map.MapArea;
+import map.MapAreaGenerator;
+import utils.Point;
+
+/**
+ * Generating non-boss map areas, mostly placing enemies. Higher floors have more enemies per map area, up to more
+ * than fit in the largest map area.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MapAreaGenerationBenchmark {
+    private static final long SEED = 8L;
+
+    @Param({"1", "100", "1000"})
+    public int floor;
+
+    private Map map;
+    private Point pos;
+    private long areaSeed;
+
+    @Setup
+    public void setUp() {
+        Simulation simulation = BenchmarkWorld.createSimulation(SEED);
+        map = simulation.getMap();
+        map.enterNewFloor(floor);
+        map.setNewMapAreasUntilBoss(Integer.MAX_VALUE);
+        pos = new Point(1, 0);
+    }
+
+    // A different map area every invocation
+    @Benchmark
+    public MapArea generate() {
+        return new MapAreaGenerator(map, pos, areaSeed++).generate();
+    }
+}
@@ -0,0 +1,74 @@
+package com.miv.benchmarks;
+
+import com.miv.Options;
+import com.miv.Simulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import systems.BulletSystem;
+import systems.MovementSystem;
+
+/**
+ * Bullet and movement updates, including collision checks and gravity, with N enemies, M bullets and K obstacles.
+ * The world is rebuilt before every invocation so that every invocation simulates the same ticks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MovementSystemBenchmark {
+    private static final long SEED = 1L;
+    // Enough ticks per invocation for the per-invocation setup to not affect the timing
+    private static final int TICKS_PER_INVOCATION = 30;
+
+    @Param({"10", "50", "200"})
+    public int enemies;
+
+    @Param({"0", "500", "2000"})
+    public int bullets;
+
+    @Param({"0", "10"})
+    public int obstacles;
+
+    private Simulation simulation;
+    private BulletSystem bulletSystem;
+    private MovementSystem movementSystem;
+    private float tickTime;
+
+    @Setup(Level.Trial)
+    public void createSimulation() {
+        simulation = BenchmarkWorld.createSimulation(SEED);
+        bulletSystem = simulation.getBulletSystem();
+        movementSystem = simulation.getMovementSystem();
+        tickTime = 1f / Options.SIMULATION_TICK_RATE;
+    }
+
+    @Setup(Level.Invocation)
+    public void populate() {
+        BenchmarkWorld.populate(simulation, SEED, enemies, obstacles, bullets);
+    }
+
+    @Benchmark
+    public int update() {
+        for(int i = 0; i < TICKS_PER_INVOCATION; i++) {
+            bulletSystem.update(tickTime);
+            movementSystem.update(tickTime);
+        }
+        return bulletSystem.getBulletCount();
+    }
+}
@@ -0,0 +1,86 @@
+package com.miv.benchmarks;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.miv.Save;
+import com.miv.Simulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import map.Map;
+
+/**
+ * Saving and loading a map with many discovered areas. Saves go to a temporary folder that is deleted afterwards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SaveBenchmark {
+    private static final long SEED = 6L;
+
+    // Number of discovered map areas
+    @Param({"25", "100"})
+    public int areas;
+
+    // Floor the map is on; only areas on the current floor are saved but later floors have more enemies per area
+    @Param({"0", "10"})
+    public int floor;
+
+    private Simulation simulation;
+    private FileHandle saveDirectory;
+
+    @Setup
+    public void setUp() {
+        saveDirectory = FileHandle.tempDirectory("geometric-ascension-save");
+        Save.setSaveDirectory(saveDirectory);
+
+        simulation = BenchmarkWorld.createSimulation(SEED);
+        Map map = simulation.getMap();
+        map.setFloor(floor);
+        map.setNewMapAreasUntilBoss(Integer.MAX_VALUE);
+
+        BenchmarkWorld.discoverAreas(simulation, areas);
+
+        Save.save(simulation);
+        Save.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Save.deleteSave();
+        Save.setSaveDirectory(null);
+        saveDirectory.deleteDirectory();
+    }
+
+    // Time spent on the game thread; the save is encoded and written in the background
+    @Benchmark
+    public void save() {
+        Save.save(simulation);
+    }
+
+    @Benchmark
+    public void saveAndFlush() {
+        Save.save(simulation);
+        Save.flush();
+    }
+
+    @Benchmark
+    public boolean load() {
+        return Save.load(simulation);
+    }
+}
@@ -0,0 +1,85 @@
+package com.miv.benchmarks;
+
+import com.badlogic.ashley.core.Entity;
+import com.miv.BinarySaveCodec;
+import com.miv.JsonSaveCodec;
+import com.miv.Mappers;
+import com.miv.Save;
+import com.miv.SaveCodec;
+import com.miv.Simulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import map.Map;
+import map.MapArea;
+
+/**
+ * Encoding and decoding the same save with the binary and the old JSON format, in memory so that disk speed does
+ * not matter. The encoded size of each format is printed during setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SaveCodecBenchmark {
+    private static final long SEED = 6L;
+
+    @Param({"json", "binary"})
+    public String codecName;
+
+    // Number of discovered map areas
+    @Param({"25", "100"})
+    public int areas;
+
+    private SaveCodec codec;
+    private Simulation simulation;
+    private Save.SaveData saveData;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        codec = codecName.equals("json") ? new JsonSaveCodec() : new BinarySaveCodec();
+
+        simulation = BenchmarkWorld.createSimulation(SEED);
+        Map map = simulation.getMap();
+        map.setFloor(10);
+        map.setNewMapAreasUntilBoss(Integer.MAX_VALUE);
+        BenchmarkWorld.discoverAreas(simulation, areas);
+
+        Entity player = simulation.getPlayer();
+        saveData = new Save.SaveData(Mappers.hitbox.get(player).getCircles(), Mappers.hitbox.get(player).getMaxSpeed(),
+                Mappers.player.get(player), map, Mappers.hitbox.get(player).getOrigin());
+        encoded = codec.encode(saveData);
+        System.out.println(codecName + " save with " + areas + " areas: " + encoded.length + " bytes");
+    }
+
+    // Every map area is encoded, as when each is saved for the first time
+    @Benchmark
+    public byte[] encode() {
+        for(MapArea mapArea : simulation.getMap().getAllSavedMapAreas()) {
+            mapArea.setCachedSaveChunk(null);
+        }
+        return codec.encode(saveData);
+    }
+
+    @Benchmark
+    public Save.SaveData decode() throws IOException {
+        return codec.decode(new ByteArrayInputStream(encoded));
+    }
+}
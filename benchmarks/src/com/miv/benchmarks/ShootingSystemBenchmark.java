@@ -0,0 +1,56 @@
+package com.miv.benchmarks;
+
+import com.miv.Options;
+import com.miv.Simulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import systems.BulletSystem;
+import systems.ShootingSystem;
+
+/**
+ * One simulation tick of attack pattern updates with N shooting enemies, most of which have nothing due that tick
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ShootingSystemBenchmark {
+    private static final long SEED = 4L;
+
+    @Param({"10", "200", "1000"})
+    public int enemies;
+
+    private ShootingSystem shootingSystem;
+    private BulletSystem bulletSystem;
+    private float tickTime;
+
+    @Setup
+    public void setUp() {
+        Simulation simulation = BenchmarkWorld.createSimulation(SEED);
+        BenchmarkWorld.populate(simulation, SEED, enemies, 0, 0);
+        shootingSystem = simulation.getShootingSystem();
+        bulletSystem = simulation.getBulletSystem();
+        tickTime = 1f / Options.SIMULATION_TICK_RATE;
+    }
+
+    @Benchmark
+    public int update() {
+        shootingSystem.update(tickTime);
+        return BenchmarkWorld.limitBullets(bulletSystem);
+    }
+}
@@ -0,0 +1,109 @@
+package com.miv.benchmarks;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.PooledEngine;
+import com.badlogic.gdx.math.MathUtils;
+import com.miv.Mappers;
+import com.miv.Simulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import components.HitboxComponent;
+import factories.AttackPatternFactory;
+import map.EntityCreationData;
+import map.Map;
+import map.MapArea;
+import systems.RenderSystem;
+import utils.CircleHitbox;
+
+/**
+ * Killing the center circle of a boss shaped like the floor 1 boss (one big circle surrounded by a ring of smaller
+ * ones), which leaves every circle in the ring as its own sub-entity.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SplitIntoSubEntitiesBenchmark {
+    private static final long SEED = 4L;
+    private static final int BOSSES_PER_INVOCATION = 10;
+    private static final float SUB_CIRCLE_RADIUS = 50f;
+
+    @Param({"16", "64"})
+    public int ringCircles;
+
+    private Simulation simulation;
+    private PooledEngine engine;
+    private Entity[] bosses;
+    private CircleHitbox[] centerCircles;
+
+    @Setup(Level.Trial)
+    public void createSimulation() {
+        simulation = BenchmarkWorld.createSimulation(SEED);
+        engine = simulation.getEngine();
+        bosses = new Entity[BOSSES_PER_INVOCATION];
+        centerCircles = new CircleHitbox[BOSSES_PER_INVOCATION];
+    }
+
+    @Setup(Level.Invocation)
+    public void spawnBosses() {
+        MathUtils.random.setSeed(SEED);
+        simulation.newGame();
+        MapArea mapArea = simulation.getMap().getCurrentArea();
+        for(int i = 0; i < bosses.length; i++) {
+            bosses[i] = mapArea.spawnEntity(simulation.getPlayer(), createRingBoss(mapArea.getRadius()));
+            centerCircles[i] = Mappers.hitbox.get(bosses[i]).getCircles().get(0);
+        }
+    }
+
+    @Benchmark
+    public void split(Blackhole blackhole) {
+        for(int i = 0; i < bosses.length; i++) {
+            HitboxComponent hitbox = Mappers.hitbox.get(bosses[i]);
+            blackhole.consume(hitbox.removeCircle(engine, bosses[i], centerCircles[i], false));
+        }
+    }
+
+    private EntityCreationData createRingBoss(float mapAreaRadius) {
+        // Center circle is big enough that no two circles in the ring touch
+        float mainRadius = Math.max(450f, ringCircles * (SUB_CIRCLE_RADIUS * 2f + 2f) / MathUtils.PI2 * 1.1f - SUB_CIRCLE_RADIUS);
+
+        EntityCreationData ecd = new EntityCreationData(true);
+        ecd.setIsEnemy(true);
+        Map.randomizeSimpleStalkTargetAI(ecd);
+        // Same sub-entity stats as the floor 1 boss
+        HitboxComponent.SubEntityStats subStats = new HitboxComponent.SubEntityStats();
+        subStats.maxSpeed = 3.5f;
+        subStats.aiData = new EntityCreationData(true);
+        Map.randomizeSimpleStalkTargetAI(subStats.aiData);
+        ecd.setSubEntityStats(subStats);
+
+        ArrayList<CircleHitbox> circles = ecd.getCircleHitboxes();
+        circles.add(new CircleHitbox(RenderSystem.HitboxTextureType.ENEMY, AttackPatternFactory.getAttackPattern("BOSS_1_1"), 0, 0, mainRadius, 1000f, 1f));
+        for(int i = 0; i < ringCircles; i++) {
+            float angle = i * MathUtils.PI2 / ringCircles;
+            circles.add(new CircleHitbox(RenderSystem.HitboxTextureType.ENEMY, AttackPatternFactory.getAttackPattern("BOSS_1_2"),
+                    (mainRadius + SUB_CIRCLE_RADIUS) * MathUtils.cos(angle), (mainRadius + SUB_CIRCLE_RADIUS) * MathUtils.sin(angle),
+                    SUB_CIRCLE_RADIUS, 100f, 1f));
+        }
+        ecd.setSpawnPosition(0, 0);
+        return ecd;
+    }
+}
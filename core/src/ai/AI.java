@@ -122,4 +122,16 @@ public abstract class AI {
     public Entity getTarget() {
         return target;
     }
+
+    /**
+     * Called when the components of {@link #self} are moved onto a different entity
+     */
+    public void setSelf(Entity self) {
+        this.self = self;
+    }
+
+    public void setTarget(Entity target) {
+        this.target = target;
+        targetPos = Mappers.hitbox.get(target).getOrigin();
+    }
 }
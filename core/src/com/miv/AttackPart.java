@@ -4,12 +4,8 @@ import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.math.MathUtils;
 
-import components.EnemyBulletComponent;
-import components.ExpirationComponent;
-import components.HitboxComponent;
-import components.PlayerBulletComponent;
+import systems.BulletSystem;
 import systems.RenderSystem;
-import utils.CircleHitbox;
 import utils.Point;
 
 /**
@@ -62,58 +58,68 @@ public class AttackPart {
      * @param originAngle - The lastFacedAngle of the parent's hitbox, in radians
      */
     public void fire(PooledEngine engine, Entity parent, Entity player, float originX, float originY, float originAngle, float mapAreaRadius) {
-        RenderSystem.HitboxTextureType hitboxTextureType;
+        fire(engine, parent, player, originX, originY, originAngle, mapAreaRadius, 0);
+    }
 
-        Entity e = engine.createEntity();
-        if(parent != null && Mappers.player.has(parent)) {
-            e.add(engine.createComponent(PlayerBulletComponent.class).setDamage(damage).setLifestealMultiplier(parent, lifestealPercent).setPlayerAttractionLerpFactor(playerAttractionLerpFactor));
-            hitboxTextureType = RenderSystem.HitboxTextureType.PLAYER_BULLET;
-        } else {
-            e.add(engine.createComponent(EnemyBulletComponent.class).setDamage(damage).setLifestealMultiplier(parent, lifestealPercent).setPlayerAttractionLerpFactor(playerAttractionLerpFactor));
-            hitboxTextureType = RenderSystem.HitboxTextureType.ENEMY_BULLET;
+    /**
+     * @param originAngle - The lastFacedAngle of the parent's hitbox, in radians
+     * @param lateTime - Time in seconds since the attack part was due; the bullet spawns where it would be had it been fired on time
+     */
+    public void fire(PooledEngine engine, Entity parent, Entity player, float originX, float originY, float originAngle, float mapAreaRadius, float lateTime) {
+        float angleToPlayer = 0;
+        if(attackPartAngleDeterminant == AttackPartAngleDeterminant.AIM_AT_PLAYER) {
+            Point playerPos = Mappers.hitbox.get(player).getOrigin();
+            angleToPlayer = MathUtils.atan2(playerPos.y - originY, playerPos.x - originX);
         }
+        spawn(engine.getSystem(BulletSystem.class), parent, parent != null && Mappers.player.has(parent), originX, originY,
+                getFireAngle(originAngle, angleToPlayer), mapAreaRadius, lateTime);
+    }
 
-        float angle = 0;
+    /**
+     * Angle of travel of the next bullet fired, in radians
+     * @param originAngle - The lastFacedAngle of the parent's hitbox, in radians
+     * @param angleToPlayer - Angle from the bullet's origin to the player; only used if aiming at the player
+     */
+    float getFireAngle(float originAngle, float angleToPlayer) {
+        float angle;
         if(attackPartAngleDeterminant == AttackPartAngleDeterminant.AIM_RELATIVE_TO_PARENT_ROTATION) {
-            if(randomizeAngle) {
-                angle = originAngle + MathUtils.random(minAngleInRadians, maxAngleInRadians);
-            } else {
-                angle = originAngle + angleInRadians;
-            }
+            angle = originAngle;
         } else if(attackPartAngleDeterminant == AttackPartAngleDeterminant.AIM_AT_PLAYER) {
-            Point playerPos = Mappers.hitbox.get(player).getOrigin();
-            if(randomizeAngle) {
-                angle = MathUtils.atan2(playerPos.y - originY, playerPos.x - originX) + MathUtils.random(minAngleInRadians, maxAngleInRadians);
-            } else {
-                angle = MathUtils.atan2(playerPos.y - originY, playerPos.x - originX) + angleInRadians;
-            }
+            angle = angleToPlayer;
+        } else {
+            angle = 0;
+        }
+
+        if(randomizeAngle) {
+            return angle + MathUtils.random(minAngleInRadians, maxAngleInRadians);
         } else {
-            if(randomizeAngle) {
-                angle = MathUtils.random(minAngleInRadians, maxAngleInRadians);
-            } else {
-                angle = angleInRadians;
-            }
+            return angle + angleInRadians;
         }
+    }
 
-        HitboxComponent hitbox = engine.createComponent(HitboxComponent.class);
-        hitbox.setOrigin(originX, originY);
-        hitbox.setMaxSpeed(speed);
-        hitbox.setVelocity(speed * MathUtils.cos(angle), speed * MathUtils.sin(angle));
-        CircleHitbox circleHitbox = new CircleHitbox();
-        circleHitbox.setHitboxTextureType(hitboxTextureType);
+    /**
+     * Spawns this attack part's bullet without determining its angle
+     * @param fromPlayer - true if parent is a player
+     */
+    void spawn(BulletSystem bulletSystem, Entity parent, boolean fromPlayer, float originX, float originY, float angle, float mapAreaRadius, float lateTime) {
+        RenderSystem.HitboxTextureType hitboxTextureType;
         if(color != null) {
-            circleHitbox.setColor(color);
+            hitboxTextureType = color;
+        } else if(fromPlayer) {
+            hitboxTextureType = RenderSystem.HitboxTextureType.PLAYER_BULLET;
+        } else {
+            hitboxTextureType = RenderSystem.HitboxTextureType.ENEMY_BULLET;
         }
-        circleHitbox.setRadius(radius);
-        hitbox.addCircle(circleHitbox, true);
-        e.add(hitbox);
 
         // Bullet expires in the time it takes to travel radius*2 of the map area if it follows the player
+        float lifetime = -1f;
         if(playerAttractionLerpFactor != 0) {
-            e.add(engine.createComponent(ExpirationComponent.class).setTime(mapAreaRadius * 2f / (speed * Options.GLOBAL_MOVEMENT_SPEED_MULTIPLIER)));
+            lifetime = mapAreaRadius * 2f / (speed * Options.GLOBAL_MOVEMENT_SPEED_MULTIPLIER);
         }
 
-        engine.addEntity(e);
+        float lateDistance = speed * Options.GLOBAL_MOVEMENT_SPEED_MULTIPLIER * lateTime;
+        bulletSystem.spawn(originX + lateDistance * MathUtils.cos(angle), originY + lateDistance * MathUtils.sin(angle), speed, angle, radius, damage, parent,
+                lifestealPercent, playerAttractionLerpFactor, lifetime, fromPlayer, hitboxTextureType);
     }
 
     public AttackPart clone() {
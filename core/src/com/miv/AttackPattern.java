@@ -1,13 +1,18 @@
 package com.miv;
 
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.math.MathUtils;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import map.Map;
 import screens.PlayerBuilder;
+import systems.BulletSystem;
 import systems.RenderSystem;
 import utils.CircleHitbox;
+import utils.Point;
 import utils.Utils;
 
 /**
@@ -59,15 +64,19 @@ public class AttackPattern {
     }
 
     public AttackPattern addRandomAttackPatternStatModifiers(float pp) {
+        return addRandomAttackPatternStatModifiers(pp, MathUtils.random);
+    }
+
+    public AttackPattern addRandomAttackPatternStatModifiers(float pp, Random random) {
         totalPpInStatModifiers += pp;
 
         // First time stat modifiers are retrieved, generate random values for divisors
         // Any other time they are retrieved, use old random values but with added pp
         if(speedPpMultiplier == 0) {
-            speedPpMultiplier = MathUtils.random(MIN_BULLET_SPEED_MULTIPLIER, MAX_BULLET_SPEED_MULTIPLIER);
-            fireIntervalPpMultiplier = MathUtils.random(MIN_FIRE_INTERVAL_MULTIPLIER, MAX_FIRE_INTERVAL_MULTIPLIER);
-            bulletDamagePpMultiplier = MathUtils.random(MIN_BULLET_DAMAGE_MULTIPLIER, MAX_BULLET_DAMAGE_MULTIPLIER);
-            bulletRadiusPpMultiplier = MathUtils.random(MIN_BULLET_RADIUS_MULTIPLIER, MAX_BULLET_RADIUS_MULTIPLIER);
+            speedPpMultiplier = Utils.random(random, MIN_BULLET_SPEED_MULTIPLIER, MAX_BULLET_SPEED_MULTIPLIER);
+            fireIntervalPpMultiplier = Utils.random(random, MIN_FIRE_INTERVAL_MULTIPLIER, MAX_FIRE_INTERVAL_MULTIPLIER);
+            bulletDamagePpMultiplier = Utils.random(random, MIN_BULLET_DAMAGE_MULTIPLIER, MAX_BULLET_DAMAGE_MULTIPLIER);
+            bulletRadiusPpMultiplier = Utils.random(random, MIN_BULLET_RADIUS_MULTIPLIER, MAX_BULLET_RADIUS_MULTIPLIER);
         }
         calculateAndSetModificationMultipliers();
 
@@ -236,6 +245,43 @@ public class AttackPattern {
         reapplySpecializationModifiers(parent);
     }
 
+    /**
+     * Fires every attack part at once, ignoring delays
+     * @param originAngle - The lastFacedAngle of the parent's hitbox, in radians
+     */
+    public void fireBatch(PooledEngine engine, Entity parent, Entity player, float originX, float originY, float originAngle, float mapAreaRadius) {
+        fireBatch(engine, parent, player, originX, originY, originAngle, mapAreaRadius, 0, attackParts.size(), 0);
+    }
+
+    /**
+     * Fires attack parts [start, end) at once. The angle to the player is only calculated once and the bullet arrays are
+     * grown at most once for the whole burst.
+     * @param originAngle - The lastFacedAngle of the parent's hitbox, in radians
+     * @param time - Time since the start of the attack pattern's iteration; attack parts fired after their delay are moved
+     *             ahead as in {@link AttackPart#fire(PooledEngine, Entity, Entity, float, float, float, float, float)}
+     */
+    public void fireBatch(PooledEngine engine, Entity parent, Entity player, float originX, float originY, float originAngle, float mapAreaRadius,
+                          int start, int end, float time) {
+        BulletSystem bulletSystem = engine.getSystem(BulletSystem.class);
+        bulletSystem.ensureCapacity(end - start);
+        boolean fromPlayer = parent != null && Mappers.player.has(parent);
+
+        float angleToPlayer = 0;
+        for(int i = start; i < end; i++) {
+            if(attackParts.get(i).getAttackPartAngleDeterminant() == AttackPart.AttackPartAngleDeterminant.AIM_AT_PLAYER) {
+                Point playerPos = Mappers.hitbox.get(player).getOrigin();
+                angleToPlayer = MathUtils.atan2(playerPos.y - originY, playerPos.x - originX);
+                break;
+            }
+        }
+
+        for(int i = start; i < end; i++) {
+            AttackPart ap = attackParts.get(i);
+            ap.spawn(bulletSystem, parent, fromPlayer, originX, originY, ap.getFireAngle(originAngle, angleToPlayer), mapAreaRadius,
+                    Math.max(0, time - ap.getDelay()));
+        }
+    }
+
     public float calculateNextUpgradeCost() {
         return (float)Math.pow(level + 1, Options.ATTACK_PATTERN_UPGRADE_EXPONENT) + Map.INITIAL_MAP_AREA_PIXEL_POINTS/2f;
     }
@@ -0,0 +1,431 @@
+package com.miv;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.SerializationException;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+import com.badlogic.gdx.utils.reflect.Field;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import map.Map;
+import map.MapArea;
+import utils.AreaIndex;
+
+/**
+ * Versioned binary save format. A save starts with {@link #MAGIC} and {@link #FORMAT_VERSION}, followed by chunks that
+ * each start with their type and length, so that they are read one at a time and unknown types can be skipped:
+ * <ul>
+ *     <li>{@link #CHUNK_SAVE_DATA} - everything except the map areas</li>
+ *     <li>{@link #CHUNK_MAP_AREA} - one map area, starting with its position as two varints</li>
+ *     <li>{@link #CHUNK_END}</li>
+ * </ul>
+ * Objects are walked with the same reflection as {@link Json}, so the same fields are saved, but written as tokens
+ * with varint integers, 4-byte floats and each string written in full only once per chunk.
+ * Map areas other than the current one cannot change, so their chunks are cached in {@link MapArea#getCachedSaveChunk()}
+ * and only the current map area and player are encoded each save.
+ */
+public class BinarySaveCodec implements SaveCodec {
+    private static final byte[] MAGIC = {'G', 'A', 'S', 'V'};
+    /**
+     * Increment when a change stops older saves from being read as they are, and convert them in {@link #decode(InputStream)}.
+     * Adding a new chunk type does not need a new version.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int CHUNK_END = 0;
+    private static final int CHUNK_SAVE_DATA = 1;
+    private static final int CHUNK_MAP_AREA = 2;
+
+    private static final int TOKEN_END = 0;
+    private static final int TOKEN_OBJECT = 1;
+    private static final int TOKEN_ARRAY = 2;
+    private static final int TOKEN_NULL = 3;
+    private static final int TOKEN_TRUE = 4;
+    private static final int TOKEN_FALSE = 5;
+    private static final int TOKEN_LONG = 6;
+    private static final int TOKEN_FLOAT = 7;
+    private static final int TOKEN_DOUBLE = 8;
+    private static final int TOKEN_STRING = 9;
+
+    private static final String CHARSET = "UTF-8";
+
+    // Reused because Json caches reflection data
+    private Json json = createJson();
+
+    @Override
+    public byte[] encode(Save.SaveData saveData) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.write(MAGIC);
+            writeVarLong(out, FORMAT_VERSION);
+
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            json.toJson(saveData, Save.SaveData.class, new TokenWriter(new DataOutputStream(chunk)));
+            writeChunk(out, CHUNK_SAVE_DATA, chunk.toByteArray());
+
+            MapArea currentArea = saveData.getMap().getCurrentArea();
+            for(LongMap.Entry<MapArea> entry : saveData.getMap().getAreas().entries()) {
+                MapArea mapArea = entry.value;
+                byte[] mapAreaChunk = mapArea.getCachedSaveChunk();
+                if(mapAreaChunk == null) {
+                    mapAreaChunk = encodeMapArea(AreaIndex.getX(entry.key), AreaIndex.getY(entry.key), mapArea);
+                    // The current map area changes constantly so it is never cached
+                    if(mapArea != currentArea) {
+                        mapArea.setCachedSaveChunk(mapAreaChunk);
+                    }
+                }
+                writeChunk(out, CHUNK_MAP_AREA, mapAreaChunk);
+            }
+
+            writeVarLong(out, CHUNK_END);
+        } catch(IOException e) {
+            throw new SerializationException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeMapArea(int x, int y, MapArea mapArea) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeZigZag(out, x);
+        writeZigZag(out, y);
+        json.toJson(mapArea, MapArea.class, new TokenWriter(out));
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Save.SaveData decode(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if(!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary save");
+        }
+        int version = (int)readVarLong(in);
+        if(version > FORMAT_VERSION) {
+            throw new IOException("Save format " + version + " is newer than " + FORMAT_VERSION);
+        }
+
+        Save.SaveData saveData = null;
+        AreaIndex<MapArea> areas = new AreaIndex<MapArea>();
+        try {
+            for(int chunkType = (int)readVarLong(in); chunkType != CHUNK_END; chunkType = (int)readVarLong(in)) {
+                byte[] chunk = new byte[(int)readVarLong(in)];
+                in.readFully(chunk);
+                DataInputStream chunkIn = new DataInputStream(new ByteArrayInputStream(chunk));
+
+                if(chunkType == CHUNK_SAVE_DATA) {
+                    saveData = json.readValue(Save.SaveData.class, null, new TokenReader(chunkIn).read());
+                } else if(chunkType == CHUNK_MAP_AREA) {
+                    int x = (int)readZigZag(chunkIn);
+                    int y = (int)readZigZag(chunkIn);
+                    MapArea mapArea = json.readValue(MapArea.class, null, new TokenReader(chunkIn).read());
+                    // Encoding the map area again would give the same chunk
+                    mapArea.setCachedSaveChunk(chunk);
+                    areas.put(x, y, mapArea);
+                }
+            }
+        } catch(SerializationException e) {
+            throw new IOException(e);
+        }
+
+        if(saveData == null) {
+            throw new IOException("Save has no save data chunk");
+        }
+        saveData.getMap().setAreas(areas);
+        return saveData;
+    }
+
+    /**
+     * Json that writes {@link Map} without its map areas, since those get their own chunks
+     */
+    private static Json createJson() {
+        final Array<String> mapFieldNames = new Array<String>();
+        for(Field field : ClassReflection.getDeclaredFields(Map.class)) {
+            if(!field.isTransient() && !field.isStatic() && !field.getName().equals("areas")) {
+                mapFieldNames.add(field.getName());
+            }
+        }
+
+        Json json = new Json();
+        // Older saves have fields that are no longer saved, such as MapArea.gridLines
+        json.setIgnoreUnknownFields(true);
+        json.setSerializer(Map.class, new Json.Serializer<Map>() {
+            // Json.Serializer's class parameters are raw
+            @Override
+            @SuppressWarnings("rawtypes")
+            public void write(Json json, Map map, Class knownType) {
+                json.writeObjectStart(Map.class, knownType);
+                for(String fieldName : mapFieldNames) {
+                    json.writeField(map, fieldName);
+                }
+                json.writeObjectEnd();
+            }
+
+            @Override
+            @SuppressWarnings("rawtypes")
+            public Map read(Json json, JsonValue jsonData, Class type) {
+                Map map = new Map();
+                json.readFields(map, jsonData);
+                return map;
+            }
+        });
+        return json;
+    }
+
+    private static void writeChunk(DataOutputStream out, int chunkType, byte[] chunk) throws IOException {
+        writeVarLong(out, chunkType);
+        writeVarLong(out, chunk.length);
+        out.write(chunk);
+    }
+
+    /**
+     * Writes a non-negative number 7 bits at a time, least significant first, with the high bit set on every byte but the last
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            out.writeByte((int)(value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int)value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Varint that keeps small negative numbers small
+     */
+    private static void writeZigZag(DataOutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigZag(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Receives {@link Json}'s output and writes it as tokens. Every token inside an object is followed by its name.
+     */
+    private static class TokenWriter extends JsonWriter {
+        private DataOutputStream out;
+        // Index of every string written so far in this chunk
+        private HashMap<String, Integer> strings = new HashMap<String, Integer>();
+        private String name;
+
+        TokenWriter(DataOutputStream out) {
+            super(null);
+            this.out = out;
+        }
+
+        @Override
+        public JsonWriter name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        @Override
+        public JsonWriter object() throws IOException {
+            writeToken(TOKEN_OBJECT);
+            return this;
+        }
+
+        @Override
+        public JsonWriter array() throws IOException {
+            writeToken(TOKEN_ARRAY);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Object value) throws IOException {
+            if(value == null) {
+                writeToken(TOKEN_NULL);
+            } else if(value instanceof Boolean) {
+                writeToken((Boolean)value ? TOKEN_TRUE : TOKEN_FALSE);
+            } else if(value instanceof Float || value instanceof Double) {
+                double d = ((Number)value).doubleValue();
+                if(d == (long)d && !(d == 0 && 1/d < 0)) {
+                    // Most saved floats are whole numbers
+                    writeToken(TOKEN_LONG);
+                    writeZigZag(out, (long)d);
+                } else if((float)d == d) {
+                    writeToken(TOKEN_FLOAT);
+                    out.writeFloat((float)d);
+                } else {
+                    writeToken(TOKEN_DOUBLE);
+                    out.writeDouble(d);
+                }
+            } else if(value instanceof Number) {
+                writeToken(TOKEN_LONG);
+                writeZigZag(out, ((Number)value).longValue());
+            } else {
+                writeToken(TOKEN_STRING);
+                writeString(value.toString());
+            }
+            return this;
+        }
+
+        @Override
+        public JsonWriter object(String name) throws IOException {
+            return name(name).object();
+        }
+
+        @Override
+        public JsonWriter array(String name) throws IOException {
+            return name(name).array();
+        }
+
+        @Override
+        public JsonWriter set(String name, Object value) throws IOException {
+            return name(name).value(value);
+        }
+
+        @Override
+        public JsonWriter pop() throws IOException {
+            out.writeByte(TOKEN_END);
+            return this;
+        }
+
+        @Override
+        public JsonWriter json(String json) {
+            throw new UnsupportedOperationException("Raw JSON cannot be written as binary");
+        }
+
+        @Override
+        public JsonWriter json(String name, String json) {
+            throw new UnsupportedOperationException("Raw JSON cannot be written as binary");
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            throw new UnsupportedOperationException("Raw JSON cannot be written as binary");
+        }
+
+        @Override
+        public void flush() {
+
+        }
+
+        @Override
+        public void close() {
+
+        }
+
+        private void writeToken(int token) throws IOException {
+            out.writeByte(token);
+            if(name != null) {
+                writeString(name);
+                name = null;
+            }
+        }
+
+        /**
+         * Strings are written as 0 followed by the string the first time and as their index + 1 after that
+         */
+        private void writeString(String s) throws IOException {
+            Integer index = strings.get(s);
+            if(index == null) {
+                strings.put(s, strings.size());
+                writeVarLong(out, 0);
+                byte[] bytes = s.getBytes(CHARSET);
+                writeVarLong(out, bytes.length);
+                out.write(bytes);
+            } else {
+                writeVarLong(out, index + 1);
+            }
+        }
+    }
+
+    /**
+     * Reads tokens written by {@link TokenWriter} back into what {@link Json} would have parsed
+     */
+    private static class TokenReader {
+        private DataInputStream in;
+        private ArrayList<String> strings = new ArrayList<String>();
+
+        TokenReader(DataInputStream in) {
+            this.in = in;
+        }
+
+        JsonValue read() throws IOException {
+            return readValue(in.readUnsignedByte());
+        }
+
+        private JsonValue readValue(int token) throws IOException {
+            switch(token) {
+                case TOKEN_OBJECT:
+                case TOKEN_ARRAY:
+                    JsonValue container = new JsonValue(token == TOKEN_OBJECT ? JsonValue.ValueType.object : JsonValue.ValueType.array);
+                    JsonValue last = null;
+                    for(int childToken = in.readUnsignedByte(); childToken != TOKEN_END; childToken = in.readUnsignedByte()) {
+                        String name = (token == TOKEN_OBJECT) ? readString() : null;
+                        JsonValue child = readValue(childToken);
+                        child.name = name;
+                        child.parent = container;
+                        if(last == null) {
+                            container.child = child;
+                        } else {
+                            last.next = child;
+                            child.prev = last;
+                        }
+                        last = child;
+                        container.size++;
+                    }
+                    return container;
+                case TOKEN_NULL:
+                    return new JsonValue(JsonValue.ValueType.nullValue);
+                case TOKEN_TRUE:
+                    return new JsonValue(true);
+                case TOKEN_FALSE:
+                    return new JsonValue(false);
+                case TOKEN_LONG:
+                    return new JsonValue(readZigZag(in));
+                case TOKEN_FLOAT:
+                    return new JsonValue(in.readFloat());
+                case TOKEN_DOUBLE:
+                    return new JsonValue(in.readDouble());
+                case TOKEN_STRING:
+                    return new JsonValue(readString());
+                default:
+                    throw new IOException("Unknown token " + token);
+            }
+        }
+
+        private String readString() throws IOException {
+            int index = (int)readVarLong(in);
+            if(index > 0) {
+                return strings.get(index - 1);
+            }
+            byte[] bytes = new byte[(int)readVarLong(in)];
+            in.readFully(bytes);
+            String s = new String(bytes, CHARSET);
+            strings.add(s);
+            return s;
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class Camera extends OrthographicCamera {
 
     public Camera(RenderSystem renderSystem) {
         this.renderSystem = renderSystem;
+        renderSystem.setCamera(this);
     }
 
     public void resetViewport() {
@@ -2,7 +2,6 @@ package com.miv;
 
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.utils.Timer;
 
 import map.Map;
@@ -67,8 +66,7 @@ public class EntityActions {
         // Make player invincible
         Mappers.hitbox.get(player).setIntangible(true);
 
-        // Fade screen to white
-        map.getMain().getHud().fadeToColor(new Color(1f, 1f, 1f, 1f), 3.5f, new Timer.Task() {
+        map.getSimulation().getListener().onEnterNewFloor(new Timer.Task() {
             @Override
             public void run() {
                 map.enterNewFloor(newFloor);
@@ -0,0 +1,74 @@
+package com.miv;
+
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.SerializationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+
+import map.Map;
+import map.MapArea;
+import utils.AreaIndex;
+import utils.Point;
+
+/**
+ * The original save format, a single JSON document. Only read to migrate old saves to {@link BinarySaveCodec}.
+ */
+public class JsonSaveCodec implements SaveCodec {
+    private static final String CHARSET = "UTF-8";
+
+    private Json json = new Json();
+
+    public JsonSaveCodec() {
+        // Older saves have fields that are no longer saved, such as MapArea.gridLines
+        json.setIgnoreUnknownFields(true);
+
+        // Map areas were saved as a HashMap keyed by Point#toString()
+        // Json only takes serializers for raw classes, and Json.Serializer's class parameters are raw
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        Json.Serializer<AreaIndex> areaIndexSerializer = new Json.Serializer<AreaIndex>() {
+            @Override
+            public void write(Json json, AreaIndex object, Class knownType) {
+                AreaIndex<MapArea> areas = (AreaIndex<MapArea>)object;
+                json.writeObjectStart();
+                for(LongMap.Entry<MapArea> entry : areas.entries()) {
+                    json.writeValue(new Point(AreaIndex.getX(entry.key), AreaIndex.getY(entry.key)).toString(), entry.value, MapArea.class);
+                }
+                json.writeObjectEnd();
+            }
+
+            @Override
+            public AreaIndex read(Json json, JsonValue jsonData, Class type) {
+                AreaIndex<MapArea> areas = new AreaIndex<MapArea>();
+                for(JsonValue child = jsonData.child; child != null; child = child.next) {
+                    Point pos = Map.parseAreaKey(child.name);
+                    areas.put((int)pos.x, (int)pos.y, json.readValue(MapArea.class, child));
+                }
+                return areas;
+            }
+        };
+        json.setSerializer(AreaIndex.class, areaIndexSerializer);
+    }
+
+    @Override
+    public byte[] encode(Save.SaveData saveData) {
+        try {
+            return json.toJson(saveData).getBytes(CHARSET);
+        } catch(UnsupportedEncodingException e) {
+            throw new SerializationException(e);
+        }
+    }
+
+    @Override
+    public Save.SaveData decode(InputStream input) throws IOException {
+        try {
+            return json.fromJson(Save.SaveData.class, new InputStreamReader(input, CHARSET));
+        } catch(SerializationException e) {
+            throw new IOException(e);
+        }
+    }
+}
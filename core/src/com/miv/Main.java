@@ -4,6 +4,7 @@ import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.Preferences;
 import com.badlogic.gdx.assets.AssetManager;
@@ -19,26 +20,21 @@ import com.badlogic.gdx.graphics.g2d.freetype.FreetypeFontLoader;
 import com.badlogic.gdx.input.GestureDetector;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.Timer;
 import com.badlogic.gdx.utils.viewport.FillViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 
-import components.HitboxComponent;
 import map.Map;
 import map.MapArea;
-import map.mods.MapAreaModifier;
 import screens.DeathScreen;
 import screens.HUD;
 import screens.MainMenu;
 import screens.MapScreen;
 import screens.PlayerBuilder;
-import systems.AISystem;
-import systems.ExpirationSystem;
-import systems.MovementSystem;
 import systems.RenderSystem;
-import systems.ShootingSystem;
 
-public class Main extends Game {
+public class Main extends Game implements Simulation.Listener {
 	public static enum GameState {
 		MAIN_MENU,
 		MAIN_GAME,
@@ -51,6 +47,9 @@ public class Main extends Game {
 	public static final int SCREEN_WIDTH = 1600;
 	public static final int SCREEN_HEIGHT = 900;
 
+	// Profiler CSV dumps are named this followed by a timestamp
+	public static final String PROFILER_CSV_PATH_PREFIX = "Geometric Ascension\\profile_";
+
 	public static final String SKIN_PATH = "glassy\\skin\\glassy-ui.json";
 	public static final String[] WORLD_MUSIC_PATHS = new String[] {
 			"music\\world1.mp3",
@@ -102,18 +101,17 @@ public class Main extends Game {
 	public static final String BUBBLE_DEFAULT_PATH = "bubble_default.png";
     public static final String BUBBLE_SHIELD_PATH = "bubble_shield.png";
 
+	private Simulation simulation;
 	private PooledEngine engine;
-	private ShootingSystem shootingSystem;
 	private RenderSystem renderSystem;
-	private MovementSystem movementSystem;
 	private Camera camera;
 	private InputMultiplexer inputMultiplexer;
 	private GestureListener gestureListener;
 	private Map map;
     private Entity player;
-	private HitboxComponent playerHitboxComponent;
 
-	private boolean playerDead;
+	// Time not yet simulated because it is less than a simulation tick
+	private float simulationTimeAccumulator;
 
 	private AssetManager assetManager;
 	private Preferences preferences;
@@ -122,6 +120,8 @@ public class Main extends Game {
 
 	private GameState state;
 	private HUD hud;
+	// Set by updateScreenActors() so that many pp changes in a frame only update the labels once
+	private boolean screenActorsOutdated;
 
 	// Screens
 	private MainMenu mainMenu;
@@ -131,9 +131,13 @@ public class Main extends Game {
 
 	private int ucCoins;
 
+	// Null until the profiler is first enabled
+	private ProfilerOverlay profilerOverlay;
+
 	@Override
 	public void create() {
-		engine = new PooledEngine(20, 100, 20, 100);
+		simulation = new Simulation(this);
+		engine = simulation.getEngine();
 
 		inputMultiplexer = new InputMultiplexer();
 		gestureListener = new GestureListener(this, inputMultiplexer);
@@ -148,27 +152,24 @@ public class Main extends Game {
 		savePreferences();
 		loadAssets();
 
+		simulation.setAssetManager(assetManager);
 		renderSystem = new RenderSystem(this);
 		assetManager.finishLoading();
 		loadMainMenuMapPreview();
 		renderSystem.setMap(map);
 
-		// Add entity systems
-		engine.addSystem(new AISystem());
-		movementSystem = new MovementSystem(this, engine, map, player);
-		engine.addSystem(movementSystem);
-		shootingSystem = new ShootingSystem(map, engine);
-		engine.addSystem(shootingSystem);
 		engine.addSystem(renderSystem);
-		engine.addSystem(new ExpirationSystem());
+		// Rendering is done once per frame in render() rather than once per simulation tick
+		renderSystem.setProcessing(false);
 
 		camera = new Camera(renderSystem);
 		camera.resetViewport();
 		camera.position.set(0, 0, 0);
 		camera.setFocus(player);
+		simulation.setCamera(camera);
 
-		movementSystem.loadAssets(assetManager);
-		shootingSystem.loadAssets(assetManager);
+		simulation.getMovementSystem().loadAssets(assetManager);
+		simulation.getShootingSystem().loadAssets(assetManager);
 		renderSystem.loadTextures(assetManager);
 		loadMainMenu();
 	}
@@ -179,9 +180,6 @@ public class Main extends Game {
 		loadMainMenuMapPreview();
 
 		renderSystem.setMap(map);
-		movementSystem.setMap(map);
-		movementSystem.setPlayer(player);
-		shootingSystem.setMap(map);
 
 		loadMainMenu();
 	}
@@ -198,11 +196,13 @@ public class Main extends Game {
 	}
 
 	public void loadMainMenuMapPreview() {
-		Save.load(this);
+		Save.load(simulation);
+		setPlayer(simulation.getPlayer());
+		setMap(simulation.getMap());
 		engine.addEntity(player);
 		Mappers.hitbox.get(player).setLastFacedAngle(MathUtils.PI / 2f);
 		Mappers.hitbox.get(player).setTargetAngle(MathUtils.PI / 2f);
-		playerDead = false;
+		simulation.setPlayerDead(false);
 		for(MapArea area : map.getAllSavedMapAreas()) {
 			area.setEngine(engine);
 		}
@@ -229,7 +229,7 @@ public class Main extends Game {
 		if(mainMenu == null) {
 			mainMenu = new MainMenu(this, assetManager, inputMultiplexer);
 		}
-		playerDead = false;
+		simulation.setPlayerDead(false);
 		setScreen(mainMenu);
 		state = GameState.MAIN_MENU;
 	}
@@ -347,7 +347,16 @@ public class Main extends Game {
 		Options.SHOW_PP_GAIN_FLOATING_TEXT = preferences.getBoolean(Options.SHOW_PP_GAIN_FLOATING_TEXT_STRING, Options.SHOW_PP_GAIN_FLOATING_TEXT);
 	}
 
+	/**
+	 * Screen actors are refreshed at most once per frame, in {@link #render()}, no matter how often this is called
+	 */
+	@Override
 	public void updateScreenActors() {
+		screenActorsOutdated = true;
+	}
+
+	private void refreshScreenActors() {
+		screenActorsOutdated = false;
 		if(state == GameState.MAIN_GAME) {
 			hud.updateActors();
 		} else if(state == GameState.CUSTOMIZE) {
@@ -357,6 +366,7 @@ public class Main extends Game {
 		}
 	}
 
+	@Override
 	public void addCoins(int coins) {
 		ucCoins += coins;
 		userCustomization.putInteger(Options.UC_COINS_STRING, ucCoins);
@@ -367,7 +377,7 @@ public class Main extends Game {
 	 * Must be called while current screen is main menu
 	 */
 	public void startGame() {
-		playerDead = false;
+		simulation.setPlayerDead(false);
 		try {
 			if(!engine.getEntities().contains(player, false)) {
 				engine.addEntity(player);
@@ -383,7 +393,6 @@ public class Main extends Game {
 		state = GameState.MAIN_GAME;
 		camera.setFocus(player);
 		camera.setLockedPosition(false);
-		shootingSystem.setPlayer(player);
 	}
 
 	@Override
@@ -392,15 +401,20 @@ public class Main extends Game {
 
 		savePreferences();
 
+		// Entities still waiting to be spawned would otherwise be lost when the existing ones are stored
+		map.finishEnteringNewArea();
+
 		// Save game if not in boss area
 		if(!map.getCurrentArea().isBossArea()) {
 			// Store enemies into ECDs
 			map.getCurrentArea().storeExistingEnemies(engine, false);
 
 			if(!state.equals(GameState.MAIN_MENU)) {
-				Save.save(this);
+				Save.save(simulation);
 			}
 		}
+		// App may be killed at any point after pausing
+		Save.flush();
 	}
 
 	@Override
@@ -412,33 +426,79 @@ public class Main extends Game {
 	public void render() {
 		float deltaTime = Gdx.graphics.getDeltaTime();
 
+		if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) {
+			setProfilerEnabled(!Profiler.isEnabled());
+		} else if (Gdx.input.isKeyJustPressed(Input.Keys.F4) && Profiler.isEnabled()) {
+			dumpProfilerCsv();
+		}
+		Profiler.beginFrame();
+
 		assetManager.update();
 		if (state == GameState.MAIN_GAME) {
-			if (!playerDead) {
-				playerHitboxComponent.update(deltaTime);
-				engine.update(deltaTime);
-				map.getCurrentArea().update(deltaTime);
-			} else {
-				// Update all systems except for ShootingSystem
-				engine.getSystem(AISystem.class).update(deltaTime);
-				engine.getSystem(MovementSystem.class).update(deltaTime);
-				engine.getSystem(RenderSystem.class).update(deltaTime);
+			float tickTime = 1f / Options.SIMULATION_TICK_RATE;
+			simulationTimeAccumulator += deltaTime;
+			int ticks = 0;
+			while (simulationTimeAccumulator >= tickTime && ticks < Options.MAX_SIMULATION_TICKS_PER_FRAME) {
+				simulation.step(tickTime);
+				simulationTimeAccumulator -= tickTime;
+				ticks++;
+			}
+			// Too far behind; drop the backlog
+			if (simulationTimeAccumulator >= tickTime) {
+				simulationTimeAccumulator %= tickTime;
 			}
+
+			renderSystem.setInterpolationAlpha(simulationTimeAccumulator / tickTime);
+			renderSystem.update(deltaTime);
 			camera.update();
 		} else if (state == GameState.MAIN_MENU) {
-			engine.getSystem(RenderSystem.class).update(deltaTime);
+			renderSystem.setInterpolationAlpha(1f);
+			renderSystem.update(deltaTime);
 			camera.update();
 		}
+		if (screenActorsOutdated) {
+			refreshScreenActors();
+		}
 		super.render();
+		Profiler.endFrame();
+
+		if (Profiler.isEnabled()) {
+			profilerOverlay.render(deltaTime);
+		}
+	}
+
+	/**
+	 * Disabling the profiler writes everything it recorded to a CSV file
+	 */
+	public void setProfilerEnabled(boolean enabled) {
+		if (enabled == Profiler.isEnabled()) {
+			return;
+		}
+		if (enabled) {
+			if (profilerOverlay == null) {
+				profilerOverlay = new ProfilerOverlay();
+			}
+		} else {
+			dumpProfilerCsv();
+		}
+		Profiler.setEnabled(enabled);
+	}
+
+	public void dumpProfilerCsv() {
+		if (Profiler.getFrameCount() > 0) {
+			Profiler.writeCsv(Gdx.files.local(PROFILER_CSV_PATH_PREFIX + TimeUtils.millis() + ".csv"));
+		}
 	}
-	
+
 	@Override
 	public void dispose() {
-
+		if (profilerOverlay != null) {
+			profilerOverlay.dispose();
+		}
 	}
 
+	@Override
 	public void onPlayerDeath(final float score) {
-		playerDead = true;
 		camera.setLockedPosition(true);
 
 		hud.getAudioPlayer().fadeOut(2.5f);
@@ -466,8 +526,22 @@ public class Main extends Game {
 		}
 	}
 
+	@Override
 	public void save() {
-		Save.save(this);
+		Save.save(simulation);
+	}
+
+	@Override
+	public void onMapAreaCleared(MapArea mapArea) {
+		if(mapArea.getStairsDestination() != -1) {
+			hud.getMoveToNextFloorButton().setVisible(false);
+		}
+	}
+
+	@Override
+	public void onEnterNewFloor(Timer.Task enterNewFloor) {
+		// Fade screen to white
+		hud.fadeToColor(new Color(1f, 1f, 1f, 1f), 3.5f, enterNewFloor);
 	}
 
 	public AssetManager getAssetManager() {
@@ -504,10 +578,7 @@ public class Main extends Game {
 
 	public void setPlayer(Entity player) {
 		this.player = player;
-		playerHitboxComponent = Mappers.hitbox.get(player);
-		if(movementSystem != null) {
-			movementSystem.setPlayer(player);
-		}
+		simulation.setPlayer(player);
 		if(hud != null) {
 			hud.setPlayer(player);
 		}
@@ -517,44 +588,17 @@ public class Main extends Game {
 		if(mapScreen != null) {
 			mapScreen.setPlayer(player);
 		}
-		if(map != null) {
-			for(MapArea area : map.getAllSavedMapAreas()) {
-				if(area.getMods() != null) {
-					for (MapAreaModifier mod : area.getMods()) {
-						mod.setPlayer(player);
-					}
-				}
-			}
-		}
 	}
 
 	public void setMap(Map map) {
-		map.setMain(this);
+		simulation.setMap(map);
 		if(renderSystem != null) {
 			renderSystem.setMap(map);
 		}
-		if(movementSystem != null) {
-			movementSystem.setMap(map);
-		}
 		if(mapScreen != null) {
 			mapScreen.setMap(map);
 		}
-		if(shootingSystem != null) {
-			shootingSystem.setMap(map);
-		}
 		this.map = map;
-		map.setCurrentArea(map.getFocus());
-	}
-
-	public void setMapAreaModFields() {
-		for(MapArea area : map.getAllSavedMapAreas()) {
-			for(MapAreaModifier m : area.getMods()) {
-				m.setMapArea(area);
-				m.setPlayer(player);
-				m.setAssetManager(assetManager);
-				m.setEngine(engine);
-			}
-		}
 	}
 
 	public Camera getCamera() {
@@ -562,11 +606,15 @@ public class Main extends Game {
 	}
 
 	public boolean isPlayerDead() {
-		return playerDead;
+		return simulation.isPlayerDead();
 	}
 
 	public void setPlayerDead(boolean playerDead) {
-		this.playerDead = playerDead;
+		simulation.setPlayerDead(playerDead);
+	}
+
+	public Simulation getSimulation() {
+		return simulation;
 	}
 
 	public RenderSystem getRenderSystem() {
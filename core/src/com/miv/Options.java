@@ -55,6 +55,9 @@ public class Options {
     public static final float PLAYER_BUBBLE_POP_VOLUME = 3f;
     public static final float ENEMY_BUBBLE_POP_VOLUME = 3f;
 
+    // Maximum simulation ticks run in a single frame; any time left over is dropped so that slow devices do not fall further and further behind
+    public static final int MAX_SIMULATION_TICKS_PER_FRAME = 5;
+
     // Distance before sound begins to diminish as distance increases
     public static final float MIN_BUBBLE_POP_VOLUME_DROP_OFF_DISTANCE = 300f;
     // Distance before sound volume is 0
@@ -78,6 +81,9 @@ public class Options {
     // Used for high score preferences file
     public static final String HIGH_SCORE_STRING = "highScore";
 
+    // Simulation ticks per second; the simulation runs at this fixed rate regardless of frame rate
+    public static float SIMULATION_TICK_RATE = 60f;
+
     public static float MUSIC_VOLUME = 0.5f;
     public static float SOUND_VOLUME = 0.5f;
     public static float MASTER_VOLUME = 0.5f;
@@ -0,0 +1,154 @@
+package com.miv;
+
+import com.badlogic.ashley.core.Component;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.PooledEngine;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
+
+import java.lang.reflect.Field;
+
+import components.HitboxComponent;
+import utils.CircleHitbox;
+
+/**
+ * How many pooled objects are in use, how many are free and the most that have been in use at once, for sizing the
+ * pools passed to {@link PooledEngine#PooledEngine(int, int, int, int)} and the {@link CircleHitbox} pool.
+ * In-use counts are taken from the entities in the engine whenever {@link #sample()} is called, so peaks are only as
+ * accurate as how often it is called. {@link PooledEngine} does not expose its pools, so their free counts are read
+ * through reflection and are -1 if that fails.
+ */
+public class PoolStatistics {
+    public static class Stats {
+        private String name;
+        private int inUse;
+        private int free;
+        private int peakInUse;
+
+        private Stats(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getInUse() {
+            return inUse;
+        }
+
+        /**
+         * @return -1 if unknown
+         */
+        public int getFree() {
+            return free;
+        }
+
+        public int getPeakInUse() {
+            return peakInUse;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + inUse + " in use, " + free + " free, " + peakInUse + " peak";
+        }
+    }
+
+    private static PooledEngine engine;
+    private static Pool<?> entityPool;
+    private static ObjectMap<Class<?>, Pool<?>> componentPools;
+
+    private static Stats entities = new Stats("Entity");
+    private static Stats circles = new Stats("CircleHitbox");
+    private static ObjectMap<Class<?>, Stats> components = new ObjectMap<Class<?>, Stats>();
+    private static ObjectIntMap<Class<?>> componentCounts = new ObjectIntMap<Class<?>>();
+
+    public static void setEngine(PooledEngine engine) {
+        PoolStatistics.engine = engine;
+        entityPool = null;
+        componentPools = null;
+        try {
+            Field entityPoolField = PooledEngine.class.getDeclaredField("entityPool");
+            entityPoolField.setAccessible(true);
+            entityPool = (Pool<?>)entityPoolField.get(engine);
+
+            Field componentPoolsField = PooledEngine.class.getDeclaredField("componentPools");
+            componentPoolsField.setAccessible(true);
+            Object pools = componentPoolsField.get(engine);
+            Field poolsField = pools.getClass().getDeclaredField("pools");
+            poolsField.setAccessible(true);
+            // Declared as ObjectMap<Class<?>, ComponentPool> in Ashley's private ComponentPools class
+            @SuppressWarnings("unchecked")
+            ObjectMap<Class<?>, Pool<?>> poolsByType = (ObjectMap<Class<?>, Pool<?>>)poolsField.get(pools);
+            componentPools = poolsByType;
+        } catch(Exception e) {
+            // Different Ashley version; free counts stay unknown
+        }
+        resetPeaks();
+    }
+
+    /**
+     * Counts the objects currently in use and updates the peaks
+     */
+    public static void sample() {
+        if(engine == null) {
+            return;
+        }
+
+        ImmutableArray<Entity> allEntities = engine.getEntities();
+        int circleCount = 0;
+        componentCounts.clear();
+        for(int i = 0; i < allEntities.size(); i++) {
+            ImmutableArray<Component> entityComponents = allEntities.get(i).getComponents();
+            for(int j = 0; j < entityComponents.size(); j++) {
+                Component component = entityComponents.get(j);
+                componentCounts.getAndIncrement(component.getClass(), 0, 1);
+                if(component instanceof HitboxComponent) {
+                    circleCount += ((HitboxComponent)component).getCircles().size();
+                }
+            }
+        }
+
+        update(entities, allEntities.size(), entityPool == null ? -1 : entityPool.getFree());
+        update(circles, circleCount, CircleHitbox.getFreeCount());
+        for(ObjectIntMap.Entry<Class<?>> entry : componentCounts.entries()) {
+            Stats stats = components.get(entry.key);
+            if(stats == null) {
+                stats = new Stats(entry.key.getSimpleName());
+                components.put(entry.key, stats);
+            }
+        }
+        for(ObjectMap.Entry<Class<?>, Stats> entry : components.entries()) {
+            Pool<?> pool = componentPools == null ? null : componentPools.get(entry.key);
+            update(entry.value, componentCounts.get(entry.key, 0), pool == null ? -1 : pool.getFree());
+        }
+    }
+
+    private static void update(Stats stats, int inUse, int free) {
+        stats.inUse = inUse;
+        stats.free = free;
+        stats.peakInUse = Math.max(stats.peakInUse, inUse);
+    }
+
+    public static void resetPeaks() {
+        entities.peakInUse = 0;
+        circles.peakInUse = 0;
+        components.clear();
+    }
+
+    /**
+     * Entities first, then circles, then every component type seen since the peaks were last reset
+     */
+    public static Array<Stats> getStatistics() {
+        Array<Stats> statistics = new Array<Stats>();
+        statistics.add(entities);
+        statistics.add(circles);
+        for(Stats stats : components.values()) {
+            statistics.add(stats);
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,321 @@
+package com.miv;
+
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.files.FileHandle;
+
+import java.util.Arrays;
+
+import components.EnemyComponent;
+import components.HitboxComponent;
+import components.ObstacleComponent;
+import components.PpOrbComponent;
+import systems.BulletSystem;
+
+/**
+ * Opt-in frame profiler. Records how long each {@link Section} takes per frame, entity counts and bytes allocated
+ * on the main thread for the last {@link #HISTORY_SIZE} frames. Does nothing while disabled.
+ * Sections are timed with {@link #begin(Section)}/{@link #end(Section)} and frames with
+ * {@link #beginFrame()}/{@link #endFrame()}.
+ */
+public class Profiler {
+    public enum Section {
+        AI_SYSTEM("AISystem"),
+        BULLET_SYSTEM("BulletSystem"),
+        MOVEMENT_SYSTEM("MovementSystem"),
+        SHOOTING_SYSTEM("ShootingSystem"),
+        EXPIRATION_SYSTEM("ExpirationSystem"),
+        RENDER_SYSTEM("RenderSystem"),
+        MAP_AREA_UPDATE("MapArea.update"),
+        ENTER_NEW_AREA("Map.enterNewArea"),
+        SAVE("Save.save");
+
+        private String displayName;
+
+        Section(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    public enum EntityCount {
+        ALL("entities"),
+        ENEMIES("enemies"),
+        OBSTACLES("obstacles"),
+        PP_ORBS("ppOrbs"),
+        BULLETS("bullets");
+
+        private String displayName;
+
+        EntityCount(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    public static final int HISTORY_SIZE = 600;
+
+    private static final Section[] SECTIONS = Section.values();
+    private static final EntityCount[] ENTITY_COUNTS = EntityCount.values();
+
+    private static boolean enabled;
+
+    // Index into history arrays of the current frame
+    private static int frame;
+    // Total number of frames recorded since enabling
+    private static long framesRecorded;
+    private static long frameStartTime;
+    private static long frameStartAllocatedBytes;
+
+    private static long[] sectionStartTimes = new long[SECTIONS.length];
+    // Nanoseconds spent in each section in the current frame
+    private static long[] sectionTimes = new long[SECTIONS.length];
+
+    // [frame] in milliseconds
+    private static float[] frameTimeHistory = new float[HISTORY_SIZE];
+    // [section][frame] in milliseconds
+    private static float[][] sectionTimeHistory = new float[SECTIONS.length][HISTORY_SIZE];
+    // [frame]; -1 if allocations cannot be measured on this platform
+    private static long[] allocatedBytesHistory = new long[HISTORY_SIZE];
+    // [entity count][frame]
+    private static int[][] entityCountHistory = new int[ENTITY_COUNTS.length][HISTORY_SIZE];
+
+    // Hitbox circles drawn and culled, and vertices and draw calls submitted for them, in the last rendered frame
+    private static int renderedCircles;
+    private static int culledCircles;
+    private static int renderedVertices;
+    private static int renderDrawCalls;
+
+    private static float[] percentileScratch = new float[HISTORY_SIZE];
+
+    private static Engine engine;
+    private static ImmutableArray<Entity> allEntities;
+    private static ImmutableArray<Entity> enemies;
+    private static ImmutableArray<Entity> obstacles;
+    private static ImmutableArray<Entity> ppOrbs;
+
+    /**
+     * Sets the engine whose entities are counted every frame
+     */
+    public static void setEngine(Engine engine) {
+        Profiler.engine = engine;
+        allEntities = engine.getEntitiesFor(Family.all(HitboxComponent.class).get());
+        enemies = engine.getEntitiesFor(Family.all(EnemyComponent.class).get());
+        obstacles = engine.getEntitiesFor(Family.all(ObstacleComponent.class).get());
+        ppOrbs = engine.getEntitiesFor(Family.all(PpOrbComponent.class).get());
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        if(enabled && !Profiler.enabled) {
+            reset();
+        }
+        Profiler.enabled = enabled;
+    }
+
+    public static void reset() {
+        frame = 0;
+        framesRecorded = 0;
+        Arrays.fill(sectionTimes, 0);
+    }
+
+    public static void beginFrame() {
+        if(!enabled) {
+            return;
+        }
+        Arrays.fill(sectionTimes, 0);
+        frameStartAllocatedBytes = AllocationCounter.getAllocatedBytes();
+        frameStartTime = System.nanoTime();
+    }
+
+    public static void endFrame() {
+        if(!enabled) {
+            return;
+        }
+        frameTimeHistory[frame] = (System.nanoTime() - frameStartTime) / 1000000f;
+        long allocatedBytes = AllocationCounter.getAllocatedBytes();
+        allocatedBytesHistory[frame] = (allocatedBytes < 0 || frameStartAllocatedBytes < 0) ? -1 : allocatedBytes - frameStartAllocatedBytes;
+        for(int i = 0; i < SECTIONS.length; i++) {
+            sectionTimeHistory[i][frame] = sectionTimes[i] / 1000000f;
+        }
+
+        if(engine != null) {
+            entityCountHistory[EntityCount.ALL.ordinal()][frame] = allEntities.size();
+            entityCountHistory[EntityCount.ENEMIES.ordinal()][frame] = enemies.size();
+            entityCountHistory[EntityCount.OBSTACLES.ordinal()][frame] = obstacles.size();
+            entityCountHistory[EntityCount.PP_ORBS.ordinal()][frame] = ppOrbs.size();
+            BulletSystem bulletSystem = engine.getSystem(BulletSystem.class);
+            entityCountHistory[EntityCount.BULLETS.ordinal()][frame] = bulletSystem == null ? 0 : bulletSystem.getBulletCount();
+            PoolStatistics.sample();
+        }
+
+        frame = (frame + 1) % HISTORY_SIZE;
+        framesRecorded++;
+    }
+
+    public static void begin(Section section) {
+        if(enabled) {
+            sectionStartTimes[section.ordinal()] = System.nanoTime();
+        }
+    }
+
+    public static void end(Section section) {
+        if(enabled) {
+            sectionTimes[section.ordinal()] += System.nanoTime() - sectionStartTimes[section.ordinal()];
+        }
+    }
+
+    /**
+     * Called by {@link systems.RenderSystem} every frame it draws hitboxes
+     */
+    public static void setRenderCounts(int circles, int culled, int vertices, int drawCalls) {
+        renderedCircles = circles;
+        culledCircles = culled;
+        renderedVertices = vertices;
+        renderDrawCalls = drawCalls;
+    }
+
+    public static int getRenderedCircles() {
+        return renderedCircles;
+    }
+
+    public static int getCulledCircles() {
+        return culledCircles;
+    }
+
+    public static int getRenderedVertices() {
+        return renderedVertices;
+    }
+
+    public static int getRenderDrawCalls() {
+        return renderDrawCalls;
+    }
+
+    /**
+     * Number of frames currently in the history
+     */
+    public static int getFrameCount() {
+        return (int)Math.min(framesRecorded, HISTORY_SIZE);
+    }
+
+    /**
+     * @param percentile - from 0 to 1
+     * @return time in milliseconds that the given percentile of recorded frames spent in the section
+     */
+    public static float getSectionPercentile(Section section, float percentile) {
+        return percentile(sectionTimeHistory[section.ordinal()], percentile);
+    }
+
+    public static float getFramePercentile(float percentile) {
+        return percentile(frameTimeHistory, percentile);
+    }
+
+    /**
+     * @return -1 if allocations cannot be measured on this platform
+     */
+    public static long getAllocatedBytesPercentile(float percentile) {
+        int count = getFrameCount();
+        if(count == 0 || allocatedBytesHistory[0] < 0) {
+            return -1;
+        }
+        for(int i = 0; i < count; i++) {
+            percentileScratch[i] = allocatedBytesHistory[i];
+        }
+        return (long)sortedPercentile(count, percentile);
+    }
+
+    /**
+     * @return count in the last recorded frame
+     */
+    public static int getEntityCount(EntityCount entityCount) {
+        if(framesRecorded == 0) {
+            return 0;
+        }
+        return entityCountHistory[entityCount.ordinal()][(frame - 1 + HISTORY_SIZE) % HISTORY_SIZE];
+    }
+
+    private static float percentile(float[] history, float percentile) {
+        int count = getFrameCount();
+        if(count == 0) {
+            return 0;
+        }
+        System.arraycopy(history, 0, percentileScratch, 0, count);
+        return sortedPercentile(count, percentile);
+    }
+
+    private static float sortedPercentile(int count, float percentile) {
+        Arrays.sort(percentileScratch, 0, count);
+        int index = Math.min(count - 1, (int)Math.ceil(percentile * count) - 1);
+        return percentileScratch[Math.max(0, index)];
+    }
+
+    /**
+     * Writes every frame in the history to a CSV file, oldest first
+     */
+    public static void writeCsv(FileHandle file) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("frame,frameMs");
+        for(Section section : SECTIONS) {
+            sb.append(',').append(section.getDisplayName()).append("Ms");
+        }
+        sb.append(",allocatedBytes");
+        for(EntityCount entityCount : ENTITY_COUNTS) {
+            sb.append(',').append(entityCount.getDisplayName());
+        }
+        sb.append('\n');
+
+        int count = getFrameCount();
+        long firstFrameNumber = framesRecorded - count;
+        int firstIndex = (framesRecorded > HISTORY_SIZE) ? frame : 0;
+        for(int i = 0; i < count; i++) {
+            int index = (firstIndex + i) % HISTORY_SIZE;
+            sb.append(firstFrameNumber + i).append(',').append(frameTimeHistory[index]);
+            for(int s = 0; s < SECTIONS.length; s++) {
+                sb.append(',').append(sectionTimeHistory[s][index]);
+            }
+            sb.append(',').append(allocatedBytesHistory[index]);
+            for(int e = 0; e < ENTITY_COUNTS.length; e++) {
+                sb.append(',').append(entityCountHistory[e][index]);
+            }
+            sb.append('\n');
+        }
+
+        file.writeString(sb.toString(), false);
+    }
+
+    /**
+     * Kept in its own class so that java.lang.management is only loaded when profiling, since it does not exist
+     * on Android
+     */
+    private static class AllocationCounter {
+        private static boolean supported = true;
+        private static com.sun.management.ThreadMXBean threadMXBean;
+
+        static long getAllocatedBytes() {
+            if(!supported) {
+                return -1;
+            }
+            try {
+                if(threadMXBean == null) {
+                    threadMXBean = (com.sun.management.ThreadMXBean)java.lang.management.ManagementFactory.getThreadMXBean();
+                    threadMXBean.setThreadAllocatedMemoryEnabled(true);
+                }
+                return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            } catch(Throwable e) {
+                supported = false;
+                return -1;
+            }
+        }
+    }
+}
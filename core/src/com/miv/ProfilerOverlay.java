@@ -0,0 +1,86 @@
+package com.miv;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Matrix4;
+
+/**
+ * Draws {@link Profiler} percentiles in the top left corner of the screen
+ */
+public class ProfilerOverlay {
+    // Percentiles are recalculated this often rather than every frame, in seconds
+    private static final float REFRESH_INTERVAL = 0.5f;
+
+    private SpriteBatch batch;
+    private BitmapFont font;
+    private Matrix4 projection = new Matrix4();
+    private StringBuilder text = new StringBuilder();
+    private float timeSinceRefresh = REFRESH_INTERVAL;
+
+    public ProfilerOverlay() {
+        batch = new SpriteBatch();
+        font = new BitmapFont();
+        font.setColor(Color.BLACK);
+    }
+
+    public void render(float deltaTime) {
+        timeSinceRefresh += deltaTime;
+        if(timeSinceRefresh >= REFRESH_INTERVAL) {
+            refreshText();
+            timeSinceRefresh = 0;
+        }
+
+        projection.setToOrtho2D(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        batch.setProjectionMatrix(projection);
+        batch.begin();
+        font.draw(batch, text, 10, Gdx.graphics.getHeight() - 10);
+        batch.end();
+    }
+
+    private void refreshText() {
+        text.setLength(0);
+        text.append("Last ").append(Profiler.getFrameCount()).append(" frames (ms)  p50 / p95 / p99\n");
+        appendPercentiles("Frame", Profiler.getFramePercentile(0.5f), Profiler.getFramePercentile(0.95f), Profiler.getFramePercentile(0.99f));
+        for(Profiler.Section section : Profiler.Section.values()) {
+            appendPercentiles(section.getDisplayName(), Profiler.getSectionPercentile(section, 0.5f),
+                    Profiler.getSectionPercentile(section, 0.95f), Profiler.getSectionPercentile(section, 0.99f));
+        }
+
+        long allocatedBytes = Profiler.getAllocatedBytesPercentile(0.5f);
+        if(allocatedBytes >= 0) {
+            text.append("Allocated KB/frame: ").append(allocatedBytes / 1024).append(" / ")
+                    .append(Profiler.getAllocatedBytesPercentile(0.95f) / 1024).append(" / ")
+                    .append(Profiler.getAllocatedBytesPercentile(0.99f) / 1024).append('\n');
+        } else {
+            text.append("Allocated KB/frame: unavailable\n");
+        }
+
+        for(Profiler.EntityCount entityCount : Profiler.EntityCount.values()) {
+            text.append(entityCount.getDisplayName()).append(": ").append(Profiler.getEntityCount(entityCount)).append("  ");
+        }
+
+        text.append("\nHitboxes: ").append(Profiler.getRenderedCircles()).append(" drawn, ").append(Profiler.getCulledCircles())
+                .append(" culled, ").append(Profiler.getRenderedVertices()).append(" vertices, ").append(Profiler.getRenderDrawCalls()).append(" draw calls");
+
+        text.append("\nPools (in use / free / peak)\n");
+        for(PoolStatistics.Stats stats : PoolStatistics.getStatistics()) {
+            text.append(stats.getName()).append(": ").append(stats.getInUse()).append(" / ").append(stats.getFree()).append(" / ")
+                    .append(stats.getPeakInUse()).append('\n');
+        }
+    }
+
+    private void appendPercentiles(String name, float p50, float p95, float p99) {
+        text.append(name).append(": ").append(round(p50)).append(" / ").append(round(p95)).append(" / ").append(round(p99)).append('\n');
+    }
+
+    private static float round(float ms) {
+        return Math.round(ms * 100f) / 100f;
+    }
+
+    public void dispose() {
+        batch.dispose();
+        font.dispose();
+    }
+}
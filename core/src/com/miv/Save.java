@@ -3,26 +3,58 @@ package com.miv;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.SerializationException;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncTask;
 
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import components.HitboxComponent;
 import components.PlayerComponent;
-import factories.AttackPatternFactory;
 import map.Map;
-import systems.RenderSystem;
+import systems.BulletSystem;
+import systems.CollisionMatrix;
 import utils.CircleHitbox;
 import utils.Point;
 
 /**
  * Game autosaves when entering a new map area (only via travelling) and when a map area is cleared of all enemies.
+ * Saves are copied on the calling thread, then encoded with {@link BinarySaveCodec} and written to disk on a background thread.
+ * Saves from before the binary format are read with {@link JsonSaveCodec} and replaced by the next save.
  * Created by Miv on 7/10/2017.
  */
 
 public class Save {
-    private static final String SAVE_DATA_PATH = "Geometric Ascension\\save_data.json";
+    // Save files are in this folder in local storage unless setSaveDirectory is called
+    private static final String DEFAULT_SAVE_DIRECTORY = "Geometric Ascension\\";
+    private static final String SAVE_DATA_FILE = "save_data.bin";
+    // Saves are written here first and then renamed over SAVE_DATA_FILE so that a crash never leaves a partial save
+    private static final String TEMP_SAVE_DATA_FILE = "save_data.bin.tmp";
+    private static final String JSON_SAVE_DATA_FILE = "save_data.json";
+    // Null for DEFAULT_SAVE_DIRECTORY
+    private static volatile FileHandle saveDirectory;
+
+    private static final SaveCodec codec = new BinarySaveCodec();
+    private static final SaveCodec jsonCodec = new JsonSaveCodec();
+
+    private static final AsyncExecutor saveExecutor = new AsyncExecutor(1);
+    // Latest save that has not been written yet. Requests made before it is written replace it.
+    private static final AtomicReference<SaveData> pendingSave = new AtomicReference<SaveData>();
+    // Held while touching the save files
+    private static final Object fileLock = new Object();
+    private static final AsyncTask<Void> writePendingSaveTask = new AsyncTask<Void>() {
+        @Override
+        public Void call() {
+            writePendingSave();
+            return null;
+        }
+    };
 
     public static class SaveData {
         private ArrayList<CircleHitbox> playerCircles;
@@ -42,91 +74,177 @@ public class Save {
             this.map = map;
             this.playerOrigin = playerOrigin;
         }
+
+        public Map getMap() {
+            return map;
+        }
     }
 
     /**
-     * Loads the saved player entity and map data into {@link Main#player} and {@link Main#map}.
+     * Loads the saved player entity and map data into the simulation.
      * If no save data exists, the default player and map are loaded.
      * @return True if a new save file was created; false if a pre-existing one was loaded
      */
-    public static boolean load(Main main) {
-        PooledEngine engine = main.getEngine();
+    public static boolean load(Simulation simulation) {
+        flush();
+
+        PooledEngine engine = simulation.getEngine();
         engine.removeAllEntities();
+        if(engine.getSystem(BulletSystem.class) != null) {
+            engine.getSystem(BulletSystem.class).clear();
+        }
+
+        // Game was closed after writing a save but before it replaced the old one
+        if(!getSaveFile(SAVE_DATA_FILE).exists() && getSaveFile(TEMP_SAVE_DATA_FILE).exists()) {
+            getSaveFile(TEMP_SAVE_DATA_FILE).moveTo(getSaveFile(SAVE_DATA_FILE));
+        }
+
+        FileHandle saveFile = getSaveFile(SAVE_DATA_FILE);
+        SaveCodec saveCodec = codec;
+        if(!saveFile.exists()) {
+            // Save from before the binary format
+            saveFile = getSaveFile(JSON_SAVE_DATA_FILE);
+            saveCodec = jsonCodec;
+        }
 
-        if(Gdx.files.local(SAVE_DATA_PATH).exists()) {
+        if(saveFile.exists()) {
+            InputStream input = saveFile.read();
             try {
-                Json save = new Json();
-                SaveData data = save.fromJson(SaveData.class, Gdx.files.local(SAVE_DATA_PATH));
+                SaveData data = saveCodec.decode(input);
 
                 // Load player data
                 Entity player = engine.createEntity();
                 HitboxComponent hitbox = engine.createComponent(HitboxComponent.class);
-                for (CircleHitbox c : data.playerCircles) {
-                    hitbox.addCircle(c, false);
-                }
+                hitbox.addCircles(data.playerCircles, false);
                 hitbox.setLastFacedAngle(MathUtils.PI / 2f);
                 hitbox.recenterOriginalCirclePositions();
                 hitbox.setMaxSpeed(data.playerMaxSpeed);
                 hitbox.setOrigin(data.playerOrigin.x, data.playerOrigin.y);
+                hitbox.setCollisionLayer(CollisionMatrix.PLAYER);
                 player.add(hitbox);
                 player.add(data.playerPlayerComponent);
-                main.setPlayer(player);
+                simulation.setPlayer(player);
 
                 // Load map
-                main.setMap(data.map);
+                simulation.setMap(data.map);
 
-                main.setMapAreaModFields();
+                simulation.setMapAreaModFields();
 
                 return false;
             } catch(Exception e) {
-                createNewSave(engine, main);
+                createNewSave(engine, simulation);
                 return true;
+            } finally {
+                StreamUtils.closeQuietly(input);
             }
         } else {
-            createNewSave(engine, main);
+            createNewSave(engine, simulation);
             return true;
         }
     }
 
-    private static void createNewSave(PooledEngine engine, Main main) {
+    private static void createNewSave(PooledEngine engine, Simulation simulation) {
         System.out.println("CREATED NEW SAVE DATA");
 
         // Create new player entity
-        Entity player = engine.createEntity();
-        HitboxComponent hitboxComponent = engine.createComponent(HitboxComponent.class);
-        hitboxComponent.setMaxSpeed(Options.PLAYER_BASE_MAX_SPEED);
-        CircleHitbox c = new CircleHitbox();
-        c.setHitboxTextureType(RenderSystem.HitboxTextureType.PLAYER);
-        c.setRadius(Options.DEFAULT_NEW_CIRCLE_RADIUS);
-        c.setBaseMaxHealth(Options.DEFAULT_NEW_CIRCLE_MAX_HEALTH);
-        c.setHealth(c.getMaxHealth());
-        c.setAttackPattern(AttackPatternFactory.getAttackPattern("PLAYER_DEFAULT_1"));
-        hitboxComponent.addCircle(c, true);
-        hitboxComponent.recenterOriginalCirclePositions();
-        player.add(hitboxComponent);
-        player.add(engine.createComponent(PlayerComponent.class));
-        main.setPlayer(player);
+        Entity player = Simulation.createDefaultPlayer(engine);
+        simulation.setPlayer(player);
 
         // Create new map
-        main.setMap(new Map(main));
+        simulation.setMap(new Map(simulation));
     }
 
     public static void deleteSave() {
-        if(Gdx.files.local(SAVE_DATA_PATH).exists()) {
-            Gdx.files.local(SAVE_DATA_PATH).delete();
+        synchronized(fileLock) {
+            // Drop any save that has not been written yet so that it does not bring the save back
+            pendingSave.set(null);
+            if(getSaveFile(SAVE_DATA_FILE).exists()) {
+                getSaveFile(SAVE_DATA_FILE).delete();
+            }
+            if(getSaveFile(TEMP_SAVE_DATA_FILE).exists()) {
+                getSaveFile(TEMP_SAVE_DATA_FILE).delete();
+            }
+            if(getSaveFile(JSON_SAVE_DATA_FILE).exists()) {
+                getSaveFile(JSON_SAVE_DATA_FILE).delete();
+            }
         }
     }
 
-    public static void save(Main session) {
+    /**
+     * Changes the folder saves are read from and written to, e.g. to keep benchmarks away from the player's save.
+     * Null for the default folder.
+     */
+    public static void setSaveDirectory(FileHandle directory) {
+        // Saves already requested go to the old folder
+        flush();
+        saveDirectory = directory;
+    }
+
+    private static FileHandle getSaveFile(String fileName) {
+        FileHandle directory = saveDirectory;
+        if(directory == null) {
+            return Gdx.files.local(DEFAULT_SAVE_DIRECTORY + fileName);
+        }
+        return directory.child(fileName);
+    }
+
+    public static void save(Simulation session) {
         // TODO: auto save every time player kills all enemies in MapArea or enters new floor
         if(!session.isPlayerDead()) {
-            SaveData saveData = new SaveData(Mappers.hitbox.get(session.getPlayer()).getCircles(), Mappers.hitbox.get(session.getPlayer()).getMaxSpeed(),
-                    Mappers.player.get(session.getPlayer()), session.getMap(), Mappers.hitbox.get(session.getPlayer()).getOrigin());
+            Profiler.begin(Profiler.Section.SAVE);
+            session.getMap().storeDetachedEnemies();
+
+            // Everything saved is copied, since the game keeps changing it while the save is encoded
+            HitboxComponent playerHitbox = Mappers.hitbox.get(session.getPlayer());
+            ArrayList<CircleHitbox> playerCircles = new ArrayList<CircleHitbox>(playerHitbox.getCircles().size());
+            for(CircleHitbox c : playerHitbox.getCircles()) {
+                playerCircles.add(c.clone());
+            }
+            SaveData saveData = new SaveData(playerCircles, playerHitbox.getMaxSpeed(), Mappers.player.get(session.getPlayer()).clone(),
+                    session.getMap().createSaveSnapshot(), new Point(playerHitbox.getOrigin()));
 
-            Json save = new Json();
-            System.out.println(save.toJson(saveData));
-            Gdx.files.local(SAVE_DATA_PATH).writeString(save.toJson(saveData), false);
-            System.out.println("SAVED");
+            // Only schedule a write if there isn't one waiting already; that one will write this save instead
+            if(pendingSave.getAndSet(saveData) == null) {
+                saveExecutor.submit(writePendingSaveTask);
+            }
+            Profiler.end(Profiler.Section.SAVE);
+        }
+    }
+
+    /**
+     * Blocks until every requested save has been written to disk
+     */
+    public static void flush() {
+        writePendingSave();
+    }
+
+    private static void writePendingSave() {
+        synchronized(fileLock) {
+            SaveData saveData = pendingSave.getAndSet(null);
+            if(saveData == null) {
+                return;
+            }
+
+            try {
+                byte[] bytes = codec.encode(saveData);
+                FileHandle saveFile = getSaveFile(SAVE_DATA_FILE);
+                FileHandle tempSaveFile = getSaveFile(TEMP_SAVE_DATA_FILE);
+                tempSaveFile.writeBytes(bytes, false);
+                if(!tempSaveFile.file().renameTo(saveFile.file())) {
+                    // Renaming onto an existing file fails on Windows
+                    saveFile.delete();
+                    tempSaveFile.moveTo(saveFile);
+                }
+                // Save from before the binary format has been replaced
+                if(getSaveFile(JSON_SAVE_DATA_FILE).exists()) {
+                    getSaveFile(JSON_SAVE_DATA_FILE).delete();
+                }
+                System.out.println("SAVED");
+            } catch(GdxRuntimeException e) {
+                e.printStackTrace();
+            } catch(SerializationException e) {
+                e.printStackTrace();
+            }
         }
     }
 }
@@ -0,0 +1,19 @@
+package com.miv;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Converts {@link Save.SaveData} to and from the contents of a save file
+ * @see BinarySaveCodec
+ * @see JsonSaveCodec
+ */
+public interface SaveCodec {
+    /**
+     * Called on the save thread with copies made by {@link Save#save(Simulation)}, or with the game's own objects when
+     * nothing else is using them
+     */
+    byte[] encode(Save.SaveData saveData);
+
+    Save.SaveData decode(InputStream input) throws IOException;
+}
@@ -0,0 +1,354 @@
+package com.miv;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.PooledEngine;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Timer;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+
+import components.HitboxComponent;
+import components.PlayerComponent;
+import factories.AttackPatternFactory;
+import map.Map;
+import map.MapArea;
+import map.mods.MapAreaModifier;
+import systems.AISystem;
+import systems.BulletSystem;
+import systems.CollisionMatrix;
+import systems.ExpirationSystem;
+import systems.MovementSystem;
+import systems.RenderSystem;
+import systems.ShootingSystem;
+import utils.CircleHitbox;
+import utils.Point;
+
+/**
+ * Owns the engine, map, player and every system needed to advance the game world, without depending on screens,
+ * rendering or audio. {@link Main} drives one of these every frame; headless runs can create their own and call
+ * {@link #step(float)} directly.
+ */
+public class Simulation {
+    /**
+     * Hooks for everything outside the game world (saving, UI, high scores) that the simulation needs to notify
+     */
+    public interface Listener {
+        void save();
+        void addCoins(int coins);
+        void onPlayerDeath(float score);
+        void updateScreenActors();
+        /**
+         * Called when the last enemy in a map area is killed
+         */
+        void onMapAreaCleared(MapArea mapArea);
+        /**
+         * Called when the player takes the stairs; enterNewFloor must be run eventually to actually change floors
+         */
+        void onEnterNewFloor(Timer.Task enterNewFloor);
+    }
+
+    /**
+     * Listener that does nothing except change floors immediately. Used when running without a {@link Main}.
+     */
+    public static class ListenerAdapter implements Listener {
+        @Override
+        public void save() {}
+
+        @Override
+        public void addCoins(int coins) {}
+
+        @Override
+        public void onPlayerDeath(float score) {}
+
+        @Override
+        public void updateScreenActors() {}
+
+        @Override
+        public void onMapAreaCleared(MapArea mapArea) {}
+
+        @Override
+        public void onEnterNewFloor(Timer.Task enterNewFloor) {
+            enterNewFloor.run();
+        }
+    }
+
+    private Listener listener;
+    private PooledEngine engine;
+    private AISystem aiSystem;
+    private BulletSystem bulletSystem;
+    private MovementSystem movementSystem;
+    private ShootingSystem shootingSystem;
+    // Generates map areas ahead of time; see Map#pregenerateAdjacentMapAreas
+    private AsyncExecutor mapGenerationExecutor = new AsyncExecutor(1);
+
+    private Map map;
+    private Entity player;
+    private HitboxComponent playerHitbox;
+    private boolean playerDead;
+
+    // Null when running headless
+    private Camera camera;
+    private AssetManager assetManager;
+
+    public Simulation(Listener listener) {
+        this.listener = listener;
+        engine = new PooledEngine(20, 100, 20, 100);
+
+        aiSystem = new AISystem();
+        engine.addSystem(aiSystem);
+        movementSystem = new MovementSystem(this, engine, map, player);
+        // Bullet hits are processed by MovementSystem so bullets must be updated before it
+        bulletSystem = new BulletSystem(movementSystem, map);
+        engine.addSystem(bulletSystem);
+        engine.addSystem(movementSystem);
+        shootingSystem = new ShootingSystem(map, engine);
+        engine.addSystem(shootingSystem);
+        engine.addSystem(new ExpirationSystem());
+        Profiler.setEngine(engine);
+        PoolStatistics.setEngine(engine);
+    }
+
+    /**
+     * Replaces all entities with a new default player and a new map, without touching save data
+     */
+    public void newGame() {
+        engine.removeAllEntities();
+        bulletSystem.clear();
+
+        setPlayer(createDefaultPlayer(engine));
+        setMap(new Map(this));
+        engine.addEntity(player);
+        playerHitbox.setLastFacedAngle(MathUtils.PI / 2f);
+        playerHitbox.setTargetAngle(MathUtils.PI / 2f);
+        playerDead = false;
+        map.enterNewArea(engine, player, (int)map.getFocus().x, (int)map.getFocus().y, true);
+    }
+
+    /**
+     * Advances the simulation by one timestep
+     */
+    public void step(float deltaTime) {
+        if(!playerDead) {
+            playerHitbox.update(deltaTime);
+            engine.update(deltaTime);
+            map.updateEnteringNewArea();
+            Profiler.begin(Profiler.Section.MAP_AREA_UPDATE);
+            map.getCurrentArea().update(deltaTime);
+            Profiler.end(Profiler.Section.MAP_AREA_UPDATE);
+        } else {
+            // Update all systems except for ShootingSystem
+            aiSystem.update(deltaTime);
+            bulletSystem.update(deltaTime);
+            movementSystem.update(deltaTime);
+        }
+    }
+
+    public void onPlayerDeath(float score) {
+        playerDead = true;
+        listener.onPlayerDeath(score);
+    }
+
+    public static Entity createDefaultPlayer(PooledEngine engine) {
+        Entity player = engine.createEntity();
+        HitboxComponent hitboxComponent = engine.createComponent(HitboxComponent.class);
+        hitboxComponent.setMaxSpeed(Options.PLAYER_BASE_MAX_SPEED);
+        hitboxComponent.setCollisionLayer(CollisionMatrix.PLAYER);
+        CircleHitbox c = CircleHitbox.obtain();
+        c.setHitboxTextureType(RenderSystem.HitboxTextureType.PLAYER);
+        c.setRadius(Options.DEFAULT_NEW_CIRCLE_RADIUS);
+        c.setBaseMaxHealth(Options.DEFAULT_NEW_CIRCLE_MAX_HEALTH);
+        c.setHealth(c.getMaxHealth());
+        c.setAttackPattern(AttackPatternFactory.getAttackPattern("PLAYER_DEFAULT_1"));
+        hitboxComponent.addCircle(c, true);
+        hitboxComponent.recenterOriginalCirclePositions();
+        player.add(hitboxComponent);
+        player.add(engine.createComponent(PlayerComponent.class));
+        return player;
+    }
+
+    //------------------------------------------------ Input ------------------------------------------------
+
+    /**
+     * @param angle - direction of movement in radians
+     * @param speedFraction - fraction of the player's max speed, from 0 to 1
+     */
+    public void setPlayerMovement(float angle, float speedFraction) {
+        if(!playerHitbox.isTravelling()) {
+            float speed = MathUtils.clamp(speedFraction, 0f, 1f) * playerHitbox.getMaxSpeed();
+            playerHitbox.setVelocity(speed * MathUtils.cos(angle), speed * MathUtils.sin(angle));
+        }
+    }
+
+    public void stopPlayerMovement() {
+        if(!playerHitbox.isTravelling()) {
+            playerHitbox.setVelocity(0, 0);
+        }
+    }
+
+    /**
+     * @param angle - direction the player faces and shoots toward, in radians
+     */
+    public void setPlayerAimAngle(float angle) {
+        playerHitbox.setTargetAngle(angle);
+        playerHitbox.setAimingAngle(angle);
+    }
+
+    public void setPlayerShooting(boolean shooting) {
+        playerHitbox.setIsShooting(shooting);
+    }
+
+    /**
+     * Starts travelling to the adjacent map area in the given direction
+     */
+    public void travel(EntityActions.Direction direction) {
+        if(!playerHitbox.isTravelling()) {
+            Point focus = map.getFocus();
+            EntityActions.playerEnterNewMapArea(player, direction, new Point(focus.x + direction.getDeltaX(), focus.y + direction.getDeltaY()));
+        }
+    }
+
+    //------------------------------------------------ Queries ------------------------------------------------
+
+    public Point getPlayerOrigin() {
+        return playerHitbox.getOrigin();
+    }
+
+    public boolean isPlayerTravelling() {
+        return playerHitbox.isTravelling();
+    }
+
+    public float getPlayerHealth() {
+        float health = 0;
+        for(CircleHitbox c : playerHitbox.getCircles()) {
+            health += c.getHealth();
+        }
+        return health;
+    }
+
+    public float getPlayerPixelPoints() {
+        return Mappers.player.get(player).getPixelPoints();
+    }
+
+    public float getScore() {
+        return Mappers.player.get(player).getScore();
+    }
+
+    public int getEnemyCount() {
+        return map.getCurrentArea().getEnemyCount();
+    }
+
+    public int getBulletCount() {
+        return bulletSystem.getBulletCount();
+    }
+
+    public int getEntityCount() {
+        return engine.getEntities().size();
+    }
+
+    public int getFloor() {
+        return map.getFloor();
+    }
+
+    public Point getMapAreaPosition() {
+        return map.getFocus();
+    }
+
+    //------------------------------------------------ Getters/setters ------------------------------------------------
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    public PooledEngine getEngine() {
+        return engine;
+    }
+
+    public MovementSystem getMovementSystem() {
+        return movementSystem;
+    }
+
+    public ShootingSystem getShootingSystem() {
+        return shootingSystem;
+    }
+
+    public BulletSystem getBulletSystem() {
+        return bulletSystem;
+    }
+
+    public AsyncExecutor getMapGenerationExecutor() {
+        return mapGenerationExecutor;
+    }
+
+    public Map getMap() {
+        return map;
+    }
+
+    public void setMap(Map map) {
+        // Keep the old map's pending generators from holding up the new map's on the generation thread
+        if(this.map != null && this.map != map) {
+            this.map.cancelPregeneratedMapAreas();
+        }
+        this.map = map;
+        map.setSimulation(this);
+        movementSystem.setMap(map);
+        bulletSystem.setMap(map);
+        shootingSystem.setMap(map);
+        map.setCurrentArea(map.getFocus());
+    }
+
+    public Entity getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(Entity player) {
+        this.player = player;
+        playerHitbox = Mappers.hitbox.get(player);
+        movementSystem.setPlayer(player);
+        bulletSystem.setPlayer(player);
+        shootingSystem.setPlayer(player);
+        if(map != null) {
+            for(MapArea area : map.getAllSavedMapAreas()) {
+                if(area.getMods() != null) {
+                    for (MapAreaModifier mod : area.getMods()) {
+                        mod.setPlayer(player);
+                    }
+                }
+            }
+        }
+    }
+
+    public void setMapAreaModFields() {
+        for(MapArea area : map.getAllSavedMapAreas()) {
+            for(MapAreaModifier m : area.getMods()) {
+                m.setMapArea(area);
+                m.setPlayer(player);
+                m.setAssetManager(assetManager);
+                m.setEngine(engine);
+            }
+        }
+    }
+
+    public boolean isPlayerDead() {
+        return playerDead;
+    }
+
+    public void setPlayerDead(boolean playerDead) {
+        this.playerDead = playerDead;
+    }
+
+    public Camera getCamera() {
+        return camera;
+    }
+
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    public AssetManager getAssetManager() {
+        return assetManager;
+    }
+
+    public void setAssetManager(AssetManager assetManager) {
+        this.assetManager = assetManager;
+    }
+}
@@ -7,8 +7,30 @@ import com.badlogic.gdx.utils.Pool;
  * Created by Miv on 5/23/2017.
  */
 public class EnemyComponent implements Component, Pool.Poolable {
+    // See EntityCreationData#getGenerationIndex()
+    private int generationIndex = -1;
+    // Number of circles the enemy spawned with
+    private int spawnCircleCount;
+
     @Override
     public void reset() {
+        generationIndex = -1;
+        spawnCircleCount = 0;
+    }
+
+    public int getGenerationIndex() {
+        return generationIndex;
+    }
+
+    public void setGenerationIndex(int generationIndex) {
+        this.generationIndex = generationIndex;
+    }
+
+    public int getSpawnCircleCount() {
+        return spawnCircleCount;
+    }
 
+    public void setSpawnCircleCount(int spawnCircleCount) {
+        this.spawnCircleCount = spawnCircleCount;
     }
-}
\ No newline at end of file
+}
@@ -8,6 +8,10 @@ import com.badlogic.ashley.utils.ImmutableArray;
 import com.badlogic.gdx.math.Circle;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BinaryHeap;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IdentityMap;
 import com.badlogic.gdx.utils.Pool;
 import com.miv.AttackPart;
 import com.miv.AttackPattern;
@@ -18,12 +22,12 @@ import com.miv.Options;
 import java.util.ArrayList;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Set;
 
 import ai.AI;
 import map.EntityCreationData;
 import map.Map;
+import systems.CollisionMatrix;
 import utils.CircleHitbox;
 import utils.Point;
 import utils.Utils;
@@ -39,8 +43,37 @@ public class HitboxComponent implements Component, Pool.Poolable {
         public EntityCreationData aiData;
     }
 
+    // Attack clock is moved back to 0 after this many seconds so that it does not lose float precision
+    private static final float ATTACK_CLOCK_REBASE_TIME = 1000f;
+
+    /**
+     * A circle in the graph of circles near each other; see {@link HitboxComponent#circleNodes}.
+     * Circles with attack patterns are also kept in {@link HitboxComponent#attackSchedule}, with the heap value being the
+     * {@link HitboxComponent#attackClock} time at which their next attack part is due.
+     */
+    private static class CircleNode extends BinaryHeap.Node {
+        private CircleHitbox circle;
+        // Circles touching this one
+        private Array<CircleNode> contacts = new Array<CircleNode>(false, 4);
+        // Circles within aura range of this one, whether or not either has an aura
+        private Array<CircleNode> auraNeighbors = new Array<CircleNode>(false, 8);
+        // Connected component found by the last HitboxComponent#splitIntoSubEntities call
+        private int component;
+        // Attack clock time at which the current iteration of the circle's attack pattern started
+        private float cycleStart;
+        private boolean scheduled;
+
+        private CircleNode(CircleHitbox circle) {
+            super(0);
+            this.circle = circle;
+        }
+    }
+
     // Position of hitbox
     private Point origin;
+    // Position of hitbox at the start of the last simulation tick; used to interpolate rendering between ticks
+    private Point previousOrigin;
+    private boolean hasPreviousOrigin;
     // Velocity of hitbox, in meters/sec
     private Vector2 velocity;
     // Secondary velocity (added to primary) from environment; unaffected by speed limit
@@ -51,6 +84,13 @@ public class HitboxComponent implements Component, Pool.Poolable {
     private float accelerationTime;
     // Circle positions are relative to components.HitboxComponent#origin
     private ArrayList<CircleHitbox> circles;
+    // Graph of which circles touch or are within aura range of each other, kept up to date as circles are added and removed
+    // Circles only ever move together, so the graph never changes otherwise
+    private IdentityMap<CircleHitbox, CircleNode> circleNodes;
+    // Time spent shooting; a circle's attack pattern time is only brought up to date when its next attack part is due
+    private float attackClock;
+    // Circles with attack patterns ordered by when their next attack part is due
+    private BinaryHeap<CircleNode> attackSchedule;
     // If true, the hitbox will not make contact with anything
     private boolean intangible;
     // In radians
@@ -75,6 +115,9 @@ public class HitboxComponent implements Component, Pool.Poolable {
     // If true, hitbox will not push away other hitboxes and will not be pushed away by other hitboxes
     private boolean ignoreGravity;
 
+    // One of the layers in CollisionMatrix, which decides what the hitbox interacts with
+    private int collisionLayer;
+
     // Indicates whether or not the entity is travelling to a new location, ignoring all obstacles
     private boolean travelling;
     // Time spent travelling so far
@@ -97,78 +140,199 @@ public class HitboxComponent implements Component, Pool.Poolable {
 
     public HitboxComponent() {
         origin = new Point();
+        previousOrigin = new Point();
         velocity = new Vector2();
         velocity2 = new Vector2();
         acceleration = new Vector2();
         circles = new ArrayList<CircleHitbox>();
+        circleNodes = new IdentityMap<CircleHitbox, CircleNode>();
+        attackSchedule = new BinaryHeap<CircleNode>();
         circleRemovalQueue = new ArrayList<CircleHitbox>();
     }
 
+    /**
+     * Returns all circles still in the hitbox to the {@link CircleHitbox} pool, so circles that are still needed
+     * elsewhere must be taken out with {@link #clearCircles()} before the entity is removed
+     */
     @Override
     public void reset() {
         origin.x = 0;
         origin.y = 0;
+        previousOrigin.x = 0;
+        previousOrigin.y = 0;
+        hasPreviousOrigin = false;
         velocity.set(0, 0);
         velocity2.set(0, 0);
         acceleration.set(0, 0);
         accelerationTime = 0;
+        for(CircleHitbox c : circles) {
+            CircleHitbox.free(c);
+        }
         circles.clear();
-        gravitationalRadius = 0;
-        circleRemovalQueue.clear();
-        isShooting = false;
+        circleNodes.clear();
+        attackClock = 0;
+        attackSchedule.clear();
         intangible = false;
-        ignoreSpeedLimit = false;
-        maxSpeed = 0;
+        lastFacedAngle = 0;
+        targetAngle = 0;
+        aimingAngle = 0;
+        isShooting = false;
+        circleRemovalQueue.clear();
+        gravitationalRadius = 0;
+        disabledMovement = false;
+        invertMovementAndShooting = false;
+        ignoreGravity = false;
+        collisionLayer = CollisionMatrix.NONE;
         travelling = false;
         travellingTime = 0;
         travellingFlag = false;
+        travellingFromSameMapArea = false;
         travellingDirectionX = 0;
         travellingDirectionY = 0;
         travellingVelocityX = 0;
         travellingVelocityY = 0;
         travellingDestination = null;
         travellingMapAreaDestination = null;
+        ignoreSpeedLimit = false;
+        maxSpeed = 0;
+        baseMaxSpeed = 0;
+        subEntityStats = null;
     }
 
     /**
+     * Fires every attack part that has come due since the last call, including ones missed during a long frame.
      * Returns true if a bullet is fired.
      */
     public boolean update(PooledEngine engine, Entity parent, Entity player, float mapAreaRadius, float deltaTime) {
+        if(circleNodes.size != circles.size()) {
+            rebuildCircleNodes();
+        }
+
+        attackClock += deltaTime;
         boolean firedBullet = false;
+        while(attackSchedule.size > 0 && attackSchedule.peek().getValue() <= attackClock) {
+            CircleNode node = attackSchedule.peek();
+            AttackPattern attackPattern = node.circle.getAttackPattern();
+            if(attackPattern == null || attackPattern.getDuration() <= 0) {
+                attackSchedule.pop();
+                node.scheduled = false;
+                continue;
+            }
+            if(fireAttackPattern(engine, parent, player, node, attackPattern, mapAreaRadius)) {
+                firedBullet = true;
+            }
+            attackSchedule.setValue(node, node.cycleStart + getNextAttackPartTime(node.circle));
+        }
 
-        for (CircleHitbox c : circles) {
-            AttackPattern attackPattern = c.getAttackPattern();
-            if (attackPattern != null) {
-                boolean[] fired = c.getFired();
-                c.setTime(c.getTime() + deltaTime);
-
-                int index = 0;
-                for (AttackPart ap : attackPattern.getAttackParts()) {
-                    if (!fired[index] && c.getTime() >= ap.getDelay()) {
-                        if(invertMovementAndShooting) {
-                            ap.fire(engine, parent, player, origin.x + c.x, origin.y + c.y, aimingAngle + attackPattern.getAngleOffset() + MathUtils.PI, mapAreaRadius);
-                        } else {
-                            ap.fire(engine, parent, player, origin.x + c.x, origin.y + c.y, aimingAngle + attackPattern.getAngleOffset(), mapAreaRadius);
-                        }
-                        firedBullet = true;
-                        fired[index] = true;
-                    } else {
-                        break;
-                    }
-                    index++;
-                }
+        if(attackClock > ATTACK_CLOCK_REBASE_TIME) {
+            syncAttackPatternTimes();
+            attackClock = 0;
+            rescheduleAttackPatterns();
+        }
+        return firedBullet;
+    }
 
-                if (c.getTime() >= attackPattern.getDuration()) {
-                    // Compensates for lag but will only fire one bullet max no matter how big the lag
-                    c.resetAttackPattern();
-                    c.setTime(c.getTime() % attackPattern.getDuration());
-                }
-            }
+    /**
+     * Fires all of a circle's attack parts that are due, going through as many iterations of the attack pattern as
+     * needed to catch up to {@link #attackClock}
+     */
+    private boolean fireAttackPattern(PooledEngine engine, Entity parent, Entity player, CircleNode node, AttackPattern attackPattern, float mapAreaRadius) {
+        CircleHitbox c = node.circle;
+        ArrayList<AttackPart> attackParts = attackPattern.getAttackParts();
+        boolean[] fired = c.getFired();
+        float angle = aimingAngle + attackPattern.getAngleOffset();
+        if(invertMovementAndShooting) {
+            angle += MathUtils.PI;
         }
 
+        // Due times are compared the same way they are calculated for attackSchedule so that rounding cannot make
+        // a circle come due without anything being due
+        boolean firedBullet = false;
+        while(true) {
+            // Attack parts are in order of delay, so the ones already fired come first and the due ones right after
+            int start = 0;
+            while(start < fired.length && fired[start]) {
+                start++;
+            }
+            int end = start;
+            while(end < fired.length && node.cycleStart + attackParts.get(end).getDelay() <= attackClock) {
+                fired[end] = true;
+                end++;
+            }
+            if(end > start) {
+                // Bullets fired late are moved ahead by however far they would have travelled in that time
+                attackPattern.fireBatch(engine, parent, player, origin.x + c.x, origin.y + c.y, angle, mapAreaRadius, start, end, attackClock - node.cycleStart);
+                firedBullet = true;
+            }
+
+            if(node.cycleStart + attackPattern.getDuration() > attackClock) {
+                break;
+            }
+            c.resetAttackPattern();
+            node.cycleStart += attackPattern.getDuration();
+        }
+        c.setTime(attackClock - node.cycleStart);
         return firedBullet;
     }
 
+    /**
+     * Time since the start of the attack pattern's current iteration at which the circle next needs to be updated
+     */
+    private static float getNextAttackPartTime(CircleHitbox c) {
+        AttackPattern attackPattern = c.getAttackPattern();
+        boolean[] fired = c.getFired();
+        for(int i = 0; i < fired.length; i++) {
+            if(!fired[i]) {
+                return Math.min(attackPattern.getAttackParts().get(i).getDelay(), attackPattern.getDuration());
+            }
+        }
+        return attackPattern.getDuration();
+    }
+
+    /**
+     * Adds a circle to {@link #attackSchedule} or moves it to the right place, starting from the circle's current attack pattern time
+     */
+    private void scheduleAttackPattern(CircleNode node) {
+        AttackPattern attackPattern = node.circle.getAttackPattern();
+        if(attackPattern == null || attackPattern.getDuration() <= 0) {
+            unscheduleAttackPattern(node);
+            return;
+        }
+        node.cycleStart = attackClock - node.circle.getTime();
+        float nextFireTime = node.cycleStart + getNextAttackPartTime(node.circle);
+        if(node.scheduled) {
+            attackSchedule.setValue(node, nextFireTime);
+        } else {
+            attackSchedule.add(node, nextFireTime);
+            node.scheduled = true;
+        }
+    }
+
+    private void unscheduleAttackPattern(CircleNode node) {
+        if(node.scheduled) {
+            node.circle.setTime(attackClock - node.cycleStart);
+            attackSchedule.remove(node);
+            node.scheduled = false;
+        }
+    }
+
+    private void rescheduleAttackPatterns() {
+        for(CircleNode node : circleNodes.values()) {
+            scheduleAttackPattern(node);
+        }
+    }
+
+    /**
+     * Brings every scheduled circle's attack pattern time up to date with {@link #attackClock}
+     */
+    private void syncAttackPatternTimes() {
+        for(CircleNode node : circleNodes.values()) {
+            if(node.scheduled) {
+                node.circle.setTime(attackClock - node.cycleStart);
+            }
+        }
+    }
+
     public void recenterOriginalCirclePositions() {
         // Find left/top/right/bottom bounds of the group of circles
         CircleHitbox c1 = circles.get(0);
@@ -238,52 +402,83 @@ public class HitboxComponent implements Component, Pool.Poolable {
         gravitationalRadius = Math.max((Math.abs(left) + Math.abs(right))/2f, (Math.abs(top) + Math.abs(bottom))/2f) + Options.GRAVITATIONAL_RADIUS_PADDING;
     }
 
-    public Entity splitIntoSubEntities(PooledEngine engine, Entity self) {
+    /**
+     * Turns every group of connected circles except the one with the largest total radius into its own sub-entity
+     * @param subEntities the new sub-entities are added to this
+     */
+    public void splitIntoSubEntities(PooledEngine engine, Entity self, ArrayList<Entity> subEntities) {
         // Disable subentity splitting for player
         if(Mappers.player.has(self)) {
-            return null;
+            return;
         }
 
-        // Get all circles connected to the first circle hitbox
-        HashSet<CircleHitbox> cSet = new HashSet<CircleHitbox>();
-        addConnectedCircles(0, cSet);
-
-        if(cSet.size() != circles.size()) {
-            ArrayList<CircleHitbox> subEntityCircles = new ArrayList<CircleHitbox>();
-            ArrayList<CircleHitbox> removalQueue = new ArrayList<CircleHitbox>();
-
-            float totalRadius1 = 0f;
-            float totalRadius2 = 0f;
+        if(circleNodes.size != circles.size()) {
+            rebuildCircleNodes();
+        }
 
-            // Turn set of smaller circles into subentity
-            for(CircleHitbox c : circles) {
-                if(!cSet.contains(c)) {
-                    totalRadius1 += c.radius;
-                } else {
-                    totalRadius2 += c.radius;
-                }
+        // Label connected components with a depth-first search over the contact graph
+        for(CircleNode node : circleNodes.values()) {
+            node.component = -1;
+        }
+        Array<CircleNode> stack = new Array<CircleNode>();
+        FloatArray componentRadii = new FloatArray();
+        for(CircleHitbox c : circles) {
+            CircleNode start = circleNodes.get(c);
+            if(start.component != -1) {
+                continue;
             }
-            if(totalRadius1 < totalRadius2) {
-                for(CircleHitbox c : circles) {
-                    if(!cSet.contains(c)) {
-                        subEntityCircles.add(c);
-                        removalQueue.add(c);
-                    }
-                }
-            } else {
-                for(CircleHitbox c : circles) {
-                    if(cSet.contains(c)) {
-                        subEntityCircles.add(c);
-                        removalQueue.add(c);
+            int component = componentRadii.size;
+            float totalRadius = 0f;
+            start.component = component;
+            stack.add(start);
+            while(stack.size > 0) {
+                CircleNode node = stack.pop();
+                totalRadius += node.circle.radius;
+                for(CircleNode contact : node.contacts) {
+                    if(contact.component == -1) {
+                        contact.component = component;
+                        stack.add(contact);
                     }
                 }
             }
-            for(CircleHitbox c : removalQueue) {
-                circles.remove(c);
+            componentRadii.add(totalRadius);
+        }
+
+        if(componentRadii.size <= 1) {
+            return;
+        }
+
+        // This entity keeps the biggest component
+        int keptComponent = 0;
+        for(int i = 1; i < componentRadii.size; i++) {
+            if(componentRadii.get(i) > componentRadii.get(keptComponent)) {
+                keptComponent = i;
             }
+        }
 
+        ArrayList<ArrayList<CircleHitbox>> subEntityCircles = new ArrayList<ArrayList<CircleHitbox>>(componentRadii.size);
+        for(int i = 0; i < componentRadii.size; i++) {
+            subEntityCircles.add(i == keptComponent ? null : new ArrayList<CircleHitbox>());
+        }
+        ArrayList<CircleHitbox> keptCircles = new ArrayList<CircleHitbox>();
+        for(CircleHitbox c : circles) {
+            int component = circleNodes.get(c).component;
+            if(component == keptComponent) {
+                keptCircles.add(c);
+            } else {
+                subEntityCircles.get(component).add(c);
+                removeCircleNode(c);
+            }
+        }
+        circles.clear();
+        circles.addAll(keptCircles);
+
+        for(ArrayList<CircleHitbox> componentCircles : subEntityCircles) {
+            if(componentCircles == null) {
+                continue;
+            }
             //TODO: add to this as more fields added to subentity stats
-            Entity e = Utils.cloneEnemy(engine, self, subEntityCircles, (subEntityStats == null || subEntityStats.aiData == null));
+            Entity e = Utils.cloneEnemy(engine, self, componentCircles, (subEntityStats == null || subEntityStats.aiData == null));
             if(subEntityStats != null) {
                 Mappers.hitbox.get(e).setMaxSpeed(subEntityStats.maxSpeed);
                 if(subEntityStats.aiData != null) {
@@ -291,27 +486,84 @@ public class HitboxComponent implements Component, Pool.Poolable {
                 }
             }
             Mappers.hitbox.get(e).recenterOriginalCirclePositions();
-            return e;
-        } else {
-            return null;
+            subEntities.add(e);
         }
     }
 
-    private void addConnectedCircles(int cIndex, HashSet<CircleHitbox> set) {
-        if(cIndex < circles.size()) {
-            CircleHitbox c = circles.get(cIndex);
-            set.add(c);
-            for (int a = 0; a < circles.size(); a++) {
-                CircleHitbox c2 = circles.get(a);
-                // Add 1f to distance check to account for inaccuracies
-                if (!set.contains(c2) && !c.equals(c2) && Utils.getDistance(c.x, c.y, c2.x, c2.y) < c.radius + c2.radius + 1f) {
-                    set.add(c2);
-                    addConnectedCircles(a, set);
+    /**
+     * For when circles were added or removed without going through this component
+     */
+    private void rebuildCircleNodes() {
+        syncAttackPatternTimes();
+        circleNodes.clear();
+        attackSchedule.clear();
+        for(CircleHitbox c : circles) {
+            addCircleNode(c);
+        }
+        for(CircleNode node : circleNodes.values()) {
+            recalculateAuraBuffs(node);
+        }
+    }
+
+    /**
+     * Links a circle to the circles near it and schedules its attack pattern without updating any aura buffs
+     */
+    private CircleNode addCircleNode(CircleHitbox circle) {
+        CircleNode node = new CircleNode(circle);
+        for(CircleNode other : circleNodes.values()) {
+            CircleHitbox c2 = other.circle;
+            float distance = Utils.getDistance(circle.x, circle.y, c2.x, c2.y);
+            // Add 1f to distance check to account for inaccuracies
+            if(distance < circle.radius + c2.radius + 1f) {
+                node.contacts.add(other);
+                other.contacts.add(node);
+            }
+            if(distance < circle.radius + c2.radius + Options.CIRCLE_AURA_RANGE) {
+                node.auraNeighbors.add(other);
+                other.auraNeighbors.add(node);
+            }
+        }
+        circleNodes.put(circle, node);
+        scheduleAttackPattern(node);
+        return node;
+    }
+
+    /**
+     * Unlinks a circle from the graph and takes its aura buffs away from the circles near it
+     */
+    private void removeCircleNode(CircleHitbox circle) {
+        CircleNode node = circleNodes.remove(circle);
+        if(node != null) {
+            unscheduleAttackPattern(node);
+            for(CircleNode contact : node.contacts) {
+                contact.contacts.removeValue(node, true);
+            }
+            boolean hasAura = circle.getSpecialization().hasAura();
+            for(CircleNode neighbor : node.auraNeighbors) {
+                neighbor.auraNeighbors.removeValue(node, true);
+                if(hasAura) {
+                    recalculateAuraBuffs(neighbor);
                 }
             }
         }
     }
 
+    /**
+     * Same as {@link Utils#setAuraBuffsForAllCircles(ArrayList)} but only for one circle
+     */
+    private void recalculateAuraBuffs(CircleNode node) {
+        CircleHitbox c = node.circle;
+        c.removeAuraBuffs();
+        if(c.getSpecialization().hasAura()) {
+            c.receiveAuraBuffs(c);
+        }
+        for(CircleNode neighbor : node.auraNeighbors) {
+            if(neighbor.circle.getSpecialization().hasAura()) {
+                c.receiveAuraBuffs(neighbor.circle);
+            }
+        }
+    }
+
     public float getTotalMissingHealth() {
         float missing = 0;
         for(CircleHitbox c : circles) {
@@ -379,7 +631,10 @@ public class HitboxComponent implements Component, Pool.Poolable {
      * Clears all circles without calling {@link HitboxComponent#removeCircle(PooledEngine, Entity, CircleHitbox, boolean)}
      */
     public void clearCircles() {
+        syncAttackPatternTimes();
         circles.clear();
+        circleNodes.clear();
+        attackSchedule.clear();
     }
 
     /**
@@ -466,6 +721,32 @@ public class HitboxComponent implements Component, Pool.Poolable {
         origin.y = y;
     }
 
+    /**
+     * Called at the start of every simulation tick, and after teleporting so that the hitbox is not drawn in between
+     */
+    public void storePreviousOrigin() {
+        previousOrigin.x = origin.x;
+        previousOrigin.y = origin.y;
+        hasPreviousOrigin = true;
+    }
+
+    /**
+     * @param alpha - fraction of a simulation tick elapsed since the last tick, from 0 to 1
+     */
+    public float getInterpolatedOriginX(float alpha) {
+        if(!hasPreviousOrigin) {
+            return origin.x;
+        }
+        return previousOrigin.x + (origin.x - previousOrigin.x) * alpha;
+    }
+
+    public float getInterpolatedOriginY(float alpha) {
+        if(!hasPreviousOrigin) {
+            return origin.y;
+        }
+        return previousOrigin.y + (origin.y - previousOrigin.y) * alpha;
+    }
+
     public float getMaxSpeed() {
         return maxSpeed;
     }
@@ -496,6 +777,7 @@ public class HitboxComponent implements Component, Pool.Poolable {
             for (CircleHitbox c : circles) {
                 c.setTime(0);
             }
+            rescheduleAttackPatterns();
         }
     }
 
@@ -504,13 +786,40 @@ public class HitboxComponent implements Component, Pool.Poolable {
     }
 
     public void addCircle(CircleHitbox circle, boolean setOriginal) {
+        CircleNode node = addCircleNode(circle);
         circles.add(circle);
         if(setOriginal) {
             circle.setOriginalPosX(circle.x);
             circle.setOriginalPosY(circle.y);
         }
 
-        Utils.setAuraBuffsForAllCircles(circles);
+        // Only circles within aura range of the new one can have their aura buffs changed
+        recalculateAuraBuffs(node);
+        if(circle.getSpecialization().hasAura()) {
+            for(CircleNode neighbor : node.auraNeighbors) {
+                recalculateAuraBuffs(neighbor);
+            }
+        }
+        recalculateSpeedBoost();
+    }
+
+    /**
+     * Same as calling {@link #addCircle(CircleHitbox, boolean)} for every circle, but aura buffs and speed boost are
+     * only recalculated once at the end
+     */
+    public void addCircles(ArrayList<CircleHitbox> newCircles, boolean setOriginal) {
+        for(CircleHitbox circle : newCircles) {
+            addCircleNode(circle);
+            circles.add(circle);
+            if(setOriginal) {
+                circle.setOriginalPosX(circle.x);
+                circle.setOriginalPosY(circle.y);
+            }
+        }
+
+        for(CircleNode node : circleNodes.values()) {
+            recalculateAuraBuffs(node);
+        }
         recalculateSpeedBoost();
     }
 
@@ -527,16 +836,19 @@ public class HitboxComponent implements Component, Pool.Poolable {
     }
 
     public ArrayList<Entity> removeCircle(PooledEngine engine, Entity self, CircleHitbox c, boolean transferPpToBosses) {
-        circles.remove(c);
+        // Circles are compared by position and radius in ArrayList#remove(Object), so find c itself
+        for(int i = 0; i < circles.size(); i++) {
+            if(circles.get(i) == c) {
+                circles.remove(i);
+                break;
+            }
+        }
+        // Also takes away c's aura buffs
+        removeCircleNode(c);
 
         if(circles.size() > 0) {
             ArrayList<Entity> subEntities = new ArrayList<Entity>();
-
-            Entity subEntity = splitIntoSubEntities(engine, self);
-            while(subEntity != null) {
-                subEntities.add(subEntity);
-                subEntity = splitIntoSubEntities(engine, self);
-            }
+            splitIntoSubEntities(engine, self, subEntities);
             recenterOriginalCirclePositions();
 
             // Transfer part of pp to all other boss entities' circles' attack patterns evenly
@@ -564,8 +876,6 @@ public class HitboxComponent implements Component, Pool.Poolable {
                 }
             }
 
-            // Recalculate aura buffs
-            Utils.setAuraBuffsForAllCircles(circles);
             // Recalculate speed boost
             recalculateSpeedBoost();
 
@@ -631,6 +941,14 @@ public class HitboxComponent implements Component, Pool.Poolable {
         this.ignoreGravity = ignoreGravity;
     }
 
+    public int getCollisionLayer() {
+        return collisionLayer;
+    }
+
+    public void setCollisionLayer(int collisionLayer) {
+        this.collisionLayer = collisionLayer;
+    }
+
     public SubEntityStats getSubEntityStats() {
         return subEntityStats;
     }
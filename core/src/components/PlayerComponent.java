@@ -3,10 +3,11 @@ package components;
 import com.badlogic.ashley.core.Component;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.utils.Pool;
-import com.miv.Main;
 import com.miv.Options;
+import com.miv.Simulation;
 
 import systems.RenderSystem;
+import utils.NumberFormatter;
 
 /**
  * Created by Miv on 5/23/2017.
@@ -19,6 +20,9 @@ public class PlayerComponent implements Component, Pool.Poolable {
     private float score;
 
     private transient RenderSystem.FloatingText lastPpFloatingText;
+    // Floating texts are pooled, so lastPpFloatingText is only still this player's if its generation has not changed
+    private transient int lastPpFloatingTextGeneration;
+    private transient StringBuilder ppGainText = new StringBuilder();
 
     @Override
     public void reset() {
@@ -27,61 +31,37 @@ public class PlayerComponent implements Component, Pool.Poolable {
         customizationRadius = Options.INITIAL_PLAYER_CUSTOMIZATION_RADIUS;
     }
 
+    /**
+     * Copy of the saved fields
+     */
+    public PlayerComponent clone() {
+        PlayerComponent copy = new PlayerComponent();
+        copy.customizationRadius = customizationRadius;
+        copy.pixelPoints = pixelPoints;
+        copy.score = score;
+        return copy;
+    }
+
     public float getPixelPoints() {
         return pixelPoints;
     }
 
-    public void addPixelPoints(Main main, float pixelPoints, boolean contributesToScore) {
+    public void addPixelPoints(Simulation simulation, float pixelPoints, boolean contributesToScore) {
         this.pixelPoints += pixelPoints;
-        main.updateScreenActors();
+        simulation.getListener().updateScreenActors();
 
         // Create text from the player that displays gain in pp
-        if(Options.SHOW_PP_GAIN_FLOATING_TEXT && pixelPoints != 0) {
-            if(main.getRenderSystem().containsFloatingText(lastPpFloatingText)) {
-                float newPp = (Float)(lastPpFloatingText.getUserObject()) + pixelPoints;
-                if (newPp > 0) {
-                    if (pixelPoints < 0.1f) {
-                        lastPpFloatingText.setText("+" + String.format("%.3f", newPp) + "pp");
-                    } else if (pixelPoints < 10) {
-                        lastPpFloatingText.setText("+" + String.format("%.2f", newPp) + "pp");
-                    } else if (pixelPoints < 100) {
-                        lastPpFloatingText.setText("+" + String.format("%.1f", newPp) + "pp");
-                    } else {
-                        lastPpFloatingText.setText("+" + String.valueOf(Math.round(pixelPoints)) + "pp");
-                    }
-                } else {
-                    if (pixelPoints > -0.1f) {
-                        lastPpFloatingText.setText(String.format("%.3f", newPp) + "pp");
-                    } else if (pixelPoints > -10) {
-                        lastPpFloatingText.setText(String.format("%.2f", newPp) + "pp");
-                    } else if (pixelPoints > -100) {
-                        lastPpFloatingText.setText(String.format("%.1f", newPp) + "pp");
-                    } else {
-                        lastPpFloatingText.setText(String.valueOf(Math.round(pixelPoints)) + "pp");
-                    }
-                }
+        // No RenderSystem when running headless
+        RenderSystem renderSystem = simulation.getEngine().getSystem(RenderSystem.class);
+        if(Options.SHOW_PP_GAIN_FLOATING_TEXT && pixelPoints != 0 && renderSystem != null) {
+            // Add on to the last text if it is still showing
+            if(lastPpFloatingText != null && lastPpFloatingText.getGeneration() == lastPpFloatingTextGeneration) {
+                float newPp = lastPpFloatingText.getValue() + pixelPoints;
+                lastPpFloatingText.setText(formatPpGain(newPp, pixelPoints));
+                lastPpFloatingText.setValue(newPp);
             } else {
-                if (pixelPoints > 0) {
-                    if (pixelPoints < 0.1f) {
-                        lastPpFloatingText = main.getRenderSystem().addFloatingText(main.getPlayer(), "+" + String.format("%.3f", pixelPoints) + "pp", Color.BLACK).setUserObject((Float)pixelPoints);
-                    } else if (pixelPoints < 10) {
-                        lastPpFloatingText = main.getRenderSystem().addFloatingText(main.getPlayer(), "+" + String.format("%.2f", pixelPoints) + "pp", Color.BLACK).setUserObject((Float)pixelPoints);
-                    } else if (pixelPoints < 100) {
-                        lastPpFloatingText = main.getRenderSystem().addFloatingText(main.getPlayer(), "+" + String.format("%.1f", pixelPoints) + "pp", Color.BLACK).setUserObject((Float)pixelPoints);
-                    } else {
-                        lastPpFloatingText = main.getRenderSystem().addFloatingText(main.getPlayer(), "+" + String.valueOf(Math.round(pixelPoints)) + "pp", Color.BLACK).setUserObject((Float)pixelPoints);
-                    }
-                } else {
-                    if (pixelPoints > -0.1f) {
-                        lastPpFloatingText = main.getRenderSystem().addFloatingText(main.getPlayer(), String.format("%.3f", pixelPoints) + "pp", Color.BLACK).setUserObject((Float)pixelPoints);
-                    } else if (pixelPoints > -10) {
-                        lastPpFloatingText = main.getRenderSystem().addFloatingText(main.getPlayer(), String.format("%.2f", pixelPoints) + "pp", Color.BLACK).setUserObject((Float)pixelPoints);
-                    } else if (pixelPoints > -100) {
-                        lastPpFloatingText = main.getRenderSystem().addFloatingText(main.getPlayer(), String.format("%.1f", pixelPoints) + "pp", Color.BLACK).setUserObject((Float)pixelPoints);
-                    } else {
-                        lastPpFloatingText = main.getRenderSystem().addFloatingText(main.getPlayer(), String.valueOf(Math.round(pixelPoints)) + "pp", Color.BLACK).setUserObject((Float)pixelPoints);
-                    }
-                }
+                lastPpFloatingText = renderSystem.addFloatingText(simulation.getPlayer(), formatPpGain(pixelPoints, pixelPoints), Color.BLACK).setValue(pixelPoints);
+                lastPpFloatingTextGeneration = lastPpFloatingText.getGeneration();
             }
         }
 
@@ -90,8 +70,30 @@ public class PlayerComponent implements Component, Pool.Poolable {
         }
     }
 
-    public void setPixelPoints(Main main, float pixelPoints, boolean contributesToScore) {
-        addPixelPoints(main, pixelPoints - this.pixelPoints, contributesToScore);
+    /**
+     * @param pp total shown
+     * @param change the latest change in pp; smaller changes are shown with more decimal places
+     */
+    private CharSequence formatPpGain(float pp, float change) {
+        ppGainText.setLength(0);
+        if(pp > 0) {
+            ppGainText.append('+');
+        }
+        float magnitude = Math.abs(change);
+        if(magnitude < 0.1f) {
+            NumberFormatter.appendFixed(ppGainText, pp, 3);
+        } else if(magnitude < 10) {
+            NumberFormatter.appendFixed(ppGainText, pp, 2);
+        } else if(magnitude < 100) {
+            NumberFormatter.appendFixed(ppGainText, pp, 1);
+        } else {
+            ppGainText.append(Math.round(pp));
+        }
+        return ppGainText.append("pp");
+    }
+
+    public void setPixelPoints(Simulation simulation, float pixelPoints, boolean contributesToScore) {
+        addPixelPoints(simulation, pixelPoints - this.pixelPoints, contributesToScore);
     }
 
     public float getCustomizationRadius() {
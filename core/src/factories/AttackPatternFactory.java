@@ -1,10 +1,12 @@
 package factories;
 
-import com.badlogic.gdx.math.MathUtils;
 import com.miv.AttackPart;
 import com.miv.AttackPattern;
 
 import java.util.HashMap;
+import java.util.Random;
+
+import utils.Utils;
 
 /**
  * Created by Miv on 5/24/2017.
@@ -151,10 +153,10 @@ public class AttackPatternFactory {
         }
     }
 
-    public static AttackPattern getRandomAttackPatternByFloor(int floor) {
+    public static AttackPattern getRandomAttackPatternByFloor(int floor, Random random) {
         switch(floor) {
             case 0:
-                return getAttackPatternById(MathUtils.random(1, 1));
+                return getAttackPatternById(Utils.random(random, 1, 1));
             default:
                 return getAttackPatternById(1);
         }
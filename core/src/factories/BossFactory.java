@@ -5,6 +5,7 @@ import com.badlogic.gdx.math.MathUtils;
 import com.miv.Options;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import javax.swing.text.html.Option;
 
@@ -27,7 +28,7 @@ public class BossFactory {
     /**
      * MAKE SURE EVERY NEW ECD CREATED IS DONE USING  new EntityCreationData(true); AND NOT  new EntityCreationData();
      */
-    public static ArrayList<EntityCreationData> getBossById(int id, float mapAreaRadius, float pp) {
+    public static ArrayList<EntityCreationData> getBossById(int id, float mapAreaRadius, float pp, Random random) {
         ArrayList<EntityCreationData> ecds = new ArrayList<EntityCreationData>();
 
         // Big circle surrounded by smaller circles
@@ -42,7 +43,7 @@ public class BossFactory {
             e1.setCircleHitboxes(ca1);
             ca1.add(new CircleHitbox(
                     RenderSystem.HitboxTextureType.ENEMY,
-                    AttackPatternFactory.getAttackPattern("BOSS_1_1").addRandomAttackPatternStatModifiers(pp),
+                    AttackPatternFactory.getAttackPattern("BOSS_1_1").addRandomAttackPatternStatModifiers(pp, random),
                     0, 0,
                     mainRadius,
                     pp * 150f,
@@ -52,7 +53,7 @@ public class BossFactory {
                 float angle = i * MathUtils.degreesToRadians * (360/16f);
                 ca1.add(new CircleHitbox(
                         RenderSystem.HitboxTextureType.ENEMY,
-                        AttackPatternFactory.getAttackPattern("BOSS_1_2").addRandomAttackPatternStatModifiers(pp),
+                        AttackPatternFactory.getAttackPattern("BOSS_1_2").addRandomAttackPatternStatModifiers(pp, random),
                         (mainRadius + subRadius) * MathUtils.cos(angle), (mainRadius + subRadius) * MathUtils.sin(angle),
                         subRadius,
                         pp * 10f,
@@ -61,14 +62,14 @@ public class BossFactory {
             }
 
             e1.setSpawnPosition(0, 0);
-            Map.randomizeSimpleWanderAI(e1, mapAreaRadius);
+            Map.randomizeSimpleWanderAI(e1, mapAreaRadius, random);
             e1.setMaxSpeed(2f);
 
             // Give subentities higher speed and stalker AI
             HitboxComponent.SubEntityStats subStats = new HitboxComponent.SubEntityStats();
             subStats.maxSpeed = 3.5f;
             subStats.aiData = new EntityCreationData(true);
-            Map.randomizeSimpleStalkTargetAI(subStats.aiData);
+            Map.randomizeSimpleStalkTargetAI(subStats.aiData, random);
             e1.setSubEntityStats(subStats);
         }
         // Square made of circles
@@ -85,7 +86,7 @@ public class BossFactory {
                 for(int y = 0; y < squareLength/2; y++) {
                     ca1.add(new CircleHitbox(
                             RenderSystem.HitboxTextureType.ENEMY,
-                            AttackPatternFactory.getAttackPattern("BOSS_2_1").addRandomAttackPatternStatModifiers(pp),
+                            AttackPatternFactory.getAttackPattern("BOSS_2_1").addRandomAttackPatternStatModifiers(pp, random),
                             x * radius*2f, y * radius*2f,
                             radius,
                             //pp * 10f,
@@ -96,7 +97,7 @@ public class BossFactory {
             }
 
             e1.setSpawnPosition(-squareLength * radius/2f, -squareLength * radius/2f);
-            Map.randomizeSimpleStalkTargetAI(e1);
+            Map.randomizeSimpleStalkTargetAI(e1, random);
             e1.setMaxSpeed(1.5f);
         }
         else if(id == 2) {
@@ -110,14 +111,14 @@ public class BossFactory {
             e1.setCircleHitboxes(ca1);
         }
         else {
-            return getBossById(0, mapAreaRadius, pp);
+            return getBossById(0, mapAreaRadius, pp, random);
         }
 
         return ecds;
     }
 
-    public static ArrayList<EntityCreationData> getBossByFloor(int floor, float mapAreaRadius, float pp) {
+    public static ArrayList<EntityCreationData> getBossByFloor(int floor, float mapAreaRadius, float pp, Random random) {
         //TODO: getBossById(floor % (number of bosses in the game), mapAreaRadius, pp)
-        return getBossById(floor, mapAreaRadius, pp);
+        return getBossById(floor, mapAreaRadius, pp, random);
     }
 }
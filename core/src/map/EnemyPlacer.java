@@ -0,0 +1,195 @@
+package map;
+
+import com.badlogic.gdx.math.Circle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import utils.CircleHitbox;
+import utils.Utils;
+
+/**
+ * Finds non-overlapping spawn positions for enemies' bounding circles inside a map area with a bounded amount of work.
+ * Every placement first throws a few random darts like the original rejection sampling, then falls back to Poisson-disk
+ * sampling (Bridson's algorithm): candidates are generated around already placed circles, and a placed circle that
+ * fails {@link #CANDIDATES_PER_SAMPLE} times in a row is never used again. Overlap checks only look at nearby cells of
+ * a background grid, so placing n circles takes at most n * ({@link #DART_ATTEMPTS} + 2 * {@link #CANDIDATES_PER_SAMPLE})
+ * checks. When that runs out the map area is considered saturated and {@link #place(Circle)} returns false.
+ */
+public class EnemyPlacer {
+    // Random positions tried before sampling around placed circles
+    private static final int DART_ATTEMPTS = 8;
+    // Candidates tried around a placed circle before it is removed from the active list
+    private static final int CANDIDATES_PER_SAMPLE = 12;
+    private static final float CELL_SIZE = 128f;
+
+    private Random random;
+    private float innerRadius;
+    private float outerRadius;
+
+    // Background grid covering the map area; each cell is a linked list of indices into placed
+    private int gridSize;
+    private int[] cellHeads;
+    private IntArray nextInCell = new IntArray();
+    private ArrayList<Circle> placed = new ArrayList<Circle>();
+    private float maxPlacedRadius;
+    // Indices of placed circles that candidates can still be generated around
+    private IntArray active = new IntArray();
+
+    /**
+     * @param innerRadius minimum distance of a circle's center from the map area's center
+     * @param outerRadius map area radius; circles are kept entirely inside it
+     */
+    public EnemyPlacer(Random random, float innerRadius, float outerRadius) {
+        this.random = random;
+        this.innerRadius = innerRadius;
+        this.outerRadius = outerRadius;
+
+        gridSize = MathUtils.ceil(outerRadius * 2f / CELL_SIZE);
+        cellHeads = new int[gridSize * gridSize];
+        for(int i = 0; i < cellHeads.length; i++) {
+            cellHeads[i] = -1;
+        }
+    }
+
+    /**
+     * Sets the position of a circle so that it does not overlap with any previously placed circle
+     * Placed circles are kept, so the circle must not be changed afterwards
+     * @return false if no position was found, in which case the circle is not placed
+     */
+    public boolean place(Circle circle) {
+        float radius = circle.radius;
+        float maxDistance = outerRadius - radius;
+        if(maxDistance < innerRadius) {
+            return false;
+        }
+
+        for(int i = 0; i < DART_ATTEMPTS; i++) {
+            float angle = Utils.random(random, 0f, MathUtils.PI2);
+            float distance = Utils.random(random, innerRadius, maxDistance);
+            if(tryPlace(circle, distance * MathUtils.cos(angle), distance * MathUtils.sin(angle))) {
+                return true;
+            }
+        }
+
+        while(active.size > 0) {
+            int activeIndex = random.nextInt(active.size);
+            Circle sample = placed.get(active.get(activeIndex));
+            for(int i = 0; i < CANDIDATES_PER_SAMPLE; i++) {
+                // Somewhere between touching the sample and one circle diameter away from it
+                float angle = Utils.random(random, 0f, MathUtils.PI2);
+                float distance = sample.radius + radius + Utils.random(random, 0f, radius);
+                if(tryPlace(circle, sample.x + distance * MathUtils.cos(angle), sample.y + distance * MathUtils.sin(angle))) {
+                    return true;
+                }
+            }
+            active.removeIndex(activeIndex);
+        }
+        return false;
+    }
+
+    private boolean tryPlace(Circle circle, float x, float y) {
+        float distanceSquared = x*x + y*y;
+        float maxDistance = outerRadius - circle.radius;
+        if(distanceSquared < innerRadius*innerRadius || distanceSquared > maxDistance*maxDistance) {
+            return false;
+        }
+
+        // Any overlapping circle has its center within this range
+        float range = circle.radius + maxPlacedRadius;
+        int minCellX = Math.max(0, getCell(x - range));
+        int maxCellX = Math.min(gridSize - 1, getCell(x + range));
+        int minCellY = Math.max(0, getCell(y - range));
+        int maxCellY = Math.min(gridSize - 1, getCell(y + range));
+        circle.setPosition(x, y);
+        for(int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for(int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                for(int i = cellHeads[cellY * gridSize + cellX]; i != -1; i = nextInCell.get(i)) {
+                    if(circle.overlaps(placed.get(i))) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        int index = placed.size();
+        int cell = Math.min(gridSize - 1, getCell(y)) * gridSize + Math.min(gridSize - 1, getCell(x));
+        placed.add(circle);
+        nextInCell.add(cellHeads[cell]);
+        cellHeads[cell] = index;
+        active.add(index);
+        maxPlacedRadius = Math.max(maxPlacedRadius, circle.radius);
+        return true;
+    }
+
+    private int getCell(float coordinate) {
+        return Math.max(0, MathUtils.floor((coordinate + outerRadius) / CELL_SIZE));
+    }
+
+    /**
+     * Places circles so that each is tangential to a center circle at the origin without any of them overlapping.
+     * Each neighboring pair is given the smallest angle that keeps them apart plus a random share of the angle left over,
+     * starting from a random angle. Circles that cannot fit around the center circle are removed from the list and freed.
+     */
+    public static void placeTangentCircles(Random random, float centerRadius, ArrayList<CircleHitbox> circles) {
+        float leftoverAngle = MathUtils.PI2 - getMinimumRingAngle(centerRadius, circles);
+        while(leftoverAngle < 0 && circles.size() > 1) {
+            CircleHitbox.free(circles.remove(circles.size() - 1));
+            leftoverAngle = MathUtils.PI2 - getMinimumRingAngle(centerRadius, circles);
+        }
+
+        float[] weights = new float[circles.size()];
+        float totalWeight = 0;
+        for(int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextFloat() + 0.01f;
+            totalWeight += weights[i];
+        }
+
+        float angle = Utils.random(random, 0f, MathUtils.PI2);
+        for(int i = 0; i < circles.size(); i++) {
+            CircleHitbox c = circles.get(i);
+            if(i > 0) {
+                angle += getMinimumAngle(centerRadius, circles.get(i - 1).radius, c.radius) + Math.max(0, leftoverAngle) * weights[i] / totalWeight;
+            }
+            c.setPosition((centerRadius + c.radius) * MathUtils.cos(angle), (centerRadius + c.radius) * MathUtils.sin(angle));
+        }
+
+        // Only neighbors are kept apart above, so a small circle between two large ones can still let them overlap
+        for(int i = circles.size() - 1; i > 0; i--) {
+            for(int j = 0; j < i; j++) {
+                if(circles.get(i).overlaps(circles.get(j))) {
+                    CircleHitbox.free(circles.remove(i));
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sum of the minimum angles between each neighboring pair of circles going around the center circle, including
+     * between the last and the first
+     */
+    private static float getMinimumRingAngle(float centerRadius, ArrayList<CircleHitbox> circles) {
+        if(circles.size() < 2) {
+            return 0;
+        }
+        float total = 0;
+        for(int i = 0; i < circles.size(); i++) {
+            total += getMinimumAngle(centerRadius, circles.get(i).radius, circles.get((i + 1) % circles.size()).radius);
+        }
+        return total;
+    }
+
+    /**
+     * Smallest angle around the center circle between two circles tangential to it such that they do not overlap
+     */
+    private static float getMinimumAngle(float centerRadius, float radius1, float radius2) {
+        float d1 = centerRadius + radius1;
+        float d2 = centerRadius + radius2;
+        float cos = (d1*d1 + d2*d2 - (radius1 + radius2)*(radius1 + radius2)) / (2f * d1 * d2);
+        // Small margin so that rounding does not make touching circles overlap
+        return (float)Math.acos(MathUtils.clamp(cos, -1f, 1f)) + 0.01f;
+    }
+}
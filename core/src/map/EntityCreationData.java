@@ -45,6 +45,9 @@ public class EntityCreationData {
 
     private HitboxComponent.SubEntityStats subEntityStats;
 
+    // Position in the order enemies were generated in their map area; -1 if not generated by MapAreaGenerator
+    private int generationIndex = -1;
+
     public EntityCreationData() {
         circleHitboxes = new ArrayList<CircleHitbox>();
     }
@@ -58,6 +61,36 @@ public class EntityCreationData {
         circleHitboxes = new ArrayList<CircleHitbox>();
     }
 
+    /**
+     * Copy with copies of the circles, which are shared with the entity once it is spawned
+     */
+    public EntityCreationData clone() {
+        EntityCreationData ecd = new EntityCreationData();
+        ecd.maxHealth = maxHealth;
+        ecd.isEnemy = isEnemy;
+        ecd.isObstacle = isObstacle;
+        ecd.isBoss = isBoss;
+        for(CircleHitbox c : circleHitboxes) {
+            ecd.circleHitboxes.add(c.clone());
+        }
+        ecd.spawnX = spawnX;
+        ecd.spawnY = spawnY;
+        ecd.maxSpeed = maxSpeed;
+        ecd.gravitationalRadius = gravitationalRadius;
+        ecd.aiType = aiType;
+        ecd.simpleStalkMinSpeedDistance = simpleStalkMinSpeedDistance;
+        ecd.simpleStalkMaxSpeedDistance = simpleStalkMaxSpeedDistance;
+        ecd.simpleWanderRadius = simpleWanderRadius;
+        ecd.simpleWanderMinInterval = simpleWanderMinInterval;
+        ecd.simpleWanderMaxInterval = simpleWanderMaxInterval;
+        ecd.simpleWanderMinAcceleration = simpleWanderMinAcceleration;
+        ecd.simpleWanderMaxAcceleration = simpleWanderMaxAcceleration;
+        ecd.rotationBehaviorParams = rotationBehaviorParams;
+        ecd.subEntityStats = subEntityStats;
+        ecd.generationIndex = generationIndex;
+        return ecd;
+    }
+
     /**
      * Works by multiplying the previous pp multiplier value by the new one, not adding
      */
@@ -215,4 +248,12 @@ public class EntityCreationData {
     public void setObstacle(boolean obstacle) {
         isObstacle = obstacle;
     }
+
+    public int getGenerationIndex() {
+        return generationIndex;
+    }
+
+    public void setGenerationIndex(int generationIndex) {
+        this.generationIndex = generationIndex;
+    }
 }
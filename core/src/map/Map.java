@@ -5,43 +5,42 @@ import com.badlogic.ashley.core.Family;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.MathUtils;
-import com.miv.AttackPattern;
-import com.miv.Main;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.LongMap;
+import com.miv.EntityActions;
 import com.miv.Mappers;
-import com.miv.Options;
+import com.miv.Profiler;
+import com.miv.Simulation;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Random;
 
 import ai.AI;
 import ai.SimpleFollowTarget;
 import ai.SimpleStalkTarget;
 import ai.SimpleWander;
 import components.AIComponent;
-import components.EnemyBulletComponent;
 import components.EnemyComponent;
 import components.HitboxComponent;
 import components.ObstacleComponent;
-import components.PlayerBulletComponent;
 import components.PpOrbComponent;
-import factories.AttackPatternFactory;
-import factories.BossFactory;
 import map.mods.MapAreaModifier;
 import screens.MapScreen;
+import systems.BulletSystem;
 import systems.RenderSystem;
+import utils.AreaIndex;
 import utils.CircleHitbox;
 import utils.Point;
 import utils.Utils;
 
-import static map.MapArea.BOSS_MAP_AREA_SIZE;
-
 /**
  * Only the MapArea that is being focused on {@link map.Map#focus} has its entities in the engine.
- * Every time a new area is entered, all non-player entities are removed from the engine and stored into {@link EntityCreationData} objects.
+ * Every time a new area is entered, all non-player entities are removed from the engine. Enemies of the last few map areas
+ * left are kept as detached entities (see {@link #hotAreas}); the rest are stored into {@link EntityCreationData} objects.
  * This results in all non-player entities regaining maximum health after the player leaves the MapArea.
  * Every time the player enters a new point on the world map that isn't in {@link map.Map#areas}, a new MapArea
- * is generated on the spot and populated with entities depending on {@link map.Map#floor}.
+ * populated with entities depending on {@link map.Map#floor} is added. Map areas adjacent to the focus are generated
+ * ahead of time on a worker thread by {@link MapAreaGenerator}; anything else is generated on the spot.
  * Created by Miv on 5/23/2017.
  */
 public class Map {
@@ -65,16 +64,24 @@ public class Map {
     public static final float MAX_OBSTACLE_HEALTH_MULTIPLIER = 1.6f;
 
     public static final float OBSTACLE_HEALTH_PP_SCALE = 0.5f;
+
+    // Number of map areas the player most recently left whose enemies are kept detached from the engine; see hotAreas
+    private static final int HOT_MAP_AREAS = 3;
+
+    // Entities of the map area being entered spawned per call to updateEnteringNewArea(); a count rather than a time
+    // budget so that seeded simulations play out the same on any machine
+    private static final int AREA_TRANSITION_ENTITIES_PER_STEP = 4;
     //-----------------------------------------------------------------------------------------------------
 
-    private transient Main main;
+    private transient Simulation simulation;
 
+    // Every map area's seed is derived from this, the floor and the map area's position; see getAreaSeed(int, int)
+    private long seed;
     // Starts at 0
     private int floor;
     private Point focus;
-    // Maps location on the world map to a specific MapArea
-    // String representation of utils.Point is used as key to be able to save HashMap in a json
-    private HashMap<String, MapArea> areas;
+    // Maps location on the world map to a specific MapArea; saved through the codecs' own serializers
+    private AreaIndex<MapArea> areas;
     // Number of new map areas to be discovered until the next one is the floor's boss
     private float newMapAreasUntilBoss;
     // Maximum pixel points, distributed evenly to all enemies, when generating MapAreas
@@ -86,15 +93,30 @@ public class Map {
 
     private transient MapArea currentArea;
 
+    // Map area whose entities are still being spawned and the player entering it; see beginEnteringNewArea()
+    private transient MapArea enteringArea;
+    private transient Entity enteringPlayer;
+
+    // Undiscovered map areas being generated in the background; same positions as areas
+    private transient AreaIndex<MapAreaGenerator> pendingAreas = new AreaIndex<MapAreaGenerator>();
+    /**
+     * Map areas the player recently left, least recently left first, whose enemies are still the entities they were
+     * when the player left ({@link MapArea#detachEnemies(PooledEngine)}), so coming back to one only has to put them
+     * back in the engine. They are converted to {@link EntityCreationData} when they fall out of the cache and copied
+     * into it for saving.
+     */
+    private transient ArrayList<MapArea> hotAreas = new ArrayList<MapArea>();
+
     /**
      * For Json files
      */
     public Map() {}
 
-    public Map(Main main) {
-        this.main = main;
+    public Map(Simulation simulation) {
+        this.simulation = simulation;
 
-        areas = new HashMap<String, MapArea>();
+        seed = MathUtils.random.nextLong();
+        areas = new AreaIndex<MapArea>();
         focus = new Point(0, 0);
         newMapAreasUntilBoss = NEW_MAP_AREAS_UNTIL_BOSS;
         maxPixelPoints = INITIAL_MAP_AREA_PIXEL_POINTS;
@@ -108,6 +130,8 @@ public class Map {
         this.floor = floor;
         setFocus(0, 0);
         areas.clear();
+        hotAreas.clear();
+        cancelPregeneratedMapAreas();
 
         newMapAreasUntilBoss = NEW_MAP_AREAS_UNTIL_BOSS;
         maxPixelPoints += MAP_AREA_PIXEL_POINTS_FLOOR_INCREMENT * deltaFloor;
@@ -118,50 +142,89 @@ public class Map {
         minEnemiesPerMapArea = MIN_ENEMIES_PER_MAP_AREA + enemyCountIncrease/2f;
         maxEnemiesPerMapArea = MAX_ENEMIES_PER_MAP_AREA + enemyCountIncrease;
 
-        MapArea mapArea = new MapArea(main.getEngine(), MapArea.MAP_AREA_MIN_SIZE, maxPixelPoints);
-        areas.put(new Point(0, 0).toString(), mapArea);
-        Mappers.hitbox.get(main.getPlayer()).setOrigin(0, 0);
-        enterNewArea(main.getEngine(), main.getPlayer(), 0, 0, true);
+        MapArea mapArea = new MapArea(simulation.getEngine(), MapArea.MAP_AREA_MIN_SIZE, maxPixelPoints);
+        areas.put(0, 0, mapArea);
+        Mappers.hitbox.get(simulation.getPlayer()).setOrigin(0, 0);
+        enterNewArea(simulation.getEngine(), simulation.getPlayer(), 0, 0, true);
 
-        main.save();
+        simulation.getListener().save();
     }
 
     public void enterNewArea(PooledEngine engine, Entity player, int x, int y, boolean clearNewMapAreaEntityCreationDataAfterSpawningEnemies) {
-        main.getRenderSystem().clearFloatingTexts();
+        beginEnteringNewArea(engine, player, x, y, clearNewMapAreaEntityCreationDataAfterSpawningEnemies);
+        finishEnteringNewArea();
+    }
+
+    /**
+     * Same as {@link #enterNewArea(PooledEngine, Entity, int, int, boolean)}, except that the new map area's entities
+     * are spawned over the next calls to {@link #updateEnteringNewArea()}, a few at a time.
+     * Meant to be called when the player starts travelling into the new map area, so that spawning is done while
+     * it is still off screen; {@link #finishEnteringNewArea()} must be called before the player arrives.
+     */
+    public void beginEnteringNewArea(PooledEngine engine, Entity player, int x, int y, boolean clearNewMapAreaEntityCreationDataAfterSpawningEnemies) {
+        finishEnteringNewArea();
 
-        MapArea oldMapArea = areas.get(focus.toString());
+        Profiler.begin(Profiler.Section.ENTER_NEW_AREA);
+        RenderSystem renderSystem = engine.getSystem(RenderSystem.class);
+        if(renderSystem != null) {
+            renderSystem.clearFloatingTexts();
+        }
+
+        MapArea oldMapArea = areas.get((int)focus.x, (int)focus.y);
 
         boolean increaseChanceOfNextAreaHavingStairs = false;
 
-        MapArea newMapArea;
+        MapArea newMapArea = areas.get(x, y);
         Point newPos = new Point(x, y);
-        if(!areas.containsKey(newPos.toString())) {
+        if(newMapArea == null) {
             increaseChanceOfNextAreaHavingStairs = true;
-            newMapArea = generateRandomMapArea(newPos);
-            areas.put(newPos.toString(), newMapArea);
+            newMapArea = takePregeneratedMapArea(newPos, player);
+            if(newMapArea == null) {
+                newMapArea = new MapAreaGenerator(this, newPos, getAreaSeed(x, y)).generate();
+            }
+            areas.put(x, y, newMapArea);
 
             maxPixelPoints += MAP_AREA_PIXEL_POINTS_MAP_AREA_INCREMENT;
-        } else {
-            newMapArea = areas.get(new Point(x, y).toString());
         }
         currentArea = newMapArea;
+        // The current map area changes constantly so it is never saved from a cache
+        currentArea.setCachedSaveChunk(null);
 
         /**
-         * Store all enemies currently in the engine as {@link map.EntityCreationData} objects inside {@link MapArea#entityCreationDataArrayList}
+         * Keep all enemies currently in the engine out of it until the player comes back, storing those of the
+         * map area that was left longest ago as {@link map.EntityCreationData} objects inside {@link MapArea#entityCreationDataArrayList}
          */
         if(oldMapArea != null && !(focus.x == x && focus.y == y)) {
-            oldMapArea.storeExistingEnemies(engine, true);
+            // Before detaching, while the map area's mods can still reach its enemies
+            oldMapArea.onPlayerLeave();
+            oldMapArea.detachEnemies(engine);
+            hotAreas.remove(oldMapArea);
+            hotAreas.add(oldMapArea);
+            if(hotAreas.size() > HOT_MAP_AREAS) {
+                hotAreas.remove(0).storeDetachedEnemies(true);
+            }
+        }
+        if(hotAreas.remove(newMapArea)) {
+            // Only a copy of the detached enemies made for saving, which are put back instead
+            newMapArea.entityCreationDataArrayList.clear();
         }
 
         ArrayList<Entity> entitiesToBeRemoved = new ArrayList<Entity>();
-        for (Entity e : engine.getEntitiesFor(Family.one(EnemyBulletComponent.class, PlayerBulletComponent.class, PpOrbComponent.class, ObstacleComponent.class).get())) {
+        if(engine.getSystem(BulletSystem.class) != null) {
+            engine.getSystem(BulletSystem.class).clear();
+        }
+        for (Entity e : engine.getEntitiesFor(Family.one(PpOrbComponent.class, ObstacleComponent.class).get())) {
             entitiesToBeRemoved.add(e);
         }
 
+        // Enemies of regenerable map areas are dropped when the player leaves
+        if(newMapArea.isRegenerable() && !newMapArea.hasDetachedEnemies() && newMapArea.entityCreationDataArrayList.isEmpty() && newMapArea.getEnemyCount() > 0) {
+            newMapArea.entityCreationDataArrayList.addAll(regenerateEnemies(newPos, newMapArea));
+        }
+
         if(!(x == 0 && y == 0) && !newMapArea.isBossArea()) {
             populateWithObstacles(newMapArea);
         }
-        newMapArea.spawnEntities(player, clearNewMapAreaEntityCreationDataAfterSpawningEnemies);
 
         focus.x = x;
         focus.y = y;
@@ -172,174 +235,170 @@ public class Map {
             newMapAreasUntilBoss--;
         }
 
-        newMapArea.onEntityEnter(player);
-        if(oldMapArea != null && !(focus.x == x && focus.y == y)) {
-            oldMapArea.onPlayerLeave();
-        }
-
-        main.updateScreenActors();
-
         // Entities being removed later fixes bug where they weren't actually being removed somehow
         for(Entity e : entitiesToBeRemoved) {
             engine.removeEntity(e);
         }
-    }
 
-    private MapArea generateRandomMapArea(Point pos) {
-        MapArea mapArea;
-        if(pos.x == 0 && pos.y == 0) {
-            mapArea = new MapArea(main.getEngine(), MapArea.MAP_AREA_MIN_SIZE, maxPixelPoints);
-        } else {
-            if(newMapAreasUntilBoss <= 0) {
-                mapArea = new MapArea(main.getEngine(), BOSS_MAP_AREA_SIZE, maxPixelPoints);
-                mapArea.addStairs(floor + 1);
-                populateWithBoss(mapArea);
-            } else {
-                mapArea = new MapArea(main.getEngine(), MathUtils.random(MapArea.MAP_AREA_MIN_SIZE, MapArea.MAP_AREA_MAX_SIZE), maxPixelPoints);
-                mapArea.randomizeRarity();
-                mapArea.loadMods(main.getEngine(), main.getAssetManager(), main.getPlayer());
-                // Populate map area with enemies
-                randomlyPopulate(mapArea);
-            }
-        }
+        pregenerateAdjacentMapAreas();
 
-        return mapArea;
+        newMapArea.beginSpawningEntities(player, clearNewMapAreaEntityCreationDataAfterSpawningEnemies);
+        enteringArea = newMapArea;
+        enteringPlayer = player;
+        Profiler.end(Profiler.Section.ENTER_NEW_AREA);
     }
 
-    public void populateWithBoss(MapArea mapArea) {
-        mapArea.entityCreationDataArrayList.addAll(BossFactory.getBossByFloor(floor, mapArea.getRadius(), maxPixelPoints));
-    }
-
-    private void randomlyPopulate(MapArea mapArea) {
-        int enemies = Math.round(MathUtils.random(minEnemiesPerMapArea, maxEnemiesPerMapArea));
-        mapArea.setOriginalEnemyCount(enemies);
-        mapArea.setEnemyCount(enemies);
-        float ppPerEnemy = maxPixelPoints/(float)enemies * (minEnemiesPerMapArea + maxEnemiesPerMapArea)/2f;
-
-        // Set map area attack pattern bias
-        AttackPattern bias = AttackPatternFactory.getRandomAttackPatternByFloor(floor);
-
-        // Array list of circles that surround each enemy's hitbox
-        // Used to avoid spawning enemies too close to each other
-        ArrayList<CircleHitbox> enemyBoundingCircles = new ArrayList<CircleHitbox>();
-
-        for(int i = 0; i < enemies; i++) {
-            float adjustedPpPerEnemy = ppPerEnemy;
-
-            EntityCreationData ecd = new EntityCreationData();
-            ecd.setIsEnemy(true);
-
-            randomizeEnemyMovementAI(ecd, mapArea.getRadius());
-
-            // Max speed is a random number between 1f and 5f
-            ecd.setMaxSpeed(MathUtils.random(1f, 3f));
-
-            // Max health is 25% to 100% of total pp
-            float hpMultiplier = MathUtils.random(0.25f, 1f);
-            ecd.setMaxHealth(ppPerEnemy * hpMultiplier);
-            adjustedPpPerEnemy *= (hpMultiplier/((0.25f + 1f)/2f));
-
-            ArrayList<CircleHitbox> circles = ecd.getCircleHitboxes();
+    /**
+     * Spawns up to {@link #AREA_TRANSITION_ENTITIES_PER_STEP} entities of the map area being entered. Called once per
+     * simulation step.
+     */
+    public void updateEnteringNewArea() {
+        if(enteringArea == null) {
+            return;
+        }
 
-            AttackPattern attackPattern;
-            // 75% of enemy having the map area's attack pattern bias
-            if(Math.random() < 0.75f) {
-                attackPattern = bias.clone();
-            } else {
-                attackPattern = AttackPatternFactory.getRandomAttackPatternByFloor(floor);
-            }
-            attackPattern.addRandomAttackPatternStatModifiers(ppPerEnemy);
-            adjustedPpPerEnemy *= Math.pow((attackPattern.getBulletDamagePpMultiplier() * attackPattern.getBulletRadiusPpMultiplier() * attackPattern.getFireIntervalPpMultiplier() * attackPattern.getSpeedPpMultiplier())/3f, 1.5f);
+        Profiler.begin(Profiler.Section.ENTER_NEW_AREA);
+        boolean spawnedAll = false;
+        for(int i = 0; i < AREA_TRANSITION_ENTITIES_PER_STEP && !spawnedAll; i++) {
+            spawnedAll = !enteringArea.spawnNextEntity();
+        }
+        if(spawnedAll) {
+            completeEnteringNewArea();
+        }
+        Profiler.end(Profiler.Section.ENTER_NEW_AREA);
+    }
 
-            CircleHitbox c1 = new CircleHitbox();
+    /**
+     * Spawns every entity of the map area being entered that has not been spawned yet. Does nothing if no map area is
+     * being entered.
+     */
+    public void finishEnteringNewArea() {
+        if(enteringArea == null) {
+            return;
+        }
 
-            // If circle hitbox contains more than 1 circle, each circle except the first is placed
-            // so that it is tangential to the first circle
-            int circlesCount = getEnemyRandomCirclesCount();
-            float c1Radius = getRandomCircleRadius(circlesCount);
-            for(int a = 1; a < circlesCount; a++) {
-                CircleHitbox c = new CircleHitbox();
+        Profiler.begin(Profiler.Section.ENTER_NEW_AREA);
+        while(enteringArea.spawnNextEntity()) {}
+        completeEnteringNewArea();
+        Profiler.end(Profiler.Section.ENTER_NEW_AREA);
+    }
 
-                c.setBasePpGain(adjustedPpPerEnemy / circlesCount * Options.PP_GAIN_MULTIPLIER);
+    private void completeEnteringNewArea() {
+        MapArea newMapArea = enteringArea;
+        Entity player = enteringPlayer;
+        enteringArea = null;
+        enteringPlayer = null;
 
-                // Set color
-                c.setHitboxTextureType(RenderSystem.HitboxTextureType.ENEMY);
+        newMapArea.onEntityEnter(player);
+        simulation.getListener().updateScreenActors();
+    }
 
-                // Set attack pattern
-                c.setAttackPattern(attackPattern);
+    public boolean isEnteringNewArea() {
+        return enteringArea != null;
+    }
 
-                // Set radius
-                float radius = getRandomCircleRadius(circlesCount);
-                c.setRadius(radius);
+    /**
+     * Copies the enemies of every map area in {@link #hotAreas} into its {@link MapArea#entityCreationDataArrayList}
+     * so that they are saved
+     */
+    public void storeDetachedEnemies() {
+        for(int i = 0; i < hotAreas.size(); i++) {
+            hotAreas.get(i).storeDetachedEnemies(false);
+        }
+    }
 
-                // Randomize angle from first circle until this circle does not overlap with any other
-                float angle = MathUtils.random(0, MathUtils.PI2);
-                c.setPosition((c1Radius + radius) * MathUtils.cos(angle), (c1Radius + radius) * MathUtils.sin(angle));
-                while(Utils.overlaps(c, circles)) {
-                    angle = MathUtils.random(0, MathUtils.PI2);
-                    c.setPosition((c1Radius + radius)*MathUtils.cos(angle), (c1Radius + radius)*MathUtils.sin(angle));
-                }
-                circles.add(c);
+    /**
+     * Starts generating every undiscovered map area adjacent to {@link #focus} on a worker thread, and cancels those
+     * that were generated for an older state of the map (different floor, pixel points or boss countdown)
+     */
+    private void pregenerateAdjacentMapAreas() {
+        LongMap.Entries<MapAreaGenerator> iterator = pendingAreas.entries();
+        while(iterator.hasNext()) {
+            MapAreaGenerator generator = iterator.next().value;
+            if(!generator.matches(this)) {
+                generator.cancel();
+                iterator.remove();
             }
+        }
 
-            float totalCircleRadius = c1Radius;
-            for(int a = 0; a < circlesCount - 1; a++) {
-                totalCircleRadius += circles.get(a).radius;
+        for(EntityActions.Direction direction : EntityActions.Direction.values()) {
+            int x = (int)focus.x + direction.getDeltaX();
+            int y = (int)focus.y + direction.getDeltaY();
+            if(!areas.containsKey(x, y) && !pendingAreas.containsKey(x, y)) {
+                MapAreaGenerator generator = new MapAreaGenerator(this, new Point(x, y), getAreaSeed(x, y));
+                generator.submit(simulation.getMapGenerationExecutor());
+                pendingAreas.put(x, y, generator);
             }
+        }
+    }
 
-            c1.setBasePpGain(adjustedPpPerEnemy / circlesCount * Options.PP_GAIN_MULTIPLIER);
-
-            // Scale circle health to radius
-            float c1Health = c1Radius/totalCircleRadius * ecd.getMaxHealth();
-            c1.setBaseMaxHealth(c1Health);
-            c1.setHealth(c1.getMaxHealth());
-            for(int a = 0; a < circlesCount - 1; a++) {
-                CircleHitbox c = circles.get(a);
+    /**
+     * @return the map area pregenerated for pos, waiting for it if it is still being generated, or null if there is
+     * none that is still valid
+     */
+    private MapArea takePregeneratedMapArea(Point pos, Entity player) {
+        MapAreaGenerator generator = pendingAreas.remove((int)pos.x, (int)pos.y);
+        if(generator == null) {
+            return null;
+        } else if(!generator.matches(this)) {
+            generator.cancel();
+            return null;
+        }
 
-                // Set health
-                float health = c.radius/totalCircleRadius * ecd.getMaxHealth();
-                c.setBaseMaxHealth(health);
-                c.setHealth(c.getMaxHealth());
+        MapArea mapArea;
+        try {
+            mapArea = generator.get();
+        } catch(GdxRuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+        // Player may have been replaced since generation started
+        if(mapArea != null && mapArea.getMods() != null) {
+            for(MapAreaModifier m : mapArea.getMods()) {
+                m.setPlayer(player);
             }
+        }
+        return mapArea;
+    }
 
-            // Calculate max size of entity hitbox
-            float maxSize = c1Radius;
-            float maxRadiusSoFar = 0;
-            for(CircleHitbox c : circles) {
-                if(c.radius > maxRadiusSoFar) {
-                    maxRadiusSoFar = c.radius;
-                }
-            }
-            // Extra padding of 5 pixels to avoid inaccuracies with MathUtils.cos/sin
-            maxSize += maxRadiusSoFar + 5f;
-
-            // Create bounding circle
-            CircleHitbox boundingCircle = new CircleHitbox();
-            boundingCircle.setRadius(maxSize);
-
-            // Randomize hitbox origin with padding equal to the hitbox max size around the map area circumference
-            float angle = MathUtils.random(0, MathUtils.PI2);
-            float distance = MathUtils.random(100, mapArea.getRadius() - maxSize);
-            boundingCircle.setPosition(distance*MathUtils.cos(angle), distance*MathUtils.sin(angle));
-            while(Utils.overlaps(boundingCircle, enemyBoundingCircles)) {
-                angle = MathUtils.random(0, MathUtils.PI2);
-                distance = MathUtils.random(100, mapArea.getRadius() - maxSize);
-                boundingCircle.setPosition(distance*MathUtils.cos(angle), distance*MathUtils.sin(angle));
+    /**
+     * @return the remaining enemies of a regenerable map area, as they were generated
+     */
+    private ArrayList<EntityCreationData> regenerateEnemies(Point pos, MapArea mapArea) {
+        ArrayList<EntityCreationData> remaining = new ArrayList<EntityCreationData>();
+        for(EntityCreationData ecd : new MapAreaGenerator(this, pos, mapArea).generate().entityCreationDataArrayList) {
+            if(!mapArea.isEnemyKilled(ecd.getGenerationIndex())) {
+                remaining.add(ecd);
             }
+        }
+        return remaining;
+    }
 
-            ecd.setSpawnPosition(boundingCircle.x, boundingCircle.y);
-            enemyBoundingCircles.add(boundingCircle);
+    /**
+     * Seed of the map area at (x, y) on the current floor
+     */
+    public long getAreaSeed(int x, int y) {
+        return mixSeed(mixSeed(mixSeed(seed ^ floor) ^ x) ^ y);
+    }
 
-            // Create first circle
-            c1.setHitboxTextureType(RenderSystem.HitboxTextureType.ENEMY);
-            c1.setPosition(0, 0);
-            c1.setRadius(c1Radius);
-            c1.setAttackPattern(attackPattern);
-            circles.add(c1);
+    /**
+     * SplitMix64 finalizer, so that nearby inputs give unrelated seeds
+     */
+    private static long mixSeed(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
 
-            mapArea.entityCreationDataArrayList.add(ecd);
-            mapArea.onEnemyDataCreation(ecd);
+    /**
+     * Stops pregeneration of adjacent map areas that has not started yet and forgets the pregenerated ones
+     */
+    public void cancelPregeneratedMapAreas() {
+        for(MapAreaGenerator generator : pendingAreas.values()) {
+            generator.cancel();
         }
+        pendingAreas.clear();
     }
 
     private void populateWithObstacles(MapArea mapArea) {
@@ -350,7 +409,7 @@ public class Map {
             ecd.setIsEnemy(false);
             ecd.setObstacle(true);
 
-            CircleHitbox c = new CircleHitbox();
+            CircleHitbox c = CircleHitbox.obtain();
             // Set health to be > 0 to prevent death instantly
             float hp = maxPixelPoints * OBSTACLE_HEALTH_PP_SCALE * MathUtils.random(MIN_OBSTACLE_HEALTH_MULTIPLIER, MAX_OBSTACLE_HEALTH_MULTIPLIER);
             c.setBaseMaxHealth(hp);
@@ -386,29 +445,37 @@ public class Map {
     }
 
     public static void randomizeEnemyMovementAI(EntityCreationData ecd, float mapAreaRadius) {
+        randomizeEnemyMovementAI(ecd, mapAreaRadius, MathUtils.random);
+    }
+
+    public static void randomizeEnemyMovementAI(EntityCreationData ecd, float mapAreaRadius, Random random) {
         //TODO: add on to this as more AI types are added
-        float rand = MathUtils.random();
+        float rand = random.nextFloat();
         // 75% for SimpleStalk
         if(rand < 0.75f) {
-            randomizeSimpleStalkTargetAI(ecd);
+            randomizeSimpleStalkTargetAI(ecd, random);
         }
         // 25% for SimpleWander
         else {
-            randomizeSimpleWanderAI(ecd, mapAreaRadius);
+            randomizeSimpleWanderAI(ecd, mapAreaRadius, random);
         }
     }
 
     public static void randomizeSimpleStalkTargetAI(EntityCreationData ecd) {
+        randomizeSimpleStalkTargetAI(ecd, MathUtils.random);
+    }
+
+    public static void randomizeSimpleStalkTargetAI(EntityCreationData ecd, Random random) {
         ecd.setRotationBehaviorParams(new AI.RotationBehaviorParams(true, 0.6f));
         ecd.setAiType(AI.AIType.SIMPLE_STALK_TARGET);
-        ecd.setSimpleStalkMinSpeedDistance(MathUtils.random(100f, 250f));
-        ecd.setSimpleStalkMaxSpeedDistance(MathUtils.random(330f, 450f));
+        ecd.setSimpleStalkMinSpeedDistance(Utils.random(random, 100f, 250f));
+        ecd.setSimpleStalkMaxSpeedDistance(Utils.random(random, 330f, 450f));
     }
 
-    public static void randomizeSimpleWanderAI(EntityCreationData ecd, float mapAreaRadius) {
+    public static void randomizeSimpleWanderAI(EntityCreationData ecd, float mapAreaRadius, Random random) {
         ecd.setRotationBehaviorParams(new AI.RotationBehaviorParams(true, 0.6f));
         ecd.setAiType(AI.AIType.SIMPLE_WANDER);
-        ecd.setSimpleWanderRadius(MathUtils.random(0.2f * mapAreaRadius, 0.4f * mapAreaRadius));
+        ecd.setSimpleWanderRadius(Utils.random(random, 0.2f * mapAreaRadius, 0.4f * mapAreaRadius));
         ecd.setSimpleWanderMinInterval(0.5f);
         ecd.setSimpleWanderMaxInterval(1.5f);
         ecd.setSimpleWanderMinAcceleration(1 / 60f);
@@ -427,34 +494,6 @@ public class Map {
         return null;
     }
 
-    /**
-     * Returns a random number for a randomly generated enemy's circle hitbox radius.
-     * @param circlesCount - Must be less than 8
-     */
-    private static float getRandomCircleRadius(int circlesCount) {
-        return MathUtils.random(35f - circlesCount*5f, 80f - circlesCount*10f);
-    }
-
-    /**
-     * Returns a random number for the number of circle hitboxes a randomly generated enemy will have.
-     * Weighted towards 1.
-     */
-    private int getEnemyRandomCirclesCount() {
-        float random = MathUtils.random();
-        // 70% of returning 1
-        if(random < 0.70f) {
-            return 1;
-        }
-        // 20% of 2
-        else if(random < 0.9f) {
-            return 2;
-        }
-        // 10% of 3
-        else {
-            return 3;
-        }
-    }
-
     public void setFocus(int x, int y) {
         focus.x = x;
         focus.y = y;
@@ -472,12 +511,12 @@ public class Map {
         this.floor = floor;
     }
 
-    public void setMain(Main main) {
-        this.main = main;
+    public void setSimulation(Simulation simulation) {
+        this.simulation = simulation;
     }
 
-    public Main getMain() {
-        return main;
+    public Simulation getSimulation() {
+        return simulation;
     }
 
     public MapArea getCurrentArea() {
@@ -496,15 +535,40 @@ public class Map {
         return maxEnemiesPerMapArea;
     }
 
-    public Collection<MapArea> getAllSavedMapAreas() {
+    public float getNewMapAreasUntilBoss() {
+        return newMapAreasUntilBoss;
+    }
+
+    /**
+     * Cannot be nested with other iterations over the map areas; see {@link AreaIndex}
+     */
+    public Iterable<MapArea> getAllSavedMapAreas() {
         return areas.values();
     }
 
-    public HashMap<Point, MapScreen.MapScreenArea> getDiscoveredAreaPositions() {
-        HashMap<Point, MapScreen.MapScreenArea> mapScreenAreas = new HashMap<Point, MapScreen.MapScreenArea>();
+    public AreaIndex<MapArea> getAreas() {
+        return areas;
+    }
+
+    public void setAreas(AreaIndex<MapArea> areas) {
+        this.areas = areas;
+    }
 
-        for(java.util.Map.Entry<String, MapArea> entry : areas.entrySet()) {
-            MapArea mapArea = entry.getValue();
+    /**
+     * Inverse of {@link Point#toString()}, which was used as the key of map areas in old saves
+     */
+    public static Point parseAreaKey(String key) {
+        String[] strArr = key.replaceAll("\\]|=|x|y|\\[|,", "").split("\\s+");
+        return new Point(Float.valueOf(strArr[0]), Float.valueOf(strArr[1]));
+    }
+
+    public AreaIndex<MapScreen.MapScreenArea> getDiscoveredAreaPositions() {
+        AreaIndex<MapScreen.MapScreenArea> mapScreenAreas = new AreaIndex<MapScreen.MapScreenArea>();
+
+        for(LongMap.Entry<MapArea> entry : areas.entries()) {
+            MapArea mapArea = entry.value;
+            int x = AreaIndex.getX(entry.key);
+            int y = AreaIndex.getY(entry.key);
 
             MapScreen.MapScreenArea area = new MapScreen.MapScreenArea();
             area.areaCleared = (mapArea.getEnemyCount() == 0);
@@ -522,17 +586,28 @@ public class Map {
             // Position of red circle depends on position of enemy spawn
             if(!area.areaCleared) {
                 area.objectIndicators = new ArrayList<MapScreen.MapScreenObjectIndicator>();
-                for(EntityCreationData ecd : mapArea.entityCreationDataArrayList) {
+                ArrayList<EntityCreationData> ecds = mapArea.entityCreationDataArrayList;
+                if(mapArea.isRegenerable() && ecds.isEmpty() && !mapArea.equals(currentArea)) {
+                    ecds = regenerateEnemies(new Point(x, y), mapArea);
+                }
+                for(EntityCreationData ecd : ecds) {
+                    // Only set when stored from an existing enemy
+                    float gravitationalRadius = ecd.getGravitationalRadius();
+                    if(gravitationalRadius == 0) {
+                        for(CircleHitbox c : ecd.getCircleHitboxes()) {
+                            gravitationalRadius += c.radius;
+                        }
+                    }
                     area.objectIndicators.add(new MapScreen.MapScreenObjectIndicator(
                             ecd.getSpawnX()/mapArea.getRadius() * MapScreen.MAP_AREA_BUTTON_RADIUS, ecd.getSpawnY()/mapArea.getRadius() * MapScreen.MAP_AREA_BUTTON_RADIUS,
-                            ecd.getGravitationalRadius()/mapArea.getRadius() * MapScreen.MAP_AREA_BUTTON_RADIUS,
+                            gravitationalRadius/mapArea.getRadius() * MapScreen.MAP_AREA_BUTTON_RADIUS,
                             Color.RED
                     ));
                 }
 
                 if(mapArea.equals(currentArea)) {
                     // Create red circles from existing enemies instead
-                    for(Entity e : main.getEngine().getEntitiesFor(Family.all(EnemyComponent.class, HitboxComponent.class).get())) {
+                    for(Entity e : simulation.getEngine().getEntitiesFor(Family.all(EnemyComponent.class, HitboxComponent.class).get())) {
                         Point pos = Mappers.hitbox.get(e).getOrigin();
                         area.objectIndicators.add(new MapScreen.MapScreenObjectIndicator(
                                 pos.x/mapArea.getRadius() * MapScreen.MAP_AREA_BUTTON_RADIUS, pos.y/mapArea.getRadius() * MapScreen.MAP_AREA_BUTTON_RADIUS,
@@ -542,7 +617,7 @@ public class Map {
                     }
 
                     // Create blue circle from player
-                    HitboxComponent playerHitbox = Mappers.hitbox.get(main.getPlayer());
+                    HitboxComponent playerHitbox = Mappers.hitbox.get(simulation.getPlayer());
                     area.objectIndicators.add(new MapScreen.MapScreenObjectIndicator(
                             playerHitbox.getOrigin().x/mapArea.getRadius() * MapScreen.MAP_AREA_BUTTON_RADIUS, playerHitbox.getOrigin().y/mapArea.getRadius() * MapScreen.MAP_AREA_BUTTON_RADIUS,
                             playerHitbox.getGravitationalRadius()/mapArea.getRadius() * MapScreen.MAP_AREA_BUTTON_RADIUS * 2,
@@ -551,9 +626,8 @@ public class Map {
                 }
             }
 
-            String[] strArr = entry.getKey().replaceAll("\\]|=|x|y|\\[|,", "").split("\\s+");
-            area.x = Float.valueOf(strArr[0]);
-            area.y = Float.valueOf(strArr[1]);
+            area.x = x;
+            area.y = y;
 
             /**
              * See {@link MapScreen#loadBubbleTextures()} for color indexes
@@ -574,7 +648,7 @@ public class Map {
                 area.borderColor = MapScreen.STAIRS_MAP_AREA_BORDER_COLOR;
             }
 
-            mapScreenAreas.put(new Point(area.x, area.y), area);
+            mapScreenAreas.put(x, y, area);
         }
 
         return mapScreenAreas;
@@ -584,7 +658,36 @@ public class Map {
         this.newMapAreasUntilBoss = newMapAreasUntilBoss;
     }
 
+    /**
+     * Copy of everything in the map that is saved, for encoding on the save thread while the game goes on
+     */
+    public Map createSaveSnapshot() {
+        Map snapshot = new Map();
+        snapshot.seed = seed;
+        snapshot.floor = floor;
+        snapshot.focus = new Point(focus.x, focus.y);
+        snapshot.newMapAreasUntilBoss = newMapAreasUntilBoss;
+        snapshot.maxPixelPoints = maxPixelPoints;
+        snapshot.minEnemiesPerMapArea = minEnemiesPerMapArea;
+        snapshot.maxEnemiesPerMapArea = maxEnemiesPerMapArea;
+        snapshot.areas = new AreaIndex<MapArea>();
+        for(LongMap.Entry<MapArea> entry : areas.entries()) {
+            MapArea mapArea;
+            if(entry.value == currentArea) {
+                mapArea = currentArea.createSaveSnapshot();
+                snapshot.currentArea = mapArea;
+            } else {
+                mapArea = entry.value.getSaveSnapshot();
+            }
+            snapshot.areas.put(AreaIndex.getX(entry.key), AreaIndex.getY(entry.key), mapArea);
+        }
+        return snapshot;
+    }
+
     public void setCurrentArea(Point currentArea) {
-        this.currentArea = areas.get(currentArea.toString());
+        this.currentArea = areas.get((int)currentArea.x, (int)currentArea.y);
+        if(this.currentArea != null) {
+            this.currentArea.setCachedSaveChunk(null);
+        }
     }
 }
@@ -1,19 +1,22 @@
 package map;
 
+import com.badlogic.ashley.core.Component;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.Family;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.math.MathUtils;
-import com.miv.Main;
 import com.miv.Mappers;
+import com.miv.Simulation;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
+import ai.AI;
 import components.AIComponent;
 import components.BossComponent;
 import components.EnemyComponent;
@@ -21,36 +24,15 @@ import components.HitboxComponent;
 import components.ObstacleComponent;
 import map.mods.MapAreaModifier;
 import map.mods.Mod;
+import systems.CollisionMatrix;
 import utils.CircleHitbox;
+import utils.Utils;
 
 /**
  * @see Map
  * Created by Miv on 5/23/2017.
  */
 public class MapArea {
-    public static class GridLine {
-        private float startX;
-        private float startY;
-        private float endX;
-        private float endY;
-
-        public float getStartX() {
-            return startX;
-        }
-
-        public float getStartY() {
-            return startY;
-        }
-
-        public float getEndX() {
-            return endX;
-        }
-
-        public float getEndY() {
-            return endY;
-        }
-    }
-
     public static final float MAP_AREA_MIN_SIZE = 800f;
     public static final float MAP_AREA_MAX_SIZE = 1600f;
 
@@ -59,11 +41,31 @@ public class MapArea {
     private static final float CHANCE_OF_RARE_MAP = 0.04f;
     private static final float CHANCE_OF_UNCOMMON_MAP = 0.08f;
 
-    private static final float GRID_LINE_SEPARATION_DISTANCE = 150f;
+    public static final float GRID_LINE_SEPARATION_DISTANCE = 150f;
+
+    private static final Family ENEMY_FAMILY = Family.all(EnemyComponent.class, HitboxComponent.class).get();
 
     private transient PooledEngine engine;
+    // Source of randomness for everything generated for this map area, so that it can be generated off the main thread
+    private transient Random random;
+    // Serialized form of this map area, reused by every save while it is not the current map area; see BinarySaveCodec
+    private transient volatile byte[] cachedSaveChunk;
+    // Copy given to the save thread while this is not the current map area, until it has been encoded; see getSaveSnapshot()
+    private transient MapArea saveSnapshot;
 
     public ArrayList<EntityCreationData> entityCreationDataArrayList;
+
+    // Seed of the Random this map area was generated with; see MapAreaGenerator
+    private long seed;
+    /**
+     * True while every remaining enemy is exactly as it was generated, so {@link #entityCreationDataArrayList} is
+     * dropped when the player leaves and regenerated from {@link #seed} minus {@link #killedEnemies} when the player
+     * comes back. See {@link #storeExistingEnemies(PooledEngine, boolean)}.
+     */
+    private boolean regenerable;
+    // [generation index of enemy] -> true if it has been killed; only used while regenerable
+    private boolean[] killedEnemies;
+
     private float radius;
     private float originalRadius;
 
@@ -74,16 +76,28 @@ public class MapArea {
     private ArrayList<MapAreaModifier> mods;
 
     private transient ArrayList<Entity> enemies;
+    /**
+     * Enemies taken out of the engine by {@link #detachEnemies(PooledEngine)} when the player left, which are put back
+     * as they are by {@link #spawnNextEntity()} when the player comes back. Null if the enemies are stored in
+     * {@link #entityCreationDataArrayList} instead.
+     */
+    private transient ArrayList<Entity> detachedEnemies;
+    // True if entityCreationDataArrayList also holds the detached enemies, for saving
+    private transient boolean detachedEnemiesStored;
+    private transient int nextDetachedEnemyIndex;
+
+    // Set while entities are being spawned by spawnNextEntity(); enemies are spawned in a first pass over
+    // entityCreationDataArrayList and obstacles in a second
+    private transient Entity spawningPlayer;
+    private transient boolean clearEntityCreationDataAfterSpawning;
+    private transient boolean spawningObstacles;
+    private transient int nextSpawnIndex;
 
     private boolean isUncommon;
     private boolean isRare;
 
     private float maxPixelPoints;
 
-    // Positions of grid lines; purely visual effects
-    // Calculated on map area creation
-    private ArrayList<GridLine> gridLines;
-
     /**
      * Set to -1 if no stairs exist in this MapArea. Otherwise, an entity with an OnCollision event will be spawned in the middle of the MapArea
      * when {@link MapArea#spawnEntities(Entity, boolean)} is called.
@@ -102,13 +116,10 @@ public class MapArea {
         this.radius = radius;
         originalRadius = radius;
         entityCreationDataArrayList = new ArrayList<EntityCreationData>();
-        gridLines = new ArrayList<GridLine>();
         enemies = new ArrayList<Entity>();
         modTypes = new ArrayList<Mod>();
         mods = new ArrayList<MapAreaModifier>();
         this.maxPixelPoints = maxPixelPoints;
-
-        calculateAndSetGridLines();
     }
 
     public void addStairs(int destinationFloor) {
@@ -119,6 +130,15 @@ public class MapArea {
      * Spawns all entities in {@link map.MapArea#entityCreationDataArrayList}
      */
     public void spawnEntities(Entity player, boolean clearEntityCreationDataAfterSpawning) {
+        beginSpawningEntities(player, clearEntityCreationDataAfterSpawning);
+        while(spawnNextEntity()) {}
+    }
+
+    /**
+     * Starts spawning the entities in {@link map.MapArea#entityCreationDataArrayList}, which are then spawned one at
+     * a time by {@link #spawnNextEntity()} so that it can be spread over multiple frames
+     */
+    public void beginSpawningEntities(Entity player, boolean clearEntityCreationDataAfterSpawning) {
         if(enemies == null) {
             enemies = new ArrayList<Entity>();
         } else {
@@ -127,28 +147,50 @@ public class MapArea {
 
         enemyCount = 0;
 
-        // Entities from entityCreationDataArrayList
-        // Spawn enemies first and obstacles last to avoid layering issues
-        for(EntityCreationData ecd : entityCreationDataArrayList) {
-            if(ecd.isObstacle()) {
-                continue;
-            }
+        spawningPlayer = player;
+        this.clearEntityCreationDataAfterSpawning = clearEntityCreationDataAfterSpawning;
+        spawningObstacles = false;
+        nextSpawnIndex = 0;
+        nextDetachedEnemyIndex = 0;
+    }
 
-            spawnEntity(player, ecd);
+    /**
+     * @return false if every entity has already been spawned
+     */
+    public boolean spawnNextEntity() {
+        if(spawningPlayer == null) {
+            return false;
         }
 
-        // Spawn obstacles
-        for(EntityCreationData ecd : entityCreationDataArrayList) {
-            if(ecd.isEnemy()) {
+        if(detachedEnemies != null) {
+            if(nextDetachedEnemyIndex < detachedEnemies.size()) {
+                attachEnemy(spawningPlayer, detachedEnemies.get(nextDetachedEnemyIndex++));
+                return true;
+            }
+            detachedEnemies = null;
+        }
+
+        // Spawn enemies first and obstacles last to avoid layering issues
+        while(nextSpawnIndex < entityCreationDataArrayList.size()) {
+            EntityCreationData ecd = entityCreationDataArrayList.get(nextSpawnIndex++);
+            if(spawningObstacles ? ecd.isEnemy() : ecd.isObstacle()) {
                 continue;
             }
 
-            spawnEntity(player, ecd);
+            spawnEntity(spawningPlayer, ecd);
+            return true;
+        }
+        if(!spawningObstacles) {
+            spawningObstacles = true;
+            nextSpawnIndex = 0;
+            return spawnNextEntity();
         }
 
         if(clearEntityCreationDataAfterSpawning && !isBossArea()) {
             entityCreationDataArrayList.clear();
         }
+        spawningPlayer = null;
+        return false;
     }
 
     public Entity spawnEntity(Entity player, EntityCreationData ecd) {
@@ -165,18 +207,25 @@ public class MapArea {
         HitboxComponent hitbox = engine.createComponent(HitboxComponent.class);
         for(CircleHitbox c : ecd.getCircleHitboxes()) {
             c.randomizeAttackPatternTime();
-            hitbox.addCircle(c, true);
         }
+        hitbox.addCircles(ecd.getCircleHitboxes(), true);
         hitbox.recenterOriginalCirclePositions();
         hitbox.setOrigin(ecd.getSpawnX(), ecd.getSpawnY());
         hitbox.setMaxSpeed(ecd.getMaxSpeed());
+        if(ecd.isObstacle()) {
+            hitbox.setCollisionLayer(CollisionMatrix.OBSTACLE);
+        }
         if(ecd.isEnemy()) {
+            hitbox.setCollisionLayer(CollisionMatrix.ENEMY);
             // Have enemy always be shooting
             hitbox.setIsShooting(true);
 
             enemyCount++;
             enemies.add(e);
-            e.add(engine.createComponent(EnemyComponent.class));
+            EnemyComponent enemy = engine.createComponent(EnemyComponent.class);
+            enemy.setGenerationIndex(ecd.getGenerationIndex());
+            enemy.setSpawnCircleCount(ecd.getCircleHitboxes().size());
+            e.add(enemy);
         }
         e.add(hitbox);
 
@@ -195,19 +244,44 @@ public class MapArea {
         return e;
     }
 
+    /**
+     * Moves the components of an entity made by {@link #detachEnemies(PooledEngine)} back onto an entity in the engine
+     */
+    private Entity attachEnemy(Entity player, Entity detached) {
+        Entity e = engine.createEntity();
+        for(Component c : detached.getComponents()) {
+            e.add(c);
+        }
+
+        if(Mappers.ai.has(e)) {
+            AI ai = Mappers.ai.get(e).getAi();
+            ai.setSelf(e);
+            // Player may have been replaced since the enemy was detached
+            ai.setTarget(player);
+        }
+
+        enemyCount++;
+        enemies.add(e);
+        engine.addEntity(e);
+        onEntityEnter(e);
+
+        return e;
+    }
+
     public void randomizeRarity() {
         modTypes.clear();
 
-        float rand = MathUtils.random();
+        Random random = getRandom();
+        float rand = random.nextFloat();
         // Rare map area
         if(rand < 1f) {
             isRare = true;
-            modTypes.addAll(pickNRandomMods(Arrays.asList(Mod.values()), MathUtils.random(3, 4)));
+            modTypes.addAll(pickNRandomMods(Arrays.asList(Mod.values()), Utils.random(random, 3, 4), random));
         }
         // Uncommon map area
         else if(rand < CHANCE_OF_UNCOMMON_MAP + CHANCE_OF_RARE_MAP) {
             isUncommon = true;
-            modTypes.addAll(pickNRandomMods(Arrays.asList(Mod.values()), MathUtils.random(2, 3)));
+            modTypes.addAll(pickNRandomMods(Arrays.asList(Mod.values()), Utils.random(random, 2, 3), random));
         }
     }
 
@@ -230,16 +304,46 @@ public class MapArea {
         }
     }
 
-    private static List<Mod> pickNRandomMods(List<Mod> list, int n) {
+    private static List<Mod> pickNRandomMods(List<Mod> list, int n, Random random) {
         List<Mod> copy = new LinkedList<Mod>(list);
-        Collections.shuffle(copy);
+        Collections.shuffle(copy, random);
         return copy.subList(0, n);
     }
 
     public void storeExistingEnemies(PooledEngine engine, boolean deleteEntitiesAfterwards) {
+        storeEnemies(engine.getEntitiesFor(ENEMY_FAMILY).toArray(Entity.class), engine, deleteEntitiesAfterwards);
+    }
+
+    /**
+     * Same as {@link #storeExistingEnemies(PooledEngine, boolean)} for the enemies kept by
+     * {@link #detachEnemies(PooledEngine)}, which are dropped if dropEntitiesAfterwards is true. Does nothing if there
+     * are none.
+     */
+    public void storeDetachedEnemies(boolean dropEntitiesAfterwards) {
+        if(detachedEnemies == null) {
+            return;
+        }
+
+        // Detached enemies cannot change, so they only need to be stored again if the ECDs are to own their circles
+        if(!detachedEnemiesStored || dropEntitiesAfterwards) {
+            Entity[] entities = detachedEnemies.toArray(new Entity[detachedEnemies.size()]);
+            storeEnemies(entities, null, dropEntitiesAfterwards);
+            detachedEnemiesStored = true;
+            setCachedSaveChunk(null);
+        }
+        if(dropEntitiesAfterwards) {
+            detachedEnemies = null;
+        }
+    }
+
+    /**
+     * @param engine the engine to remove the entities from if deleteEntitiesAfterwards is true; null if they are not in one
+     */
+    private void storeEnemies(Entity[] entities, PooledEngine engine, boolean deleteEntitiesAfterwards) {
         entityCreationDataArrayList.clear();
+        boolean[] survivors = regenerable ? new boolean[killedEnemies.length] : null;
 
-        for (Entity e : engine.getEntitiesFor(Family.all(EnemyComponent.class, HitboxComponent.class).get())) {
+        for (Entity e : entities) {
             EntityCreationData ecd = new EntityCreationData();
             ecd.setIsEnemy(true);
             if (Mappers.boss.has(e)) {
@@ -267,53 +371,75 @@ public class MapArea {
 
             entityCreationDataArrayList.add(ecd);
 
+            if(regenerable) {
+                // Enemies that lost circles, split off or were not generated cannot be regenerated
+                EnemyComponent enemy = Mappers.enemy.get(e);
+                if(enemy.getGenerationIndex() >= 0 && enemy.getGenerationIndex() < survivors.length && circles.size() == enemy.getSpawnCircleCount()) {
+                    survivors[enemy.getGenerationIndex()] = true;
+                } else {
+                    regenerable = false;
+                }
+            }
+
             if(deleteEntitiesAfterwards) {
-                engine.removeEntity(e);
+                // The circles now belong to the ECD, so keep them from being returned to the pool
+                Mappers.hitbox.get(e).clearCircles();
+                if(engine != null) {
+                    engine.removeEntity(e);
+                }
+            }
+        }
+
+        if(regenerable) {
+            for(int i = 0; i < survivors.length; i++) {
+                if(!survivors[i]) {
+                    killedEnemies[i] = true;
+                }
             }
+            entityCreationDataArrayList.clear();
         }
     }
 
-    private void calculateAndSetGridLines() {
-        gridLines.clear();
-
-        // Lines from quadrant 1, extending down
-        for(float gridX = GRID_LINE_SEPARATION_DISTANCE/2f; gridX < radius; gridX += GRID_LINE_SEPARATION_DISTANCE) {
-            GridLine gl = new GridLine();
-            gl.startX = gridX;
-            gl.startY = (float)Math.sqrt(radius*radius - gridX*gridX);
-            gl.endX = gridX;
-            gl.endY = -gl.startY;
-            gridLines.add(gl);
-        }
-        // Lines from quadrant 2, extending down
-        for(float gridX = GRID_LINE_SEPARATION_DISTANCE/2f - GRID_LINE_SEPARATION_DISTANCE; gridX > -radius; gridX -= GRID_LINE_SEPARATION_DISTANCE) {
-            GridLine gl = new GridLine();
-            gl.startX = gridX;
-            gl.startY = (float)Math.sqrt(radius*radius - gridX*gridX);
-            gl.endX = gridX;
-            gl.endY = -gl.startY;
-            gridLines.add(gl);
-        }
-        // Lines from quadrant 1, extending left
-        for(float gridY = GRID_LINE_SEPARATION_DISTANCE/2f; gridY < radius; gridY += GRID_LINE_SEPARATION_DISTANCE) {
-            GridLine gl = new GridLine();
-            gl.startX = (float)Math.sqrt(radius*radius - gridY*gridY);
-            gl.startY = gridY;
-            gl.endX = -gl.startX;
-            gl.endY = gridY;
-            gridLines.add(gl);
-        }
-        // Lines from quadrant 4, extending left
-        for(float gridY = GRID_LINE_SEPARATION_DISTANCE/2f - GRID_LINE_SEPARATION_DISTANCE; gridY > -radius; gridY -= GRID_LINE_SEPARATION_DISTANCE) {
-            GridLine gl = new GridLine();
-            gl.startX = (float)Math.sqrt(radius*radius - gridY*gridY);
-            gl.startY = gridY;
-            gl.endX = -gl.startX;
-            gl.endY = gridY;
-            gridLines.add(gl);
+    /**
+     * Removes every enemy from the engine without converting them to {@link EntityCreationData}, keeping their
+     * components on entities outside the engine until the player comes back. Enemies regain maximum health just like
+     * with {@link #storeExistingEnemies(PooledEngine, boolean)}.
+     */
+    public void detachEnemies(PooledEngine engine) {
+        entityCreationDataArrayList.clear();
+        enemies.clear();
+        detachedEnemies = new ArrayList<Entity>();
+        detachedEnemiesStored = false;
+
+        Entity[] entities = engine.getEntitiesFor(ENEMY_FAMILY).toArray(Entity.class);
+        for(Entity e : entities) {
+            Entity detached = new Entity();
+            Component[] components = e.getComponents().toArray(Component.class);
+            for(Component c : components) {
+                detached.add(c);
+                // Unlike removing a component or the entity, replacing a component does not return it to its pool
+                e.add(engine.createComponent(c.getClass()));
+            }
+
+            HitboxComponent hitbox = Mappers.hitbox.get(detached);
+            for(CircleHitbox c : hitbox.getCircles()) {
+                c.setHealth(c.getMaxHealth());
+            }
+            // Circles killed this frame survive since the enemy is healed anyway
+            hitbox.clearCircleRemovalQueue();
+            if(Mappers.ai.has(detached)) {
+                Mappers.ai.get(detached).getAi().setSelf(detached);
+            }
+
+            engine.removeEntity(e);
+            detachedEnemies.add(detached);
         }
     }
 
+    public boolean hasDetachedEnemies() {
+        return detachedEnemies != null;
+    }
+
     /**
      * Called from {@link Map#randomlyPopulate(MapArea)}
      */
@@ -326,7 +452,7 @@ public class MapArea {
     }
 
     /**
-     * Called from {@link systems.MovementSystem#handleBulletCollision(Entity, CircleHitbox, Entity)}
+     * Called from {@link systems.MovementSystem#handleBulletCollision(Entity, CircleHitbox, float, Entity, float, float, float)}
      */
     public void onEnemyDeath(Entity enemy) {
         enemies.remove(enemy);
@@ -361,7 +487,7 @@ public class MapArea {
     }
 
     /**
-     * Called from {@link systems.MovementSystem#handleBulletCollision(Entity, CircleHitbox, Entity)}
+     * Called from {@link systems.MovementSystem#handleBulletCollision(Entity, CircleHitbox, float, Entity, float, float, float)}
      */
     public void onEnemyCircleDeath(Entity enemy, CircleHitbox circle) {
         if(mods != null) {
@@ -372,7 +498,7 @@ public class MapArea {
     }
 
     /**
-     * Called from {@link Main#render()}
+     * Called from {@link Simulation#step(float)}
      */
     public void update(float deltaTime) {
         if(mods != null) {
@@ -397,14 +523,12 @@ public class MapArea {
     /**
      * Used for when killing enemies
      */
-    public void setEnemyCount(Main main, int enemyCount) {
+    public void setEnemyCount(Simulation simulation, int enemyCount) {
         this.enemyCount = enemyCount;
-        main.updateScreenActors();
+        simulation.getListener().updateScreenActors();
 
         if(enemyCount == 0) {
-            if(stairsDestination != -1) {
-                main.getHud().getMoveToNextFloorButton().setVisible(false);
-            }
+            simulation.getListener().onMapAreaCleared(this);
         }
     }
 
@@ -449,7 +573,6 @@ public class MapArea {
 
     public void setRadius(float radius) {
         this.radius = radius;
-        calculateAndSetGridLines();
     }
 
     public float getMaxPixelPoints() {
@@ -460,8 +583,114 @@ public class MapArea {
         return originalRadius;
     }
 
-    public ArrayList<GridLine> getGridLines() {
-        return gridLines;
+    /**
+     * @return the generator this map area was created with, or {@link MathUtils#random} if it was loaded from a save
+     */
+    public Random getRandom() {
+        return random == null ? MathUtils.random : random;
+    }
+
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public boolean isRegenerable() {
+        return regenerable;
+    }
+
+    /**
+     * Called once all enemies have been generated
+     * @param enemies - number of enemies generated
+     */
+    public void setRegenerable(int enemies) {
+        regenerable = true;
+        killedEnemies = new boolean[enemies];
+    }
+
+    /**
+     * @return true if the enemy generated at that index has been killed while this map area is regenerable
+     */
+    public boolean isEnemyKilled(int generationIndex) {
+        return killedEnemies != null && generationIndex >= 0 && generationIndex < killedEnemies.length && killedEnemies[generationIndex];
+    }
+
+    public byte[] getCachedSaveChunk() {
+        return cachedSaveChunk;
+    }
+
+    /**
+     * Setting it to null means this map area has changed since it was last saved
+     */
+    public void setCachedSaveChunk(byte[] cachedSaveChunk) {
+        this.cachedSaveChunk = cachedSaveChunk;
+        saveSnapshot = null;
+    }
+
+    /**
+     * Copy of everything in this map area that is saved, for encoding on the save thread while the game goes on.
+     * Only has the cached chunk if there is one.
+     */
+    public MapArea createSaveSnapshot() {
+        MapArea snapshot = new MapArea();
+        snapshot.cachedSaveChunk = cachedSaveChunk;
+        if(cachedSaveChunk != null) {
+            return snapshot;
+        }
+
+        snapshot.entityCreationDataArrayList = new ArrayList<EntityCreationData>(entityCreationDataArrayList.size());
+        for(EntityCreationData ecd : entityCreationDataArrayList) {
+            snapshot.entityCreationDataArrayList.add(ecd.clone());
+        }
+        snapshot.seed = seed;
+        snapshot.regenerable = regenerable;
+        if(killedEnemies != null) {
+            snapshot.killedEnemies = killedEnemies.clone();
+        }
+        snapshot.radius = radius;
+        snapshot.originalRadius = originalRadius;
+        snapshot.enemyCount = enemyCount;
+        snapshot.originalEnemyCount = originalEnemyCount;
+        if(modTypes != null) {
+            snapshot.modTypes = new ArrayList<Mod>(modTypes);
+        }
+        if(mods != null) {
+            snapshot.mods = new ArrayList<MapAreaModifier>(mods.size());
+            for(MapAreaModifier m : mods) {
+                snapshot.mods.add(m.copy());
+            }
+        }
+        snapshot.isUncommon = isUncommon;
+        snapshot.isRare = isRare;
+        snapshot.maxPixelPoints = maxPixelPoints;
+        snapshot.stairsDestination = stairsDestination;
+        return snapshot;
+    }
+
+    /**
+     * Same as {@link #createSaveSnapshot()}, but the copy is reused by every save until this map area changes, and is
+     * replaced by the chunk the save thread encoded from it. Not for the current map area, which changes without
+     * {@link #setCachedSaveChunk(byte[])} being called.
+     */
+    public MapArea getSaveSnapshot() {
+        if(saveSnapshot != null && saveSnapshot.cachedSaveChunk != null) {
+            cachedSaveChunk = saveSnapshot.cachedSaveChunk;
+            saveSnapshot = null;
+        }
+        if(cachedSaveChunk != null) {
+            return createSaveSnapshot();
+        }
+        if(saveSnapshot == null) {
+            saveSnapshot = createSaveSnapshot();
+        }
+        return saveSnapshot;
     }
 
     public void setEngine(PooledEngine engine) {
@@ -0,0 +1,296 @@
+package map;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.PooledEngine;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.math.Circle;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+import com.miv.AttackPattern;
+import com.miv.Options;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import factories.AttackPatternFactory;
+import factories.BossFactory;
+import systems.RenderSystem;
+import utils.CircleHitbox;
+import utils.Point;
+import utils.Utils;
+
+import static map.MapArea.BOSS_MAP_AREA_SIZE;
+
+/**
+ * Generates a new {@link MapArea} from a snapshot of the {@link Map}'s state, so that it can be run on a worker thread
+ * while the map keeps changing. Nothing shared is modified during generation and all randomness comes from
+ * {@link #random}, which becomes the map area's {@link MapArea#getRandom()}. The same seed and snapshot always give
+ * the same map area, which is how regenerable map areas get their enemies back; see {@link MapArea#isRegenerable()}.
+ */
+public class MapAreaGenerator implements AsyncTask<MapArea> {
+    private PooledEngine engine;
+    private AssetManager assetManager;
+    private Entity player;
+
+    private Point pos;
+    private int floor;
+    private float maxPixelPoints;
+    private float minEnemiesPerMapArea;
+    private float maxEnemiesPerMapArea;
+    private boolean bossArea;
+    private long seed;
+    private Random random;
+
+    private volatile boolean cancelled;
+    private AsyncResult<MapArea> result;
+
+    public MapAreaGenerator(Map map, Point pos, long seed) {
+        engine = map.getSimulation().getEngine();
+        assetManager = map.getSimulation().getAssetManager();
+        player = map.getSimulation().getPlayer();
+
+        this.pos = pos;
+        floor = map.getFloor();
+        maxPixelPoints = map.getMaxPixelPoints();
+        minEnemiesPerMapArea = map.getMinEnemiesPerMapArea();
+        maxEnemiesPerMapArea = map.getMaxEnemiesPerMapArea();
+        bossArea = map.getNewMapAreasUntilBoss() <= 0;
+        this.seed = seed;
+        random = new RandomXS128(seed);
+    }
+
+    /**
+     * Generates a regenerable map area over again, as it was when it was first generated
+     */
+    public MapAreaGenerator(Map map, Point pos, MapArea mapArea) {
+        this(map, pos, mapArea.getSeed());
+        maxPixelPoints = mapArea.getMaxPixelPoints();
+        bossArea = false;
+    }
+
+    /**
+     * @return true if generating now would give the same kind of map area, so the result can still be used
+     */
+    public boolean matches(Map map) {
+        return floor == map.getFloor() && maxPixelPoints == map.getMaxPixelPoints() && minEnemiesPerMapArea == map.getMinEnemiesPerMapArea()
+                && maxEnemiesPerMapArea == map.getMaxEnemiesPerMapArea() && bossArea == (map.getNewMapAreasUntilBoss() <= 0);
+    }
+
+    public void submit(AsyncExecutor executor) {
+        result = executor.submit(this);
+    }
+
+    /**
+     * Waits for a submitted generation to finish
+     * @return null if it was cancelled
+     */
+    public MapArea get() {
+        return result.get();
+    }
+
+    /**
+     * Skips generation if it has not started yet
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public MapArea call() {
+        if(cancelled) {
+            return null;
+        }
+        return generate();
+    }
+
+    public MapArea generate() {
+        MapArea mapArea;
+        if(pos.x == 0 && pos.y == 0) {
+            mapArea = new MapArea(engine, MapArea.MAP_AREA_MIN_SIZE, maxPixelPoints);
+            mapArea.setRandom(random);
+        } else {
+            if(bossArea) {
+                mapArea = new MapArea(engine, BOSS_MAP_AREA_SIZE, maxPixelPoints);
+                mapArea.setRandom(random);
+                mapArea.addStairs(floor + 1);
+                populateWithBoss(mapArea);
+            } else {
+                mapArea = new MapArea(engine, Utils.random(random, MapArea.MAP_AREA_MIN_SIZE, MapArea.MAP_AREA_MAX_SIZE), maxPixelPoints);
+                mapArea.setRandom(random);
+                mapArea.setSeed(seed);
+                mapArea.randomizeRarity();
+                mapArea.loadMods(engine, assetManager, player);
+                // Populate map area with enemies
+                randomlyPopulate(mapArea);
+            }
+        }
+
+        return mapArea;
+    }
+
+    private void populateWithBoss(MapArea mapArea) {
+        mapArea.entityCreationDataArrayList.addAll(BossFactory.getBossByFloor(floor, mapArea.getRadius(), maxPixelPoints, random));
+    }
+
+    private void randomlyPopulate(MapArea mapArea) {
+        int enemies = Math.round(Utils.random(random, minEnemiesPerMapArea, maxEnemiesPerMapArea));
+        mapArea.setOriginalEnemyCount(enemies);
+        mapArea.setEnemyCount(enemies);
+        float ppPerEnemy = maxPixelPoints/(float)enemies * (minEnemiesPerMapArea + maxEnemiesPerMapArea)/2f;
+
+        // Set map area attack pattern bias
+        AttackPattern bias = AttackPatternFactory.getRandomAttackPatternByFloor(floor, random);
+
+        // Places circles that surround each enemy's hitbox
+        // Used to avoid spawning enemies too close to each other
+        EnemyPlacer enemyPlacer = new EnemyPlacer(random, 100f, mapArea.getRadius());
+        int placedEnemies = 0;
+
+        for(int i = 0; i < enemies; i++) {
+            float adjustedPpPerEnemy = ppPerEnemy;
+
+            EntityCreationData ecd = new EntityCreationData();
+            ecd.setIsEnemy(true);
+            ecd.setGenerationIndex(i);
+
+            Map.randomizeEnemyMovementAI(ecd, mapArea.getRadius(), random);
+
+            // Max speed is a random number between 1f and 5f
+            ecd.setMaxSpeed(Utils.random(random, 1f, 3f));
+
+            // Max health is 25% to 100% of total pp
+            float hpMultiplier = Utils.random(random, 0.25f, 1f);
+            ecd.setMaxHealth(ppPerEnemy * hpMultiplier);
+            adjustedPpPerEnemy *= (hpMultiplier/((0.25f + 1f)/2f));
+
+            ArrayList<CircleHitbox> circles = ecd.getCircleHitboxes();
+
+            AttackPattern attackPattern;
+            // 75% of enemy having the map area's attack pattern bias
+            if(random.nextFloat() < 0.75f) {
+                attackPattern = bias.clone();
+            } else {
+                attackPattern = AttackPatternFactory.getRandomAttackPatternByFloor(floor, random);
+            }
+            attackPattern.addRandomAttackPatternStatModifiers(ppPerEnemy, random);
+            adjustedPpPerEnemy *= Math.pow((attackPattern.getBulletDamagePpMultiplier() * attackPattern.getBulletRadiusPpMultiplier() * attackPattern.getFireIntervalPpMultiplier() * attackPattern.getSpeedPpMultiplier())/3f, 1.5f);
+
+            CircleHitbox c1 = CircleHitbox.obtain();
+
+            // If circle hitbox contains more than 1 circle, each circle except the first is placed
+            // so that it is tangential to the first circle
+            int circlesCount = getEnemyRandomCirclesCount();
+            float c1Radius = getRandomCircleRadius(circlesCount);
+            for(int a = 1; a < circlesCount; a++) {
+                CircleHitbox c = CircleHitbox.obtain();
+
+                // Set color
+                c.setHitboxTextureType(RenderSystem.HitboxTextureType.ENEMY);
+
+                // Set attack pattern
+                c.setAttackPattern(attackPattern);
+
+                // Set radius
+                c.setRadius(getRandomCircleRadius(circlesCount));
+                circles.add(c);
+            }
+            EnemyPlacer.placeTangentCircles(random, c1Radius, circles);
+            // Circles that did not fit around the first are dropped
+            circlesCount = circles.size() + 1;
+            for(CircleHitbox c : circles) {
+                c.setBasePpGain(adjustedPpPerEnemy / circlesCount * Options.PP_GAIN_MULTIPLIER);
+            }
+
+            float totalCircleRadius = c1Radius;
+            for(int a = 0; a < circlesCount - 1; a++) {
+                totalCircleRadius += circles.get(a).radius;
+            }
+
+            c1.setBasePpGain(adjustedPpPerEnemy / circlesCount * Options.PP_GAIN_MULTIPLIER);
+
+            // Scale circle health to radius
+            float c1Health = c1Radius/totalCircleRadius * ecd.getMaxHealth();
+            c1.setBaseMaxHealth(c1Health);
+            c1.setHealth(c1.getMaxHealth());
+            for(int a = 0; a < circlesCount - 1; a++) {
+                CircleHitbox c = circles.get(a);
+
+                // Set health
+                float health = c.radius/totalCircleRadius * ecd.getMaxHealth();
+                c.setBaseMaxHealth(health);
+                c.setHealth(c.getMaxHealth());
+            }
+
+            // Calculate max size of entity hitbox
+            float maxSize = c1Radius;
+            float maxRadiusSoFar = 0;
+            for(CircleHitbox c : circles) {
+                if(c.radius > maxRadiusSoFar) {
+                    maxRadiusSoFar = c.radius;
+                }
+            }
+            // Extra padding of 5 pixels to avoid inaccuracies with MathUtils.cos/sin
+            maxSize += maxRadiusSoFar + 5f;
+
+            // Create bounding circle; kept by the enemy placer, so not a pooled CircleHitbox
+            Circle boundingCircle = new Circle(0, 0, maxSize);
+
+            // Randomize hitbox origin with padding equal to the hitbox max size around the map area circumference
+            // If there is no room left, the map area gets fewer enemies
+            if(!enemyPlacer.place(boundingCircle)) {
+                CircleHitbox.free(c1);
+                for(CircleHitbox c : circles) {
+                    CircleHitbox.free(c);
+                }
+                continue;
+            }
+            ecd.setSpawnPosition(boundingCircle.x, boundingCircle.y);
+            placedEnemies++;
+
+            // Create first circle
+            c1.setHitboxTextureType(RenderSystem.HitboxTextureType.ENEMY);
+            c1.setPosition(0, 0);
+            c1.setRadius(c1Radius);
+            c1.setAttackPattern(attackPattern);
+            circles.add(c1);
+
+            mapArea.entityCreationDataArrayList.add(ecd);
+            mapArea.onEnemyDataCreation(ecd);
+        }
+        if(placedEnemies < enemies) {
+            mapArea.setOriginalEnemyCount(placedEnemies);
+            mapArea.setEnemyCount(placedEnemies);
+        }
+        mapArea.setRegenerable(enemies);
+    }
+
+    /**
+     * Returns a random number for a randomly generated enemy's circle hitbox radius.
+     * @param circlesCount - Must be less than 8
+     */
+    private float getRandomCircleRadius(int circlesCount) {
+        return Utils.random(random, 35f - circlesCount*5f, 80f - circlesCount*10f);
+    }
+
+    /**
+     * Returns a random number for the number of circle hitboxes a randomly generated enemy will have.
+     * Weighted towards 1.
+     */
+    private int getEnemyRandomCirclesCount() {
+        float rand = random.nextFloat();
+        // 70% of returning 1
+        if(rand < 0.70f) {
+            return 1;
+        }
+        // 20% of 2
+        else if(rand < 0.9f) {
+            return 2;
+        }
+        // 10% of 3
+        else {
+            return 3;
+        }
+    }
+}
@@ -3,12 +3,12 @@ package map.mods;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.assets.AssetManager;
-import com.badlogic.gdx.math.MathUtils;
 
 import ai.AI;
 import map.EntityCreationData;
 import map.MapArea;
 import utils.CircleHitbox;
+import utils.Utils;
 
 /**
  * All enemies have SIMPLE_FOLLOW_TARGET AI
@@ -28,7 +28,7 @@ public class Aggressive extends MapAreaModifier {
     public void onEnemyDataCreation(EntityCreationData ecd) {
         if(ecd.getAiType() != AI.AIType.NONE) {
             ecd.setAiType(AI.AIType.SIMPLE_FOLLOW_TARGET);
-            ecd.setMaxSpeed(ecd.getMaxSpeed() * MathUtils.random(1.4f, 2.2f));
+            ecd.setMaxSpeed(ecd.getMaxSpeed() * Utils.random(mapArea.getRandom(), 1.4f, 2.2f));
 
             ecd.multiplyPpGain(1.15f);
         }
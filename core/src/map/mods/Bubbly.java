@@ -44,7 +44,7 @@ public class Bubbly extends MapAreaModifier {
             attackPattern = new AttackPattern();
             circleWrapper.setAttackPattern(attackPattern);
             attackPattern.setDuration(10f, true);
-            attackPattern.addRandomAttackPatternStatModifiers(mapArea.getMaxPixelPoints() / mapArea.getOriginalEnemyCount());
+            attackPattern.addRandomAttackPatternStatModifiers(mapArea.getMaxPixelPoints() / mapArea.getOriginalEnemyCount(), mapArea.getRandom());
             attackPattern.addAttackPart(new AttackPart()
                     .setAttackPartAngleDeterminant(AttackPart.AttackPartAngleDeterminant.NONE)
                     .setOriginX(0).setOriginY(0)
@@ -79,6 +79,16 @@ public class Bubbly extends MapAreaModifier {
 
     }
 
+    @Override
+    public MapAreaModifier copy() {
+        Bubbly copy = (Bubbly)super.copy();
+        // Attack parts are changed before every bubble
+        if(attackPattern != null) {
+            copy.attackPattern = attackPattern.clone();
+        }
+        return copy;
+    }
+
     @Override
     public void update(float deltaTime) {
         if(time < 0) {
@@ -40,7 +40,7 @@ public class Explosive extends MapAreaModifier {
         // Create new EntityCreationData that contains a single circle hitbox that wraps only an attack pattern so that
         // other map area modifiers can modify the attack pattern accordingly
         EntityCreationData ecd = new EntityCreationData(false);
-        CircleHitbox circleWrapper = new CircleHitbox();
+        CircleHitbox circleWrapper = CircleHitbox.obtain();
         circleWrapper.setHitboxTextureType(circle.getHitboxTextureType());
         ecd.getCircleHitboxes().add(circleWrapper);
         AttackPattern ap = new AttackPattern();
@@ -63,9 +63,8 @@ public class Explosive extends MapAreaModifier {
         mapArea.onEnemyDataCreation(ecd);
 
         HitboxComponent hitbox = Mappers.hitbox.get(enemy);
-        for(AttackPart a : ap.getAttackParts()) {
-            a.fire(engine, enemy, null, hitbox.getOrigin().x + circle.x, hitbox.getOrigin().y + circle.y, hitbox.getAimingAngle(), mapArea.getRadius());
-        }
+        ap.fireBatch(engine, enemy, null, hitbox.getOrigin().x + circle.x, hitbox.getOrigin().y + circle.y, hitbox.getAimingAngle(), mapArea.getRadius());
+        CircleHitbox.free(circleWrapper);
     }
 
     @Override
@@ -13,6 +13,8 @@ import components.HitboxComponent;
 import components.PpOrbComponent;
 import map.EntityCreationData;
 import map.MapArea;
+import systems.CollisionMatrix;
+import systems.MovementSystem;
 import systems.RenderSystem;
 import utils.CircleHitbox;
 import utils.Point;
@@ -62,6 +64,7 @@ public class Fracture extends MapAreaModifier {
                 c.setIsResultOfFracture(true);
                 hitbox.setMaxSpeed(maxSpeed);
                 hitbox.setIsShooting(true);
+                hitbox.setCollisionLayer(CollisionMatrix.ENEMY);
                 hitbox.addCircle(c, true);
                 hitbox.calculateGravitationalRadius();
                 e.add(hitbox);
@@ -88,7 +91,13 @@ public class Fracture extends MapAreaModifier {
                 }
                 hitbox.setAcceleration(acceleration * MathUtils.cos(angle) * a, acceleration * MathUtils.sin(angle) * b, timeToDestination / 2f);
 
-                engine.addEntity(e);
+                // Called while bullets are being checked for collisions, so the entity is added once they are done
+                MovementSystem movementSystem = engine.getSystem(MovementSystem.class);
+                if(movementSystem != null) {
+                    movementSystem.getCommandBuffer().queueAddition(e);
+                } else {
+                    engine.addEntity(e);
+                }
                 mapArea.addEnemy(e);
                 mapArea.onEntityEnter(e);
             }
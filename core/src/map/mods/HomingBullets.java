@@ -3,13 +3,13 @@ package map.mods;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.assets.AssetManager;
-import com.badlogic.gdx.math.MathUtils;
 import com.miv.AttackPart;
 import com.miv.AttackPattern;
 
 import map.EntityCreationData;
 import map.MapArea;
 import utils.CircleHitbox;
+import utils.Utils;
 
 /**
  * Created by Miv on 10/5/2017.
@@ -40,7 +40,7 @@ public class HomingBullets extends MapAreaModifier {
             for(CircleHitbox c : ecd.getCircleHitboxes()) {
                 AttackPattern attackPattern = c.getAttackPattern();
                 for(AttackPart ap : attackPattern.getAttackParts()) {
-                    ap.setPlayerAttractionLerpFactor(MathUtils.random(0.12f, 0.24f));
+                    ap.setPlayerAttractionLerpFactor(Utils.random(mapArea.getRandom(), 0.12f, 0.24f));
                 }
             }
 
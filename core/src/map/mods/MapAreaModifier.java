@@ -3,6 +3,7 @@ package map.mods;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 
 import map.EntityCreationData;
 import map.MapArea;
@@ -11,7 +12,7 @@ import utils.CircleHitbox;
 /**
  * Created by Miv on 9/28/2017.
  */
-public abstract class MapAreaModifier {
+public abstract class MapAreaModifier implements Cloneable {
     protected transient PooledEngine engine;
     protected transient AssetManager assetManager;
     protected transient MapArea mapArea;
@@ -42,6 +43,17 @@ public abstract class MapAreaModifier {
     public abstract void onPlayerLeave();
     public abstract void update(float deltaTime);
 
+    /**
+     * Copy for {@link MapArea#createSaveSnapshot()}. Mods that change objects in their saved fields must copy those too.
+     */
+    public MapAreaModifier copy() {
+        try {
+            return (MapAreaModifier)clone();
+        } catch(CloneNotSupportedException e) {
+            throw new GdxRuntimeException(e);
+        }
+    }
+
     public void setAssetManager(AssetManager assetManager) {
         this.assetManager = assetManager;
     }
@@ -3,11 +3,11 @@ package map.mods;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.assets.AssetManager;
-import com.badlogic.gdx.math.MathUtils;
 
 import map.EntityCreationData;
 import map.MapArea;
 import utils.CircleHitbox;
+import utils.Utils;
 
 /**
  * All enemy circles and bullets are larger than normal
@@ -27,7 +27,7 @@ public class Oversized extends MapAreaModifier {
     public void onEnemyDataCreation(EntityCreationData ecd) {
         if(ecd.isEnemy()) {
             // Every enemy's circle radius and attack pattern bullets' radii gets multiplied by a random number
-            float sizeMultiplier = MathUtils.random(1.5f, 2.5f);
+            float sizeMultiplier = Utils.random(mapArea.getRandom(), 1.5f, 2.5f);
             for (CircleHitbox c : ecd.getCircleHitboxes()) {
                 c.setOriginalPosX(c.getOriginalPosX() * sizeMultiplier);
                 c.setOriginalPosY(c.getOriginalPosY() * sizeMultiplier);
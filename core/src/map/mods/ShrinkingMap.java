@@ -3,11 +3,11 @@ package map.mods;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.assets.AssetManager;
-import com.badlogic.gdx.math.MathUtils;
 
 import map.EntityCreationData;
 import map.MapArea;
 import utils.CircleHitbox;
+import utils.Utils;
 
 /**
  * Created by Miv on 10/10/2017.
@@ -26,8 +26,8 @@ public class ShrinkingMap extends MapAreaModifier {
         super(engine, assetManager, mapArea, player);
         displayName = "Shrinking map";
 
-        minMapAreaRadius = mapArea.getRadius()/MathUtils.random(2.2f, 3.5f);
-        time = MathUtils.random(30f, 60f);
+        minMapAreaRadius = mapArea.getRadius()/Utils.random(mapArea.getRandom(), 2.2f, 3.5f);
+        time = Utils.random(mapArea.getRandom(), 30f, 60f);
         speed = (mapArea.getRadius() - minMapAreaRadius)/time;
     }
 
@@ -3,12 +3,12 @@ package map.mods;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.assets.AssetManager;
-import com.badlogic.gdx.math.MathUtils;
 import com.miv.AttackPart;
 
 import map.EntityCreationData;
 import map.MapArea;
 import utils.CircleHitbox;
+import utils.Utils;
 
 /**
  * Created by Miv on 10/9/2017.
@@ -37,7 +37,7 @@ public class Speedy extends MapAreaModifier {
     @Override
     public void onEnemyDataCreation(EntityCreationData ecd) {
         ecd.multiplyPpGain(1.35f);
-        float speedMultiplier = MathUtils.random(1.25f, 2f);
+        float speedMultiplier = Utils.random(mapArea.getRandom(), 1.25f, 2f);
         ecd.setMaxSpeed(ecd.getMaxSpeed() * speedMultiplier);
         for(CircleHitbox c : ecd.getCircleHitboxes()) {
             if(c.getAttackPattern() != null) {
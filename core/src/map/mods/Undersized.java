@@ -3,11 +3,11 @@ package map.mods;
 import com.badlogic.ashley.core.Entity;
 import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.assets.AssetManager;
-import com.badlogic.gdx.math.MathUtils;
 
 import map.EntityCreationData;
 import map.MapArea;
 import utils.CircleHitbox;
+import utils.Utils;
 
 /**
  * Created by Miv on 10/11/2017.
@@ -36,7 +36,7 @@ public class Undersized extends MapAreaModifier {
     @Override
     public void onEnemyDataCreation(EntityCreationData ecd) {
         // Every enemy's circle radius and attack pattern bullets' radii gets multiplied by a random number
-        float sizeMultiplier = MathUtils.random(0.25f, 0.6f);
+        float sizeMultiplier = Utils.random(mapArea.getRandom(), 0.25f, 0.6f);
         for (CircleHitbox c : ecd.getCircleHitboxes()) {
             c.setOriginalPosX(c.getOriginalPosX() * sizeMultiplier);
             c.setOriginalPosY(c.getOriginalPosY() * sizeMultiplier);
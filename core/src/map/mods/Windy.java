@@ -10,10 +10,13 @@ import com.miv.Main;
 import com.miv.Mappers;
 import com.miv.Options;
 
+import java.util.Random;
+
 import components.HitboxComponent;
 import map.EntityCreationData;
 import map.MapArea;
 import utils.CircleHitbox;
+import utils.Utils;
 
 /**
  * A wind current blowing at a random angle with a random magnitude appears every few seconds, pushing the player and all enemies
@@ -32,8 +35,11 @@ public class Windy extends MapAreaModifier {
     public Windy(PooledEngine engine, AssetManager assetManager, MapArea mapArea, Entity player) {
         super(engine, assetManager, mapArea, player);
         displayName = "Windy";
-        windWooshSound = assetManager.get(assetManager.getFileHandleResolver().resolve(Main.WIND_WOOSH_SOUND_PATH).path());
-        newWindCurrent();
+        if(assetManager != null) {
+            windWooshSound = assetManager.get(assetManager.getFileHandleResolver().resolve(Main.WIND_WOOSH_SOUND_PATH).path());
+        }
+        // Only pick the first wind current; it is applied to entities as they enter the map area
+        randomizeWindCurrent(mapArea.getRandom());
     }
 
     @Override
@@ -44,7 +50,12 @@ public class Windy extends MapAreaModifier {
 
     @Override
     public void onPlayerLeave() {
-        // No need to stop wind on enemies since a new HitboxComponent is constructed for each enemy when player enters new area
+        // Enemies keep their HitboxComponent while the player is away and get the wind again when they come back
+        for(Entity e : mapArea.getEnemies()) {
+            HitboxComponent hitbox = Mappers.hitbox.get(e);
+            Vector2 vel2 = hitbox.getVelocity2();
+            hitbox.setVelocity2(vel2.x - windX, vel2.y - windY);
+        }
         HitboxComponent playerHitbox = Mappers.hitbox.get(player);
         Vector2 playerVel2 = playerHitbox.getVelocity2();
         playerHitbox.setVelocity2(playerVel2.x - windX, playerVel2.y - windY);
@@ -61,11 +72,7 @@ public class Windy extends MapAreaModifier {
         Vector2 playerVel2 = playerHitbox.getVelocity2();
         playerHitbox.setVelocity2(playerVel2.x - windX, playerVel2.y - windY);
 
-        // New wind direction and magnitude
-        float angle = MathUtils.random(MathUtils.PI2);
-        float magnitude = MathUtils.random(1f, Options.PLAYER_BASE_MAX_SPEED/2f);
-        windX = magnitude * MathUtils.cos(angle);
-        windY = magnitude * MathUtils.sin(angle);
+        randomizeWindCurrent(MathUtils.random);
 
         // Apply wind
         for(Entity e : mapArea.getEnemies()) {
@@ -76,9 +83,21 @@ public class Windy extends MapAreaModifier {
         playerHitbox.setVelocity2(playerVel2.x + windX, playerVel2.y + windY);
 
         // Play wind woosh sound
-        windWooshSound.play(Options.MASTER_VOLUME * Options.SOUND_VOLUME);
+        if(windWooshSound != null) {
+            windWooshSound.play(Options.MASTER_VOLUME * Options.SOUND_VOLUME);
+        }
+    }
+
+    /**
+     * Picks a new wind direction and magnitude without applying it to anything
+     */
+    private void randomizeWindCurrent(Random random) {
+        float angle = Utils.random(random, 0f, MathUtils.PI2);
+        float magnitude = Utils.random(random, 1f, Options.PLAYER_BASE_MAX_SPEED/2f);
+        windX = magnitude * MathUtils.cos(angle);
+        windY = magnitude * MathUtils.sin(angle);
 
-        timeUntilNewWindCurrent = MathUtils.random(6f, 12f);
+        timeUntilNewWindCurrent = Utils.random(random, 6f, 12f);
     }
 
     @Override
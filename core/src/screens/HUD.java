@@ -27,6 +27,7 @@ import com.miv.Main;
 import com.miv.Mappers;
 
 import map.Map;
+import utils.NumberFormatter;
 import utils.Point;
 
 /**
@@ -72,6 +73,8 @@ public class HUD implements Screen {
 
     private Label pp;
     private float ppY;
+    // Reused so that updating the pp label does not allocate
+    private StringBuilder ppText = new StringBuilder();
 
     public HUD(final Main main, final AssetManager assetManager, final InputMultiplexer inputMultiplexer, final GestureListener gestureListener, final Entity player, final Map map) {
         this.main = main;
@@ -200,7 +203,9 @@ public class HUD implements Screen {
     public void updateActors() {
         // Update pp label
         float pixelPoints = Mappers.player.get(player).getPixelPoints();
-        pp.setText(PlayerBuilder.formatNumber(pixelPoints) + "pp");
+        ppText.setLength(0);
+        NumberFormatter.appendNumber(ppText, pixelPoints).append("pp");
+        pp.setText(ppText);
         pp.setPosition(PP_LABEL_X, ppY);
 
         if(main.getMap().getCurrentArea().getEnemyCount() == 0) {
@@ -37,10 +37,10 @@ import com.miv.Main;
 import com.miv.Mappers;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import map.Map;
 import systems.RenderSystem;
+import utils.AreaIndex;
 import utils.Point;
 import utils.Utils;
 
@@ -127,7 +127,7 @@ public class MapScreen implements Screen {
     private BitmapFont mapAreaModsFont;
     private float modsFontHeight;
 
-    private HashMap<Point, MapScreenArea> mapAreas;
+    private AreaIndex<MapScreenArea> mapAreas;
     private ShapeRenderer shapeRenderer;
 
     private Point lastKnownTouchDraggedPoint;
@@ -273,10 +273,10 @@ public class MapScreen implements Screen {
             });
             stage.addActor(button);
 
-            if(mapAreas.containsKey(new Point(area.x + 1, area.y))) {
+            if(mapAreas.containsKey((int)area.x + 1, (int)area.y)) {
                 area.hasAreaRight = true;
             }
-            if(mapAreas.containsKey(new Point(area.x, area.y + 1))) {
+            if(mapAreas.containsKey((int)area.x, (int)area.y + 1)) {
                 area.hasAreaUp = true;
             }
         }
@@ -350,7 +350,7 @@ public class MapScreen implements Screen {
         inputMultiplexer.addProcessor(noCameraStage);
         inputMultiplexer.addProcessor(stage);
         // Select current location
-        selectedMapArea = mapAreas.get(map.getFocus());
+        selectedMapArea = mapAreas.get((int)map.getFocus().x, (int)map.getFocus().y);
         stageCamera.zoom = 1;
         updateActors();
     }
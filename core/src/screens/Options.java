@@ -26,6 +26,7 @@ import com.badlogic.gdx.utils.Align;
 import com.miv.AudioPlayer;
 import com.miv.Main;
 import com.miv.Mappers;
+import com.miv.Profiler;
 import com.miv.Save;
 
 import components.HitboxComponent;
@@ -214,6 +215,23 @@ public class Options implements Screen {
         });
         stage.addActor(ppGainDisplay);
 
+        // Create profiler overlay toggle; a CSV of the recorded frames is written when it is turned off
+        final CheckBox profilerDisplay = new CheckBox("Show profiler", skin);
+        profilerDisplay.setChecked(Profiler.isEnabled());
+        profilerDisplay.getLabelCell().padLeft(15f);
+        profilerDisplay.getLabel().setColor(Color.BLACK);
+        profilerDisplay.getLabel().setFontScale(2f);
+        profilerDisplay.align(Align.left);
+        profilerDisplay.setSize(CHECKBOX_WIDTH, CHECKBOX_HEIGHT);
+        profilerDisplay.setPosition(ppGainDisplay.getX(), ppGainDisplay.getY() - CHECKBOX_HEIGHT - CHECKBOX_PADDING);
+        profilerDisplay.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                main.setProfilerEnabled(profilerDisplay.isChecked());
+            }
+        });
+        stage.addActor(profilerDisplay);
+
         // Delete save button
         deleteSave = new TextButton("Delete save", skin);
         deleteSave.getLabel().setColor(Color.WHITE);
@@ -50,6 +50,7 @@ import factories.AttackPatternFactory;
 import jdk.nashorn.internal.runtime.Specialization;
 import systems.RenderSystem;
 import utils.CircleHitbox;
+import utils.NumberFormatter;
 import utils.Point;
 import utils.Utils;
 
@@ -994,7 +995,7 @@ public class PlayerBuilder implements Screen {
 
         saveStateToUndoStack();
 
-        CircleHitbox c = new CircleHitbox();
+        CircleHitbox c = CircleHitbox.obtain();
         c.setHitboxTextureType(RenderSystem.HitboxTextureType.PLAYER);
         c.radius = com.miv.Options.DEFAULT_NEW_CIRCLE_RADIUS;
         c.x = worldCoordinates.x;
@@ -1227,7 +1228,7 @@ public class PlayerBuilder implements Screen {
         loadPlayerRenderIntoPlayerEntity();
         loadPlayerRenderFromPlayerEntity();
 
-        Save.save(main);
+        Save.save(main.getSimulation());
 
         unsavedChangesExist = false;
         undoStack.clear();
@@ -1263,9 +1264,7 @@ public class PlayerBuilder implements Screen {
         }
         HitboxComponent hitbox = Mappers.hitbox.get(player);
         hitbox.clearCircles();
-        for(CircleHitbox c : playerRender) {
-            hitbox.addCircle(c, true);
-        }
+        hitbox.addCircles(playerRender, true);
 
         hitbox.setLastFacedAngle(hitbox.getLastFacedAngle());
     }
@@ -1377,7 +1376,7 @@ public class PlayerBuilder implements Screen {
     @Override
     public void show() {
         //TODO remove this
-        Mappers.player.get(player).setPixelPoints(main, 5000, false);
+        Mappers.player.get(player).setPixelPoints(main.getSimulation(), 5000, false);
         inputMultiplexer.addProcessor(0, stage);
 
         disableTouch = false;
@@ -1501,33 +1500,11 @@ public class PlayerBuilder implements Screen {
         return s;
     }
 
+    /**
+     * @see NumberFormatter#appendNumber(StringBuilder, float)
+     */
     public static String formatNumber(float pp) {
-        if(pp == 0) {
-            return "0";
-        } else if(Math.abs(pp) < 1) {
-            String s = String.format("%.3f", pp);
-            // Make sure string doesn't end in a 0 if there is a decimal point
-            while((s.charAt(s.length() - 1) == '0' && s.contains(".")) || s.charAt(s.length() - 1) == '.') {
-                s = s.substring(0, s.length() - 1);
-            }
-            return s;
-        } else if(Math.abs(pp) < 10) {
-            String s = String.format("%.2f", pp);
-            // Make sure string doesn't end in a 0 if there is a decimal point
-            while((s.charAt(s.length() - 1) == '0' && s.contains(".")) || s.charAt(s.length() - 1) == '.') {
-                s = s.substring(0, s.length() - 1);
-            }
-            return s;
-        } else if(Math.abs(pp) < 100) {
-            String s = String.format("%.1f", pp);
-            // Make sure string doesn't end in a 0 if there is a decimal point
-            while((s.charAt(s.length() - 1) == '0' && s.contains(".")) || s.charAt(s.length() - 1) == '.') {
-                s = s.substring(0, s.length() - 1);
-            }
-            return s;
-        } else {
-            return String.valueOf(Math.round(pp));
-        }
+        return NumberFormatter.appendNumber(new StringBuilder(), pp).toString();
     }
 
     @Override
@@ -1793,7 +1770,7 @@ public class PlayerBuilder implements Screen {
 
         // Set player pp in hide() to avoid multiple +pp float text appearing if
         // making multiple changes in one session
-        Mappers.player.get(player).setPixelPoints(main, lastSavedPp, false);
+        Mappers.player.get(player).setPixelPoints(main.getSimulation(), lastSavedPp, false);
 
         playerRender.clear();
         unsavedCircles.clear();
@@ -6,6 +6,7 @@ import com.badlogic.ashley.core.EntitySystem;
 import com.badlogic.ashley.core.Family;
 import com.badlogic.ashley.utils.ImmutableArray;
 import com.miv.Mappers;
+import com.miv.Profiler;
 
 import components.AIComponent;
 
@@ -27,8 +28,10 @@ public class AISystem extends EntitySystem {
 
     @Override
     public void update(float deltaTime) {
+        Profiler.begin(Profiler.Section.AI_SYSTEM);
         for(Entity e : entities) {
             Mappers.ai.get(e).getAi().update(deltaTime);
         }
+        Profiler.end(Profiler.Section.AI_SYSTEM);
     }
 }
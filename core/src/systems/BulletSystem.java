@@ -0,0 +1,317 @@
+package systems;
+
+import com.badlogic.ashley.core.Engine;
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.EntitySystem;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.miv.Mappers;
+import com.miv.Options;
+import com.miv.Profiler;
+
+import components.HitboxComponent;
+import map.Map;
+import utils.CircleHitbox;
+import utils.Point;
+import utils.SpatialHash;
+import utils.Utils;
+
+/**
+ * Bullets are kept out of the engine and stored as parallel primitive arrays, since they are by far the most numerous
+ * object and only ever need to move, expire, hit things and be drawn.
+ * Must be added to the engine before {@link MovementSystem} so that hits are processed by it in the same frame.
+ */
+public class BulletSystem extends EntitySystem {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final float BROADPHASE_CELL_SIZE = 256f;
+
+    private MovementSystem movementSystem;
+    private Map map;
+    private Entity player;
+
+    private int count;
+    private float[] x;
+    private float[] y;
+    // Position at the start of the last update; used to interpolate rendering between simulation ticks
+    private float[] previousX;
+    private float[] previousY;
+    private float[] velocityX;
+    private float[] velocityY;
+    private float[] radius;
+    private float[] damage;
+    private float[] lifestealMultiplier;
+    private float[] playerAttractionLerpFactor;
+    // Time until the bullet expires; negative if it never does
+    private float[] timeLeft;
+    // Entity healed by lifesteal
+    private Entity[] owner;
+    private boolean[] fromPlayer;
+    // HitboxTextureType id
+    private int[] color;
+    private boolean[] dead;
+
+    private ImmutableArray<Entity> entities;
+    // Circles of every hitbox on a layer that bullets damage; see CollisionMatrix.Interaction#DAMAGE
+    private SpatialHash targetsGrid;
+    private Array<SpatialHash.Entry> broadphaseCandidates;
+
+    public BulletSystem(MovementSystem movementSystem, Map map) {
+        this.movementSystem = movementSystem;
+        this.map = map;
+        allocate(INITIAL_CAPACITY);
+        targetsGrid = new SpatialHash(BROADPHASE_CELL_SIZE);
+        broadphaseCandidates = new Array<SpatialHash.Entry>();
+    }
+
+    @Override
+    public void addedToEngine(Engine engine) {
+        entities = engine.getEntitiesFor(Family.all(HitboxComponent.class).get());
+    }
+
+    @Override
+    public void removedFromEngine(Engine engine) {
+        entities = engine.getEntitiesFor(Family.all(HitboxComponent.class).get());
+    }
+
+    private void allocate(int capacity) {
+        x = resize(x, capacity);
+        y = resize(y, capacity);
+        previousX = resize(previousX, capacity);
+        previousY = resize(previousY, capacity);
+        velocityX = resize(velocityX, capacity);
+        velocityY = resize(velocityY, capacity);
+        radius = resize(radius, capacity);
+        damage = resize(damage, capacity);
+        lifestealMultiplier = resize(lifestealMultiplier, capacity);
+        playerAttractionLerpFactor = resize(playerAttractionLerpFactor, capacity);
+        timeLeft = resize(timeLeft, capacity);
+
+        Entity[] newOwner = new Entity[capacity];
+        boolean[] newFromPlayer = new boolean[capacity];
+        int[] newColor = new int[capacity];
+        boolean[] newDead = new boolean[capacity];
+        if(owner != null) {
+            System.arraycopy(owner, 0, newOwner, 0, count);
+            System.arraycopy(fromPlayer, 0, newFromPlayer, 0, count);
+            System.arraycopy(color, 0, newColor, 0, count);
+            System.arraycopy(dead, 0, newDead, 0, count);
+        }
+        owner = newOwner;
+        fromPlayer = newFromPlayer;
+        color = newColor;
+        dead = newDead;
+    }
+
+    private float[] resize(float[] array, int capacity) {
+        float[] newArray = new float[capacity];
+        if(array != null) {
+            System.arraycopy(array, 0, newArray, 0, count);
+        }
+        return newArray;
+    }
+
+    /**
+     * Grows the bullet arrays so that the given number of bullets can be spawned without growing them again
+     */
+    public void ensureCapacity(int additionalBullets) {
+        if(count + additionalBullets > x.length) {
+            allocate(Math.max(x.length * 2, count + additionalBullets));
+        }
+    }
+
+    /**
+     * Adds a bullet. Bullets spawned during {@link #update(float)} start moving on the next frame.
+     * @param angle - angle of travel in radians
+     * @param entityToBeHealed - entity healed by lifesteal; can be null
+     * @param fromPlayer - true if the bullet damages what the player's layer damages in the {@link CollisionMatrix};
+     *                   false if it damages what the enemies' layer damages
+     * @param lifetime - time in seconds until the bullet expires; negative if it does not expire
+     */
+    public void spawn(float x, float y, float speed, float angle, float radius, float damage, Entity entityToBeHealed, float lifestealMultiplier,
+                      float playerAttractionLerpFactor, float lifetime, boolean fromPlayer, RenderSystem.HitboxTextureType color) {
+        if(count == this.x.length) {
+            allocate(count * 2);
+        }
+        int i = count;
+        this.x[i] = x;
+        this.y[i] = y;
+        previousX[i] = x;
+        previousY[i] = y;
+        velocityX[i] = speed * MathUtils.cos(angle);
+        velocityY[i] = speed * MathUtils.sin(angle);
+        this.radius[i] = radius;
+        this.damage[i] = damage;
+        owner[i] = entityToBeHealed;
+        this.lifestealMultiplier[i] = lifestealMultiplier;
+        this.playerAttractionLerpFactor[i] = playerAttractionLerpFactor;
+        timeLeft[i] = lifetime;
+        this.fromPlayer[i] = fromPlayer;
+        this.color[i] = color.getId();
+        dead[i] = false;
+        count++;
+    }
+
+    @Override
+    public void update(float deltaTime) {
+        Profiler.begin(Profiler.Section.BULLET_SYSTEM);
+        // Victims do not move until MovementSystem runs, so the grid is valid for the whole update
+        CollisionMatrix collisionMatrix = movementSystem.getCollisionMatrix();
+        fillGrid(targetsGrid, collisionMatrix.getTargetLayers(CollisionMatrix.Interaction.DAMAGE));
+        int playerBulletTargets = collisionMatrix.getMask(CollisionMatrix.PLAYER, CollisionMatrix.Interaction.DAMAGE);
+        int enemyBulletTargets = collisionMatrix.getMask(CollisionMatrix.ENEMY, CollisionMatrix.Interaction.DAMAGE);
+
+        float boundary = map.getCurrentArea().getRadius() * 1.5f;
+        Point playerOrigin = null;
+        if(player != null && Mappers.hitbox.has(player) && !Mappers.hitbox.get(player).isIgnoreGravity()) {
+            playerOrigin = Mappers.hitbox.get(player).getOrigin();
+        }
+
+        // Hits can spawn more bullets (eg Explosive), which may reallocate the arrays, so fields are not cached in locals
+        int n = count;
+        for(int i = 0; i < n; i++) {
+            if(dead[i]) {
+                continue;
+            }
+            previousX[i] = x[i];
+            previousY[i] = y[i];
+
+            // Square boundaries have side length of 3x the radius
+            if(Math.abs(x[i]) > boundary || Math.abs(y[i]) > boundary) {
+                dead[i] = true;
+                continue;
+            }
+
+            checkForCollision(i, fromPlayer[i] ? playerBulletTargets : enemyBulletTargets);
+            if(dead[i]) {
+                continue;
+            }
+
+            // Enemy bullets curve towards the player
+            if(!fromPlayer[i] && playerAttractionLerpFactor[i] != 0 && playerOrigin != null) {
+                float velocityAngle = MathUtils.atan2(velocityY[i], velocityX[i]);
+                float angleDifference = Utils.normalizeAngleIn180Range(velocityAngle - MathUtils.atan2(y[i] - playerOrigin.y, x[i] - playerOrigin.x));
+                velocityAngle += angleDifference * deltaTime * playerAttractionLerpFactor[i];
+
+                float magnitude = (float)Math.sqrt(velocityX[i]*velocityX[i] + velocityY[i]*velocityY[i]);
+                velocityX[i] = magnitude * MathUtils.cos(velocityAngle);
+                velocityY[i] = magnitude * MathUtils.sin(velocityAngle);
+            }
+
+            x[i] += velocityX[i] * deltaTime * Options.GLOBAL_MOVEMENT_SPEED_MULTIPLIER;
+            y[i] += velocityY[i] * deltaTime * Options.GLOBAL_MOVEMENT_SPEED_MULTIPLIER;
+
+            if(timeLeft[i] >= 0) {
+                timeLeft[i] -= deltaTime;
+                if(timeLeft[i] <= 0) {
+                    dead[i] = true;
+                }
+            }
+        }
+
+        compact();
+        Profiler.end(Profiler.Section.BULLET_SYSTEM);
+    }
+
+    private void fillGrid(SpatialHash grid, int layers) {
+        grid.clear();
+        for (Entity entity : entities) {
+            HitboxComponent entityHitbox = Mappers.hitbox.get(entity);
+            if((entityHitbox.getCollisionLayer() & layers) == 0) {
+                continue;
+            }
+            Point origin = entityHitbox.getOrigin();
+            for (CircleHitbox c : entityHitbox.getCircles()) {
+                grid.insert(entity, c, origin.x + c.x, origin.y + c.y, c.radius);
+            }
+        }
+    }
+
+    /**
+     * Marks bullet i as dead if it hits a circle of a hitbox on one of the given layers
+     */
+    private void checkForCollision(int i, int layers) {
+        targetsGrid.query(x[i], y[i], radius[i], broadphaseCandidates);
+        for(int j = 0; j < broadphaseCandidates.size; j++) {
+            Entity victim = broadphaseCandidates.get(j).getEntity();
+            if((Mappers.hitbox.get(victim).getCollisionLayer() & layers) == 0) {
+                continue;
+            }
+            CircleHitbox c = broadphaseCandidates.get(j).getCircle();
+            Point origin = Mappers.hitbox.get(victim).getOrigin();
+            float dx = x[i] - (c.x + origin.x);
+            float dy = y[i] - (c.y + origin.y);
+            if(dx*dx + dy*dy <= (radius[i] + c.radius)*(radius[i] + c.radius)) {
+                if(movementSystem.handleBulletCollision(victim, c, damage[i], owner[i], lifestealMultiplier[i], x[i], y[i])) {
+                    dead[i] = true;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes dead bullets while keeping the rest in order of creation
+     */
+    private void compact() {
+        int alive = 0;
+        for(int i = 0; i < count; i++) {
+            if(!dead[i]) {
+                if(alive != i) {
+                    x[alive] = x[i];
+                    y[alive] = y[i];
+                    previousX[alive] = previousX[i];
+                    previousY[alive] = previousY[i];
+                    velocityX[alive] = velocityX[i];
+                    velocityY[alive] = velocityY[i];
+                    radius[alive] = radius[i];
+                    damage[alive] = damage[i];
+                    owner[alive] = owner[i];
+                    lifestealMultiplier[alive] = lifestealMultiplier[i];
+                    playerAttractionLerpFactor[alive] = playerAttractionLerpFactor[i];
+                    timeLeft[alive] = timeLeft[i];
+                    fromPlayer[alive] = fromPlayer[i];
+                    color[alive] = color[i];
+                    dead[alive] = false;
+                }
+                alive++;
+            }
+        }
+        for(int i = alive; i < count; i++) {
+            owner[i] = null;
+        }
+        count = alive;
+    }
+
+    /**
+     * @param alpha - fraction of a simulation tick elapsed since the last update, from 0 to 1
+     */
+    public void addTo(CircleRenderQueue queue, float alpha) {
+        for(int i = 0; i < count; i++) {
+            queue.add(previousX[i] + (x[i] - previousX[i]) * alpha, previousY[i] + (y[i] - previousY[i]) * alpha, radius[i], color[i]);
+        }
+    }
+
+    /**
+     * Removes all bullets
+     */
+    public void clear() {
+        for(int i = 0; i < count; i++) {
+            owner[i] = null;
+        }
+        count = 0;
+    }
+
+    public int getBulletCount() {
+        return count;
+    }
+
+    public void setMap(Map map) {
+        this.map = map;
+    }
+
+    public void setPlayer(Entity player) {
+        this.player = player;
+    }
+}
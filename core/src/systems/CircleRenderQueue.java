@@ -0,0 +1,280 @@
+package systems;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.miv.Mappers;
+import com.miv.Options;
+
+import java.util.ArrayList;
+
+import components.HitboxComponent;
+import utils.CircleHitbox;
+
+/**
+ * Circles and health bars that are inside the camera's view, gathered in a single pass over the entities and bullets
+ * so that {@link RenderSystem} can draw all fills, all outlines and all health bars each in one run without touching
+ * the entities again. Also counts the vertices and draw calls that drawing them submits, which does not need a GL
+ * context, so the effect of culling can be measured headlessly.
+ */
+public class CircleRenderQueue {
+    // Sizes RenderSystem creates its SpriteBatch and ShapeRenderer with; a batch is flushed once it is full
+    public static final int SPRITE_BATCH_SIZE = 1000;
+    public static final int SHAPE_RENDERER_MAX_VERTICES = 5000;
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Health bar y-axis offset from center of circle
+    static final float HEALTH_BAR_Y = -20f;
+
+    private boolean culling;
+    private float minX;
+    private float minY;
+    private float maxX;
+    private float maxY;
+
+    private int circleCount;
+    private float[] x = new float[INITIAL_CAPACITY];
+    private float[] y = new float[INITIAL_CAPACITY];
+    private float[] radius = new float[INITIAL_CAPACITY];
+    // HitboxTextureType id of the fill and outline
+    private int[] textureType = new int[INITIAL_CAPACITY];
+
+    // Health bars are positioned by the left end of their rectangle
+    private int healthBarCount;
+    private float[] healthBarX = new float[INITIAL_CAPACITY];
+    private float[] healthBarY = new float[INITIAL_CAPACITY];
+    private float[] healthBarWidth = new float[INITIAL_CAPACITY];
+    private float[] healthBarRadius = new float[INITIAL_CAPACITY];
+    private int[] healthBarTextureType = new int[INITIAL_CAPACITY];
+
+    private int culledCount;
+
+    /**
+     * Clears the queue; nothing is culled
+     */
+    public void begin() {
+        culling = false;
+        clear();
+    }
+
+    /**
+     * Clears the queue; circles and health bars entirely outside the given bounds are culled
+     */
+    public void begin(float minX, float minY, float maxX, float maxY) {
+        culling = true;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        clear();
+    }
+
+    private void clear() {
+        circleCount = 0;
+        healthBarCount = 0;
+        culledCount = 0;
+    }
+
+    /**
+     * Adds the circles of every entity and the health bars of those that show them
+     * @param alpha fraction of a simulation tick elapsed since the last tick
+     */
+    public void addEntities(ImmutableArray<Entity> entities, float alpha) {
+        for(int i = 0; i < entities.size(); i++) {
+            Entity e = entities.get(i);
+            HitboxComponent hitbox = Mappers.hitbox.get(e);
+            float originX = hitbox.getInterpolatedOriginX(alpha);
+            float originY = hitbox.getInterpolatedOriginY(alpha);
+            boolean showHealthBars = (Options.SHOW_ENEMY_HEALTH_BARS && Mappers.enemy.has(e))
+                    || (Options.SHOW_PLAYER_HEALTH_BARS && (Mappers.player.has(e) || Mappers.obstacle.has(e)));
+
+            ArrayList<CircleHitbox> circles = hitbox.getCircles();
+            for(int j = 0; j < circles.size(); j++) {
+                CircleHitbox c = circles.get(j);
+                float x = originX + c.x;
+                float y = originY + c.y;
+                add(x, y, c.radius, c.getColor() == null ? c.getHitboxTextureType().getId() : c.getColor().getId());
+
+                if(showHealthBars && c.getHealth() < c.getMaxHealth()) {
+                    float width = c.getHealth() / c.getMaxHealth() * c.radius * 2.5f;
+                    addHealthBar(x - width / 2f, y + HEALTH_BAR_Y, width, Math.min(18f, c.radius / 12f), c.getHitboxTextureType().getId());
+                }
+            }
+        }
+    }
+
+    public void add(float x, float y, float radius, int textureType) {
+        if(isCulled(x - radius, y - radius, x + radius, y + radius)) {
+            culledCount++;
+            return;
+        }
+        if(circleCount == this.x.length) {
+            int capacity = circleCount * 2;
+            this.x = copyOf(this.x, capacity);
+            this.y = copyOf(this.y, capacity);
+            this.radius = copyOf(this.radius, capacity);
+            this.textureType = copyOf(this.textureType, capacity);
+        }
+        this.x[circleCount] = x;
+        this.y[circleCount] = y;
+        this.radius[circleCount] = radius;
+        this.textureType[circleCount] = textureType;
+        circleCount++;
+    }
+
+    private void addHealthBar(float x, float y, float width, float radius, int textureType) {
+        if(isCulled(x - radius, y, x + width + radius, y + radius * 2f)) {
+            return;
+        }
+        if(healthBarCount == healthBarX.length) {
+            int capacity = healthBarCount * 2;
+            healthBarX = copyOf(healthBarX, capacity);
+            healthBarY = copyOf(healthBarY, capacity);
+            healthBarWidth = copyOf(healthBarWidth, capacity);
+            healthBarRadius = copyOf(healthBarRadius, capacity);
+            healthBarTextureType = copyOf(healthBarTextureType, capacity);
+        }
+        healthBarX[healthBarCount] = x;
+        healthBarY[healthBarCount] = y;
+        healthBarWidth[healthBarCount] = width;
+        healthBarRadius[healthBarCount] = radius;
+        healthBarTextureType[healthBarCount] = textureType;
+        healthBarCount++;
+    }
+
+    private boolean isCulled(float left, float bottom, float right, float top) {
+        return culling && (right < minX || left > maxX || top < minY || bottom > maxY);
+    }
+
+    private static float[] copyOf(float[] array, int length) {
+        float[] copy = new float[length];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    /**
+     * Same number of segments ShapeRenderer uses for a circle of this radius
+     */
+    static int getCircleSegments(float radius) {
+        return Math.max(1, (int)(6 * (float)Math.cbrt(radius)));
+    }
+
+    /**
+     * Same number of segments ShapeRenderer uses for a half circle of this radius
+     */
+    static int getHalfCircleSegments(float radius) {
+        return Math.max(1, (int)(6 * (float)Math.cbrt(radius) * 0.5f));
+    }
+
+    /**
+     * Number of vertices submitted when everything in the queue is drawn
+     */
+    public int getVertexCount() {
+        // Each fill is a textured quad
+        int vertices = circleCount * 4;
+        for(int i = 0; i < circleCount; i++) {
+            vertices += getOutlineVertexCount(radius[i]);
+        }
+        for(int i = 0; i < healthBarCount; i++) {
+            vertices += getHealthBarVertexCount(healthBarRadius[i]);
+        }
+        return vertices;
+    }
+
+    /**
+     * Number of draw calls made when everything in the queue is drawn: one per full SpriteBatch for the fills, then one
+     * per full ShapeRenderer buffer for the outlines and again for the health bars, since changing shape type flushes
+     */
+    public int getDrawCallCount() {
+        int drawCalls = (circleCount + SPRITE_BATCH_SIZE - 1) / SPRITE_BATCH_SIZE;
+
+        int vertices = 0;
+        for(int i = 0; i < circleCount; i++) {
+            int outlineVertices = getOutlineVertexCount(radius[i]);
+            if(vertices + outlineVertices > SHAPE_RENDERER_MAX_VERTICES) {
+                drawCalls++;
+                vertices = 0;
+            }
+            vertices += outlineVertices;
+        }
+        if(vertices > 0) {
+            drawCalls++;
+        }
+
+        vertices = 0;
+        for(int i = 0; i < healthBarCount; i++) {
+            int healthBarVertices = getHealthBarVertexCount(healthBarRadius[i]);
+            if(vertices + healthBarVertices > SHAPE_RENDERER_MAX_VERTICES) {
+                drawCalls++;
+                vertices = 0;
+            }
+            vertices += healthBarVertices;
+        }
+        if(vertices > 0) {
+            drawCalls++;
+        }
+        return drawCalls;
+    }
+
+    private static int getOutlineVertexCount(float radius) {
+        return getCircleSegments(radius) * 2 + 2;
+    }
+
+    private static int getHealthBarVertexCount(float radius) {
+        // Two filled arcs and a filled rectangle
+        return (getHalfCircleSegments(radius) * 3 + 3) * 2 + 6;
+    }
+
+    public int getCircleCount() {
+        return circleCount;
+    }
+
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    public int getHealthBarCount() {
+        return healthBarCount;
+    }
+
+    float getX(int i) {
+        return x[i];
+    }
+
+    float getY(int i) {
+        return y[i];
+    }
+
+    float getRadius(int i) {
+        return radius[i];
+    }
+
+    int getTextureType(int i) {
+        return textureType[i];
+    }
+
+    float getHealthBarX(int i) {
+        return healthBarX[i];
+    }
+
+    float getHealthBarY(int i) {
+        return healthBarY[i];
+    }
+
+    float getHealthBarWidth(int i) {
+        return healthBarWidth[i];
+    }
+
+    float getHealthBarRadius(int i) {
+        return healthBarRadius[i];
+    }
+
+    int getHealthBarTextureType(int i) {
+        return healthBarTextureType[i];
+    }
+}
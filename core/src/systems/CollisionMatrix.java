@@ -0,0 +1,117 @@
+package systems;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.miv.Options;
+
+import components.HitboxComponent;
+
+/**
+ * Collision layers that every {@link HitboxComponent} is on, and which layers interact with which.
+ * For every layer and {@link Interaction}, the matrix holds a mask of the layers it interacts with; the systems query
+ * their broadphase grids once per hitbox (or bullet) and run the interaction's handler on every candidate whose layer
+ * is in the mask. A new kind of entity only needs a layer and rows in the matrix instead of its own branch in
+ * {@link MovementSystem} and {@link BulletSystem}.
+ */
+public class CollisionMatrix {
+    public static final int NONE = 0;
+    public static final int PLAYER = 1;
+    public static final int ENEMY = 1 << 1;
+    public static final int OBSTACLE = 1 << 2;
+    public static final int PP_ORB = 1 << 3;
+    private static final int LAYER_COUNT = 4;
+
+    public enum Interaction {
+        // Pushed away from hitboxes on the masked layers by gravity
+        REPULSION,
+        // Pulled towards hitboxes on the masked layers by gravity
+        ATTRACTION,
+        // Gives its pp to hitboxes on the masked layers on contact and is removed
+        PICKUP,
+        // Bullets fired by hitboxes on this layer damage hitboxes on the masked layers
+        DAMAGE
+    }
+
+    // [interaction][layer index] -> layers interacted with
+    private int[][] masks;
+    // [layer index] -> multiplier of Options.GRAVITATIONAL_CONSTANT for repulsion and attraction felt by the layer
+    private float[] gravityMultipliers;
+    // Layers that move into a new map area when they cross the current map area's border
+    private int mapAreaExitLayers;
+
+    public CollisionMatrix() {
+        masks = new int[Interaction.values().length][LAYER_COUNT];
+        gravityMultipliers = new float[LAYER_COUNT];
+        for(int i = 0; i < LAYER_COUNT; i++) {
+            gravityMultipliers[i] = 1f;
+        }
+    }
+
+    /**
+     * How the game has always worked: enemies push each other and the player away, obstacles push each other and
+     * enemies away, pp orbs are pulled towards and picked up by the player and bullets damage the other side and obstacles
+     */
+    public static CollisionMatrix createDefault() {
+        return new CollisionMatrix()
+                .set(ENEMY, Interaction.REPULSION, ENEMY | PLAYER)
+                .set(OBSTACLE, Interaction.REPULSION, ENEMY | OBSTACLE)
+                .set(PP_ORB, Interaction.ATTRACTION, PLAYER)
+                .setGravityMultiplier(PP_ORB, Options.PP_ORB_GRAVITATIONAL_CONSTANT_MULTIPLIER)
+                .set(PP_ORB, Interaction.PICKUP, PLAYER)
+                .set(PLAYER, Interaction.DAMAGE, ENEMY | OBSTACLE)
+                .set(ENEMY, Interaction.DAMAGE, PLAYER | OBSTACLE)
+                .setMapAreaExitLayers(PLAYER);
+    }
+
+    public CollisionMatrix set(int layer, Interaction interaction, int otherLayers) {
+        masks[interaction.ordinal()][getIndex(layer)] = otherLayers;
+        return this;
+    }
+
+    public CollisionMatrix setGravityMultiplier(int layer, float multiplier) {
+        gravityMultipliers[getIndex(layer)] = multiplier;
+        return this;
+    }
+
+    public CollisionMatrix setMapAreaExitLayers(int layers) {
+        mapAreaExitLayers = layers;
+        return this;
+    }
+
+    /**
+     * @return layers that hitboxes on the given layer interact with; 0 for {@link #NONE}
+     */
+    public int getMask(int layer, Interaction interaction) {
+        if(layer == NONE) {
+            return 0;
+        }
+        return masks[interaction.ordinal()][getIndex(layer)];
+    }
+
+    /**
+     * @return every layer that some layer interacts with, i.e. the layers that have to be in the broadphase grid for
+     * the interaction
+     */
+    public int getTargetLayers(Interaction interaction) {
+        int layers = 0;
+        for(int mask : masks[interaction.ordinal()]) {
+            layers |= mask;
+        }
+        return layers;
+    }
+
+    public float getGravityMultiplier(int layer) {
+        return gravityMultipliers[getIndex(layer)];
+    }
+
+    public boolean isMapAreaExitLayer(int layer) {
+        return (mapAreaExitLayers & layer) != 0;
+    }
+
+    private static int getIndex(int layer) {
+        int index = Integer.numberOfTrailingZeros(layer);
+        if(index >= LAYER_COUNT || layer != 1 << index) {
+            throw new GdxRuntimeException("Not a single collision layer: " + layer);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,103 @@
+package systems;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.gdx.utils.Array;
+import com.miv.Mappers;
+
+import utils.CircleHitbox;
+
+/**
+ * Structural changes to the engine that are requested while systems are iterating over entities (entities being
+ * removed, circles being removed from hitboxes and new entities being added), held until {@link MovementSystem} applies
+ * them all at the end of its update.
+ * Whether an entity is already queued is kept in {@link Entity#flags}, so checking it and queueing without duplicates
+ * take constant time no matter how many entities are queued.
+ */
+public class EntityCommandBuffer {
+    // Bits of Entity#flags; PooledEngine clears every flag when an entity is returned to the pool
+    private static final int REMOVAL_QUEUED = 1;
+    private static final int CIRCLE_REMOVAL_QUEUED = 1 << 1;
+
+    // In the order they were queued
+    private Array<Entity> removals;
+    private Array<Entity> circleRemovals;
+    private Array<Entity> additions;
+
+    public EntityCommandBuffer() {
+        removals = new Array<Entity>();
+        circleRemovals = new Array<Entity>();
+        additions = new Array<Entity>();
+    }
+
+    /**
+     * Does nothing if the entity is already queued for removal
+     */
+    public void queueRemoval(Entity entity) {
+        if((entity.flags & REMOVAL_QUEUED) == 0) {
+            entity.flags |= REMOVAL_QUEUED;
+            removals.add(entity);
+        }
+    }
+
+    public boolean isQueuedForRemoval(Entity entity) {
+        return (entity.flags & REMOVAL_QUEUED) != 0;
+    }
+
+    /**
+     * Queues the circle in the entity's {@link components.HitboxComponent#queueCircleRemoval(CircleHitbox)} and
+     * remembers the entity so that only entities with queued circles are visited
+     */
+    public void queueCircleRemoval(Entity entity, CircleHitbox circle) {
+        Mappers.hitbox.get(entity).queueCircleRemoval(circle);
+        if((entity.flags & CIRCLE_REMOVAL_QUEUED) == 0) {
+            entity.flags |= CIRCLE_REMOVAL_QUEUED;
+            circleRemovals.add(entity);
+        }
+    }
+
+    public void queueAddition(Entity entity) {
+        additions.add(entity);
+    }
+
+    /**
+     * Entities queued for removal, in the order they were queued. Must be followed by {@link #clearRemovals()} once
+     * they are removed.
+     */
+    public Array<Entity> getRemovals() {
+        return removals;
+    }
+
+    public void clearRemovals() {
+        for(int i = 0; i < removals.size; i++) {
+            removals.get(i).flags &= ~REMOVAL_QUEUED;
+        }
+        removals.clear();
+    }
+
+    /**
+     * Entities with circles queued for removal, in the order they were first queued. Must be followed by
+     * {@link #clearCircleRemovals()} once the circles are removed.
+     */
+    public Array<Entity> getCircleRemovals() {
+        return circleRemovals;
+    }
+
+    public void clearCircleRemovals() {
+        for(int i = 0; i < circleRemovals.size; i++) {
+            circleRemovals.get(i).flags &= ~CIRCLE_REMOVAL_QUEUED;
+        }
+        circleRemovals.clear();
+    }
+
+    /**
+     * Entities queued to be added, in the order they were queued. Must be followed by {@link #clearAdditions()} once
+     * they are added.
+     */
+    public Array<Entity> getAdditions() {
+        return additions;
+    }
+
+    public void clearAdditions() {
+        additions.clear();
+    }
+}
@@ -6,6 +6,7 @@ import com.badlogic.ashley.core.EntitySystem;
 import com.badlogic.ashley.core.Family;
 import com.badlogic.ashley.utils.ImmutableArray;
 import com.miv.Mappers;
+import com.miv.Profiler;
 
 import java.util.ArrayList;
 
@@ -36,6 +37,7 @@ public class ExpirationSystem extends EntitySystem {
 
     @Override
     public void update(float deltaTime) {
+        Profiler.begin(Profiler.Section.EXPIRATION_SYSTEM);
         for(Entity e : entities) {
             ExpirationComponent expirationComponent = Mappers.expiration.get(e);
             expirationComponent.setTime(expirationComponent.getTime() - deltaTime);
@@ -47,5 +49,6 @@ public class ExpirationSystem extends EntitySystem {
             getEngine().removeEntity(e);
         }
         removalQueue.clear();
+        Profiler.end(Profiler.Section.EXPIRATION_SYSTEM);
     }
 }
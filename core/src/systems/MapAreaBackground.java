@@ -0,0 +1,174 @@
+package systems;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+
+import map.MapArea;
+
+/**
+ * The fill, grid lines and border of the current map area, baked into a static mesh that is only rebuilt when the player
+ * enters a different map area or the map area grows past the size the mesh was built for.
+ * The mesh is a square covering the whole map area plus full-length grid lines across it, and is clipped to the map
+ * area's current radius in the fragment shader, which also draws the border. A map area shrinking only changes a uniform.
+ */
+public class MapAreaBackground {
+    public static final float BORDER_WIDTH = 20f;
+    private static final float GRID_LINE_WIDTH = 2.5f;
+
+    private static final String VERTEX_SHADER = "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "uniform float u_radius;\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_position;\n"
+            + "void main() {\n"
+            + "    v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            // Relative to the radius so that distances fit in mediump
+            + "    v_position = " + ShaderProgram.POSITION_ATTRIBUTE + ".xy / u_radius;\n"
+            + "    gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "}\n";
+    private static final String FRAGMENT_SHADER = "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "uniform float u_borderStart;\n"
+            + "uniform float u_borderEnd;\n"
+            + "uniform vec4 u_borderColor;\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_position;\n"
+            + "void main() {\n"
+            + "    float distance = length(v_position);\n"
+            + "    if(distance > u_borderEnd) {\n"
+            + "        discard;\n"
+            + "    }\n"
+            + "    if(distance > u_borderStart) {\n"
+            + "        gl_FragColor = u_borderColor;\n"
+            + "    } else {\n"
+            + "        gl_FragColor = v_color;\n"
+            + "    }\n"
+            + "}\n";
+
+    private ShaderProgram shader;
+    private Mesh mesh;
+    private float[] vertices;
+    private short[] indices;
+
+    // What the mesh was built for
+    private MapArea mapArea;
+    private float builtRadius;
+    private boolean builtWithGridLines;
+    private Color builtBackgroundColor;
+    private Color builtGridLineColor;
+
+    public MapAreaBackground() {
+        shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        if(!shader.isCompiled()) {
+            throw new IllegalStateException("Could not compile map area background shader: " + shader.getLog());
+        }
+    }
+
+    public void draw(Matrix4 projection, MapArea mapArea, Color backgroundColor, Color gridLineColor, Color borderColor, boolean showGridLines) {
+        float radius = mapArea.getRadius();
+        if(mesh == null || mapArea != this.mapArea || radius > builtRadius || showGridLines != builtWithGridLines
+                || backgroundColor != builtBackgroundColor || gridLineColor != builtGridLineColor) {
+            build(mapArea, Math.max(radius, mapArea.getOriginalRadius()), backgroundColor, gridLineColor, showGridLines);
+        }
+
+        // Every color is opaque
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+        shader.begin();
+        shader.setUniformMatrix("u_projTrans", projection);
+        shader.setUniformf("u_radius", radius);
+        shader.setUniformf("u_borderStart", (radius - BORDER_WIDTH / 2f) / radius);
+        shader.setUniformf("u_borderEnd", (radius + BORDER_WIDTH / 2f) / radius);
+        shader.setUniformf("u_borderColor", borderColor);
+        mesh.render(shader, GL20.GL_TRIANGLES);
+        shader.end();
+    }
+
+    private void build(MapArea mapArea, float radius, Color backgroundColor, Color gridLineColor, boolean showGridLines) {
+        this.mapArea = mapArea;
+        builtRadius = radius;
+        builtWithGridLines = showGridLines;
+        builtBackgroundColor = backgroundColor;
+        builtGridLineColor = gridLineColor;
+
+        float size = radius + BORDER_WIDTH / 2f;
+        float spacing = MapArea.GRID_LINE_SEPARATION_DISTANCE;
+        // Lines are at the same distances on both sides of each axis
+        int lines = 0;
+        if(showGridLines) {
+            for(float grid = spacing / 2f; grid < radius; grid += spacing) {
+                lines += 4;
+            }
+        }
+
+        int quads = 1 + lines;
+        // Each vertex is x, y and a packed color
+        if(vertices == null || vertices.length < quads * 4 * 3) {
+            vertices = new float[quads * 4 * 3];
+            indices = new short[quads * 6];
+        }
+        if(mesh == null || mesh.getMaxVertices() < quads * 4) {
+            if(mesh != null) {
+                mesh.dispose();
+            }
+            // 2D positions; VertexAttribute.Position() would expect a z after every x and y
+            mesh = new Mesh(true, quads * 4, quads * 6, new VertexAttribute(Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+                    VertexAttribute.ColorPacked());
+        }
+
+        int quad = 0;
+        quad = addQuad(quad, -size, -size, size, size, backgroundColor.toFloatBits());
+        if(showGridLines) {
+            float color = gridLineColor.toFloatBits();
+            float halfWidth = GRID_LINE_WIDTH / 2f;
+            for(float grid = spacing / 2f; grid < radius; grid += spacing) {
+                quad = addQuad(quad, grid - halfWidth, -size, grid + halfWidth, size, color);
+                quad = addQuad(quad, -grid - halfWidth, -size, -grid + halfWidth, size, color);
+                quad = addQuad(quad, -size, grid - halfWidth, size, grid + halfWidth, color);
+                quad = addQuad(quad, -size, -grid - halfWidth, size, -grid + halfWidth, color);
+            }
+        }
+        mesh.setVertices(vertices, 0, quad * 4 * 3);
+        mesh.setIndices(indices, 0, quad * 6);
+    }
+
+    private int addQuad(int quad, float x1, float y1, float x2, float y2, float color) {
+        int v = quad * 4 * 3;
+        vertices[v] = x1;
+        vertices[v + 1] = y1;
+        vertices[v + 2] = color;
+        vertices[v + 3] = x2;
+        vertices[v + 4] = y1;
+        vertices[v + 5] = color;
+        vertices[v + 6] = x2;
+        vertices[v + 7] = y2;
+        vertices[v + 8] = color;
+        vertices[v + 9] = x1;
+        vertices[v + 10] = y2;
+        vertices[v + 11] = color;
+
+        int i = quad * 6;
+        short first = (short)(quad * 4);
+        indices[i] = first;
+        indices[i + 1] = (short)(first + 1);
+        indices[i + 2] = (short)(first + 2);
+        indices[i + 3] = (short)(first + 2);
+        indices[i + 4] = (short)(first + 3);
+        indices[i + 5] = first;
+        return quad + 1;
+    }
+
+    public void dispose() {
+        if(mesh != null) {
+            mesh.dispose();
+        }
+        shader.dispose();
+    }
+}
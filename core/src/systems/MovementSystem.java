@@ -17,19 +17,17 @@ import com.badlogic.gdx.math.Vector2;
 import com.miv.Main;
 import com.miv.Mappers;
 import com.miv.Options;
+import com.miv.Profiler;
+import com.miv.Simulation;
 
 import java.util.ArrayList;
 
-import components.EnemyBulletComponent;
-import components.EnemyComponent;
 import components.HitboxComponent;
-import components.ObstacleComponent;
-import components.PlayerBulletComponent;
-import components.PlayerComponent;
 import map.Map;
 import map.MapArea;
 import utils.CircleHitbox;
 import utils.Point;
+import utils.SpatialHash;
 import utils.Utils;
 
 /**
@@ -38,21 +36,30 @@ import utils.Utils;
 public class MovementSystem extends EntitySystem {
     // Time after new map area loads until player enters bounds of new area
     private static final float NEW_MAP_AREA_ENTER_TRAVEL_TIME = 0.75f;
+    // Side length of a cell in the collision broadphase grids
+    private static final float BROADPHASE_CELL_SIZE = 256f;
 
     private ImmutableArray<Entity> entities;
-    private ArrayList<Entity> entityRemovalQueue;
+    // Entities and circles removed and entities added during the frame; applied at the end of update()
+    private EntityCommandBuffer commandBuffer;
     private ArrayList<Entity> collisionEntitiesToHandle;
     private ArrayList<CircleHitbox> collisionCirclesToHandle;
-    private ImmutableArray<Entity> players;
-    private ImmutableArray<Entity> playerBullets;
-    private ImmutableArray<Entity> enemies;
-    private ImmutableArray<Entity> enemyBullets;
-    private ImmutableArray<Entity> enemiesAndPlayers;
-    private ImmutableArray<Entity> playersAndObstacles;
-    private ImmutableArray<Entity> enemiesAndObstacles;
+
+    private CollisionMatrix collisionMatrix;
+    // Broadphase grids, rebuilt once per frame from the hitboxes on the layers that some layer interacts with
+    private SpatialHash pickupGrid;
+    // Gravity grid holds one entry per entity sized by its gravitational radius
+    private SpatialHash gravityGrid;
+    private Array<SpatialHash.Entry> broadphaseCandidates;
+    // Farthest any entity can move in the current frame; grids are built before anything moves so queries are padded by this much
+    private float broadphaseMargin;
+    // Set when hitboxes change shape or teleport mid-frame so that the grids are rebuilt before the next query
+    private boolean broadphaseDirty;
+    private float lastDeltaTime;
+
     private PooledEngine engine;
     private Map map;
-    private Main main;
+    private Simulation simulation;
 
     private Entity player;
     private HitboxComponent playerHitbox;
@@ -60,16 +67,22 @@ public class MovementSystem extends EntitySystem {
     private Array<Sound> popSounds;
     private Sound gainPpSound;
 
-    public MovementSystem(Main main, PooledEngine engine, Map map, Entity player) {
-        this.main = main;
+    public MovementSystem(Simulation simulation, PooledEngine engine, Map map, Entity player) {
+        this.simulation = simulation;
         this.engine = engine;
         this.map = map;
-        this.player = player;
-        playerHitbox = Mappers.hitbox.get(player);
+        if(player != null) {
+            setPlayer(player);
+        }
         collisionCirclesToHandle = new ArrayList<CircleHitbox>();
         collisionEntitiesToHandle = new ArrayList<Entity>();
-        entityRemovalQueue = new ArrayList<Entity>();
+        commandBuffer = new EntityCommandBuffer();
         popSounds = new Array<Sound>();
+
+        collisionMatrix = CollisionMatrix.createDefault();
+        pickupGrid = new SpatialHash(BROADPHASE_CELL_SIZE);
+        gravityGrid = new SpatialHash(Options.GRAVITY_DROP_OFF_DISTANCE);
+        broadphaseCandidates = new Array<SpatialHash.Entry>();
     }
 
     public void loadAssets(AssetManager assetManager) {
@@ -85,76 +98,98 @@ public class MovementSystem extends EntitySystem {
     @Override
     public void addedToEngine(Engine engine) {
         entities = engine.getEntitiesFor(Family.all(HitboxComponent.class).get());
-        players = engine.getEntitiesFor(Family.all(PlayerComponent.class).get());
-        playerBullets = engine.getEntitiesFor(Family.all(PlayerBulletComponent.class).get());
-        enemies = engine.getEntitiesFor(Family.all(EnemyComponent.class).get());
-        enemyBullets = engine.getEntitiesFor(Family.all(EnemyBulletComponent.class).get());
-        enemiesAndPlayers = engine.getEntitiesFor(Family.one(EnemyComponent.class, PlayerComponent.class).get());
-        playersAndObstacles = engine.getEntitiesFor(Family.one(ObstacleComponent.class, PlayerComponent.class).get());
-        enemiesAndObstacles = engine.getEntitiesFor(Family.one(ObstacleComponent.class, EnemyComponent.class).get());
     }
 
     @Override
     public void removedFromEngine(Engine engine) {
         entities = engine.getEntitiesFor(Family.all(HitboxComponent.class).get());
-        players = engine.getEntitiesFor(Family.all(PlayerComponent.class).get());
-        playerBullets = engine.getEntitiesFor(Family.all(PlayerBulletComponent.class).get());
-        enemies = engine.getEntitiesFor(Family.all(EnemyComponent.class).get());
-        enemyBullets = engine.getEntitiesFor(Family.all(EnemyBulletComponent.class).get());
-        enemiesAndPlayers = engine.getEntitiesFor(Family.one(EnemyComponent.class, PlayerComponent.class).get());
-        playersAndObstacles = engine.getEntitiesFor(Family.one(ObstacleComponent.class, PlayerComponent.class).get());
-        enemiesAndObstacles = engine.getEntitiesFor(Family.one(ObstacleComponent.class, EnemyComponent.class).get());
+    }
+
+    private void rebuildBroadphase(float deltaTime) {
+        float maxSpeed = 0;
+        // Indexed loops because this can be called while update() is iterating over the same arrays
+        for(int i = 0; i < entities.size(); i++) {
+            HitboxComponent hitbox = Mappers.hitbox.get(entities.get(i));
+            maxSpeed = Math.max(maxSpeed, hitbox.getVelocity().len() + hitbox.getVelocity2().len());
+        }
+        // Gravity adds at most GRAVITY_SPEED_CAP to each axis
+        maxSpeed += Options.GRAVITY_SPEED_CAP * (float)Math.sqrt(2);
+        broadphaseMargin = maxSpeed * deltaTime * Options.GLOBAL_MOVEMENT_SPEED_MULTIPLIER;
+
+        int pickupLayers = collisionMatrix.getTargetLayers(CollisionMatrix.Interaction.PICKUP);
+        int gravityLayers = collisionMatrix.getTargetLayers(CollisionMatrix.Interaction.REPULSION)
+                | collisionMatrix.getTargetLayers(CollisionMatrix.Interaction.ATTRACTION);
+        pickupGrid.clear();
+        gravityGrid.clear();
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+            HitboxComponent entityHitbox = Mappers.hitbox.get(entity);
+            Point origin = entityHitbox.getOrigin();
+            if((entityHitbox.getCollisionLayer() & pickupLayers) != 0) {
+                for (CircleHitbox c : entityHitbox.getCircles()) {
+                    pickupGrid.insert(entity, c, origin.x + c.x, origin.y + c.y, c.radius);
+                }
+            }
+            if((entityHitbox.getCollisionLayer() & gravityLayers) != 0) {
+                gravityGrid.insert(entity, null, origin.x, origin.y, entityHitbox.getGravitationalRadius());
+            }
+        }
+        broadphaseDirty = false;
     }
 
     /**
-     * Stores entities/circle hitboxes affected in collisionEntitiesToHandle and circleCollisionsToHandle to save memory
+     * Stores entities/circle hitboxes on any of the given layers that are affected in collisionEntitiesToHandle and
+     * circleCollisionsToHandle to save memory
      */
-    private void checkForCollision(Point circleOrigin, CircleHitbox c, ImmutableArray<Entity> arrayOfEntities) {
+    private void checkForCollision(Point circleOrigin, CircleHitbox c, SpatialHash grid, int layers) {
         collisionEntitiesToHandle.clear();
         collisionCirclesToHandle.clear();
-        for (Entity entity : arrayOfEntities) {
-            HitboxComponent entityHitbox = Mappers.hitbox.get(entity);
-            Point entityHitboxCircleOrigin = entityHitbox.getOrigin();
-            for (CircleHitbox entityHitboxCircle : entityHitbox.getCircles()) {
-                if (((c.x + circleOrigin.x) - (entityHitboxCircle.x + entityHitboxCircleOrigin.x))*(((c.x + circleOrigin.x) - (entityHitboxCircle.x + entityHitboxCircleOrigin.x)))
-                        + ((c.y + circleOrigin.y) - (entityHitboxCircle.y + entityHitboxCircleOrigin.y))*((c.y + circleOrigin.y) - (entityHitboxCircle.y + entityHitboxCircleOrigin.y)) <= (c.radius + entityHitboxCircle.radius)*(c.radius + entityHitboxCircle.radius)) {
-                    collisionEntitiesToHandle.add(entity);
-                    collisionCirclesToHandle.add(entityHitboxCircle);
-                }
+        if(broadphaseDirty) {
+            rebuildBroadphase(lastDeltaTime);
+        }
+        grid.query(c.x + circleOrigin.x, c.y + circleOrigin.y, c.radius + broadphaseMargin, broadphaseCandidates);
+        for (int i = 0; i < broadphaseCandidates.size; i++) {
+            Entity entity = broadphaseCandidates.get(i).getEntity();
+            if((Mappers.hitbox.get(entity).getCollisionLayer() & layers) == 0) {
+                continue;
+            }
+            CircleHitbox entityHitboxCircle = broadphaseCandidates.get(i).getCircle();
+            Point entityHitboxCircleOrigin = Mappers.hitbox.get(entity).getOrigin();
+            if (((c.x + circleOrigin.x) - (entityHitboxCircle.x + entityHitboxCircleOrigin.x))*(((c.x + circleOrigin.x) - (entityHitboxCircle.x + entityHitboxCircleOrigin.x)))
+                    + ((c.y + circleOrigin.y) - (entityHitboxCircle.y + entityHitboxCircleOrigin.y))*((c.y + circleOrigin.y) - (entityHitboxCircle.y + entityHitboxCircleOrigin.y)) <= (c.radius + entityHitboxCircle.radius)*(c.radius + entityHitboxCircle.radius)) {
+                collisionEntitiesToHandle.add(entity);
+                collisionCirclesToHandle.add(entityHitboxCircle);
             }
         }
     }
 
-    private void handleBulletCollision(Entity victim, CircleHitbox victimCircleHit, Entity bullet) {
-        if(!entityRemovalQueue.contains(bullet) && !entityRemovalQueue.contains(victim)) {
+    /**
+     * Called by {@link BulletSystem} when a bullet overlaps a circle of victim
+     * @param entityToBeHealed - entity healed by lifesteal; can be null
+     * @param bulletX - x-position of the bullet
+     * @param bulletY - y-position of the bullet
+     * @return true if the bullet should be removed
+     */
+    boolean handleBulletCollision(Entity victim, CircleHitbox victimCircleHit, float damage, Entity entityToBeHealed, float lifestealMultiplier, float bulletX, float bulletY) {
+        if(!commandBuffer.isQueuedForRemoval(victim)) {
             HitboxComponent victimHitbox = Mappers.hitbox.get(victim);
             if(!victimHitbox.isIntangible()) {
-                float damage = 0;
                 // Lifesteal heals source of bullet
-                if (Mappers.enemyBullet.has(bullet)) {
-                    damage = Mappers.enemyBullet.get(bullet).getDamage();
-                    // Parent gets healed
-                    if(Mappers.enemyBullet.get(bullet).getEntityToBeHealed() != null && Mappers.hitbox.has(Mappers.enemyBullet.get(bullet).getEntityToBeHealed())) {
-                        Mappers.hitbox.get(Mappers.enemyBullet.get(bullet).getEntityToBeHealed()).healWeakestCircle(damage * Mappers.enemyBullet.get(bullet).getLifestealMultiplier());
-                    }
-                } else if (Mappers.playerBullet.has(bullet)) {
-                    damage = Mappers.playerBullet.get(bullet).getDamage();
-                    if(Mappers.playerBullet.get(bullet).getEntityToBeHealed() != null && Mappers.hitbox.has(Mappers.playerBullet.get(bullet).getEntityToBeHealed())) {
-                        Mappers.hitbox.get(Mappers.playerBullet.get(bullet).getEntityToBeHealed()).healWeakestCircle(damage * Mappers.playerBullet.get(bullet).getLifestealMultiplier());
-                    }
+                if(entityToBeHealed != null && Mappers.hitbox.has(entityToBeHealed)) {
+                    Mappers.hitbox.get(entityToBeHealed).healWeakestCircle(damage * lifestealMultiplier);
                 }
 
                 // Victim takes damage
                 victimCircleHit.takeDamage(damage);
 
                 if (victimCircleHit.getHealth() <= 0) {
-                    victimHitbox.queueCircleRemoval(victimCircleHit);
+                    commandBuffer.queueCircleRemoval(victim, victimCircleHit);
 
                     if (Mappers.enemy.has(victim)) {
                         map.getCurrentArea().onEnemyCircleDeath(victim, victimCircleHit);
 
                         float pp = victimCircleHit.getPpGain();
-                        // Enemy count is not lowered until entityRemovalQueue is processed so == 1 is the same as if all enemies are dead
+                        // Enemy count is not lowered until entity removals are applied so == 1 is the same as if all enemies are dead
                         if(map.getCurrentArea().getEnemyCount() == 1) {
                             // Bonus pp for killing all enemies
                             pp += map.getCurrentArea().getOriginalEnemyCount() / ((map.getMinEnemiesPerMapArea() + map.getMaxEnemiesPerMapArea()) / 2f) * map.getMaxPixelPoints() * Options.BONUS_PP_MULTIPLIER * Options.PP_GAIN_MULTIPLIER;
@@ -183,22 +218,16 @@ public class MovementSystem extends EntitySystem {
                         }
 
                         // Queue entity removal from engine
-                        entityRemovalQueue.add(victim);
+                        commandBuffer.queueRemoval(victim);
                     }
                 }
             }
 
-            // Queue bullet entity removal
-            entityRemovalQueue.add(bullet);
-
             // Play pop sound
-            Point origin = Mappers.hitbox.get(bullet).getOrigin();
-            Utils.playDecayingSound(popSounds.random(), Options.BULLET_BUBBLE_POP_VOLUME, origin.x + victimCircleHit.x, origin.y + victimCircleHit.y, playerHitbox.getOrigin());
+            Utils.playDecayingSound(popSounds.random(), Options.BULLET_BUBBLE_POP_VOLUME, bulletX + victimCircleHit.x, bulletY + victimCircleHit.y, playerHitbox.getOrigin());
+            return true;
         }
-    }
-
-    private boolean bulletIsOutsideBoundary(Entity e, Point origin, float boundary) {
-        return Math.abs(origin.x) > Math.abs(boundary) || Math.abs(origin.y) > Math.abs(boundary);
+        return false;
     }
 
     private boolean checkIfOutsideCurrentMapArea(Entity e, Point origin, float boundary) {
@@ -242,171 +271,135 @@ public class MovementSystem extends EntitySystem {
     }
 
     /**
-     * Returns the change in velocity due to an entity's proximity to other nearby entities and/or the map area border
-     * @param entities - all entities affected by gravity
-     * @param entity - the entity whose velocity's change is being calculated for
-     * @param entityOrigin - origin of e
-     */
-    private Point calculateVelocityAdditionDueToGravity(ImmutableArray<Entity> entities, Entity entity, Point entityOrigin) {
-        Point vel = new Point(0, 0);
-
-        if(!Mappers.hitbox.get(entity).isIgnoreGravity()) {
-            float entityGravitationalRadius = Mappers.hitbox.get(entity).getGravitationalRadius();
-
-            for (Entity e : entities) {
-                if (!e.equals(entity)) {
-                    HitboxComponent hitbox = Mappers.hitbox.get(e);
-                    if (!hitbox.isIgnoreGravity()) {
-                        Point origin = hitbox.getOrigin();
-                        float distance = Utils.getDistance(origin, entityOrigin);
-                        if (distance < Options.GRAVITY_DROP_OFF_DISTANCE + hitbox.getGravitationalRadius() + entityGravitationalRadius) {
-                            float angle = MathUtils.atan2(entityOrigin.y - origin.y, entityOrigin.x - origin.x);
-
-                            // Prevent division by 0
-                            if (distance == 0) {
-                                distance = 1f;
-                            }
-
-                            float magnitude = Options.GRAVITATIONAL_CONSTANT / (float) Math.pow(distance, 1.2);
-
-                            vel.x += magnitude * MathUtils.cos(angle);
-                            vel.y += magnitude * MathUtils.sin(angle);
-                        }
-                    }
-                }
-            }
-
-            float distanceFromMapAreaCenter = Utils.getDistance(entityOrigin, 0, 0);
-            if (distanceFromMapAreaCenter > map.getCurrentArea().getRadius() - Options.GRAVITY_DROP_OFF_DISTANCE - entityGravitationalRadius) {
-                float angle = MathUtils.atan2(entityOrigin.y, entityOrigin.x);
-                float magnitude;
-
-                if (distanceFromMapAreaCenter < map.getCurrentArea().getRadius() && distanceFromMapAreaCenter != map.getCurrentArea().getRadius()) {
-                    magnitude = Options.GRAVITATIONAL_CONSTANT / (float) Math.pow(map.getCurrentArea().getRadius() - distanceFromMapAreaCenter, 1.2);
-                } else {
-                    // Treat being outside the map area border as being repelled with the same force as being 1m away from the border
-                    magnitude = Options.GRAVITATIONAL_CONSTANT;
-                }
-
-                vel.x -= magnitude * MathUtils.cos(angle);
-                vel.y -= magnitude * MathUtils.sin(angle);
-            }
-
-            if (vel.x > 0) {
-                vel.x = Math.min(Options.GRAVITY_SPEED_CAP, vel.x);
-            } else {
-                vel.x = Math.max(-Options.GRAVITY_SPEED_CAP, vel.x);
-            }
-            if (vel.y > 0) {
-                vel.y = Math.min(Options.GRAVITY_SPEED_CAP, vel.y);
-            } else {
-                vel.y = Math.max(-Options.GRAVITY_SPEED_CAP, vel.y);
-            }
-        }
-
-        return vel;
-    }
-
-    /**
-     * For bullets that curve towards player
+     * Does only the gravity calculation of {@link #update(float)} for every hitbox, without moving anything. For benchmarks.
+     * @return sum of all changes in velocity
      */
-    private void calculateAndSetEnemyBulletVelocityDueToGravity(Entity entity, Point entityOrigin, Vector2 entityVelocity, float deltaTime) {
-        if((Mappers.playerBullet.has(entity) && Mappers.playerBullet.get(entity).getPlayerAttractionLerpFactor() == 0) || (Mappers.enemyBullet.has(entity) && Mappers.enemyBullet.get(entity).getPlayerAttractionLerpFactor() == 0)) {
-            return;
-        }
-        if (!Mappers.hitbox.get(entity).isIgnoreGravity() && !playerHitbox.isIgnoreGravity()) {
-            float entityVelocityAngle = MathUtils.atan2(entityVelocity.y, entityVelocity.x);
-            float playerAttractionLerpFactor = 0;
-            if(Mappers.playerBullet.has(entity)) {
-                playerAttractionLerpFactor = Mappers.playerBullet.get(entity).getPlayerAttractionLerpFactor();
-            } else if(Mappers.enemyBullet.has(entity)) {
-                playerAttractionLerpFactor = Mappers.enemyBullet.get(entity).getPlayerAttractionLerpFactor();
-            }
-
-            Point origin = playerHitbox.getOrigin();
-            float angleDifference = Utils.normalizeAngleIn180Range(entityVelocityAngle - MathUtils.atan2(entityOrigin.y - origin.y, entityOrigin.x - origin.x));
-            entityVelocityAngle += angleDifference * deltaTime * playerAttractionLerpFactor;
-
-            // Change this to len2 if things get too laggy
-            float magnitude = entityVelocity.len();
-
-            entityVelocity.x = magnitude * MathUtils.cos(entityVelocityAngle);
-            entityVelocity.y = magnitude * MathUtils.sin(entityVelocityAngle);
+    public float calculateGravity(float deltaTime) {
+        rebuildBroadphase(deltaTime);
+        float sum = 0;
+        for(int i = 0; i < entities.size(); i++) {
+            Entity e = entities.get(i);
+            Point velocityAddition = calculateVelocityAdditionDueToGravity(e, Mappers.hitbox.get(e).getOrigin());
+            sum += velocityAddition.x + velocityAddition.y;
         }
+        return sum;
     }
 
     /**
-     * Returns the change in velocity due to a pp orb's proximity to players and the map area border
+     * Returns the change in velocity due to an entity's proximity to the map area border and to nearby entities on
+     * the layers it is repelled from or attracted to by {@link #collisionMatrix}
      * @param entity - the entity whose velocity's change is being calculated for
      * @param entityOrigin - origin of e
      */
-    private Point calculatePpOrbVelocityAdditionDueToGravity(Entity entity, Point entityOrigin) {
+    private Point calculateVelocityAdditionDueToGravity(Entity entity, Point entityOrigin) {
         Point vel = new Point(0, 0);
 
-        if(!Mappers.hitbox.get(entity).isIgnoreGravity()) {
-            float entityGravitationalRadius = Mappers.hitbox.get(entity).getGravitationalRadius();
-
-            for (Entity e : players) {
-                if (!e.equals(entity)) {
-                    HitboxComponent hitbox = Mappers.hitbox.get(e);
-                    if (!hitbox.isIgnoreGravity()) {
-                        Point origin = hitbox.getOrigin();
-                        float distance = Utils.getDistance(origin, entityOrigin);
-                        if (distance < Options.GRAVITY_DROP_OFF_DISTANCE + hitbox.getGravitationalRadius() + entityGravitationalRadius) {
-                            float angle = MathUtils.atan2(entityOrigin.y - origin.y, entityOrigin.x - origin.x);
-
-                            // Prevent division by 0 in really really rare cases
-                            // Calculations are thrown off for only a frame so it's not really important
-                            if (distance == 0) {
-                                distance = 1f;
-                            }
+        HitboxComponent entityHitbox = Mappers.hitbox.get(entity);
+        if(!entityHitbox.isIgnoreGravity()) {
+            float entityGravitationalRadius = entityHitbox.getGravitationalRadius();
+            int layer = entityHitbox.getCollisionLayer();
+            int repulsionLayers = collisionMatrix.getMask(layer, CollisionMatrix.Interaction.REPULSION);
+            int attractionLayers = collisionMatrix.getMask(layer, CollisionMatrix.Interaction.ATTRACTION);
+
+            if((repulsionLayers | attractionLayers) != 0) {
+                float gravitationalConstant = Options.GRAVITATIONAL_CONSTANT * collisionMatrix.getGravityMultiplier(layer);
 
-                            float magnitude = Options.GRAVITATIONAL_CONSTANT * Options.PP_ORB_GRAVITATIONAL_CONSTANT_MULTIPLIER / (float) Math.pow(distance, 1.2);
+                if(broadphaseDirty) {
+                    rebuildBroadphase(lastDeltaTime);
+                }
+                // Entities are inserted with their gravitational radius, so only those that can be within the drop-off distance are returned
+                gravityGrid.query(entityOrigin.x, entityOrigin.y, Options.GRAVITY_DROP_OFF_DISTANCE + entityGravitationalRadius + broadphaseMargin, broadphaseCandidates);
+                for (int i = 0; i < broadphaseCandidates.size; i++) {
+                    Entity e = broadphaseCandidates.get(i).getEntity();
+                    if (!e.equals(entity)) {
+                        HitboxComponent hitbox = Mappers.hitbox.get(e);
+                        // Away from the other entity if repelled, towards it if attracted
+                        float direction;
+                        if((hitbox.getCollisionLayer() & repulsionLayers) != 0) {
+                            direction = 1f;
+                        } else if((hitbox.getCollisionLayer() & attractionLayers) != 0) {
+                            direction = -1f;
+                        } else {
+                            continue;
+                        }
 
-                            vel.x -= magnitude * MathUtils.cos(angle);
-                            vel.y -= magnitude * MathUtils.sin(angle);
+                        if (!hitbox.isIgnoreGravity()) {
+                            Point origin = hitbox.getOrigin();
+                            float dx = entityOrigin.x - origin.x;
+                            float dy = entityOrigin.y - origin.y;
+                            float distance = (float)Math.sqrt(dx*dx + dy*dy);
+                            if (distance < Options.GRAVITY_DROP_OFF_DISTANCE + hitbox.getGravitationalRadius() + entityGravitationalRadius) {
+                                // Prevent division by 0
+                                if (distance == 0) {
+                                    vel.x += direction * gravitationalConstant;
+                                } else {
+                                    // Dividing by distance once more turns (dx, dy) into a unit vector
+                                    float magnitude = direction * gravitationalConstant / (float) Math.pow(distance, 1.2) / distance;
+                                    vel.x += magnitude * dx;
+                                    vel.y += magnitude * dy;
+                                }
+                            }
                         }
                     }
                 }
             }
 
-            float distanceFromMapAreaCenter = Utils.getDistance(entityOrigin, 0, 0);
-            if (distanceFromMapAreaCenter > map.getCurrentArea().getRadius() - Options.GRAVITY_DROP_OFF_DISTANCE - entityGravitationalRadius) {
-                float angle = MathUtils.atan2(entityOrigin.y, entityOrigin.x);
-                float magnitude;
-
-                if (distanceFromMapAreaCenter < map.getCurrentArea().getRadius() && distanceFromMapAreaCenter != map.getCurrentArea().getRadius()) {
-                    magnitude = Options.GRAVITATIONAL_CONSTANT / (float) Math.pow(map.getCurrentArea().getRadius() - distanceFromMapAreaCenter, 1.2);
-                } else {
-                    // Treat being outside the map area border as being repelled with the same force as being 1m away from the border
-                    magnitude = Options.GRAVITATIONAL_CONSTANT;
-                }
+            addMapAreaBorderRepulsion(vel, entityOrigin, entityGravitationalRadius);
+            clampToGravitySpeedCap(vel);
+        }
 
-                vel.x -= magnitude * MathUtils.cos(angle);
-                vel.y -= magnitude * MathUtils.sin(angle);
-            }
+        return vel;
+    }
 
-            if (vel.x > 0) {
-                vel.x = Math.min(Options.GRAVITY_SPEED_CAP, vel.x);
+    /**
+     * Pushes vel away from the map area border if entityOrigin is within {@link Options#GRAVITY_DROP_OFF_DISTANCE} of it
+     */
+    private void addMapAreaBorderRepulsion(Point vel, Point entityOrigin, float entityGravitationalRadius) {
+        float distanceFromMapAreaCenter = Utils.getDistance(entityOrigin, 0, 0);
+        float mapAreaRadius = map.getCurrentArea().getRadius();
+        if (distanceFromMapAreaCenter > mapAreaRadius - Options.GRAVITY_DROP_OFF_DISTANCE - entityGravitationalRadius) {
+            float magnitude;
+
+            if (distanceFromMapAreaCenter < mapAreaRadius && distanceFromMapAreaCenter != mapAreaRadius) {
+                magnitude = Options.GRAVITATIONAL_CONSTANT / (float) Math.pow(mapAreaRadius - distanceFromMapAreaCenter, 1.2);
             } else {
-                vel.x = Math.max(-Options.GRAVITY_SPEED_CAP, vel.x);
+                // Treat being outside the map area border as being repelled with the same force as being 1m away from the border
+                magnitude = Options.GRAVITATIONAL_CONSTANT;
             }
-            if (vel.y > 0) {
-                vel.y = Math.min(Options.GRAVITY_SPEED_CAP, vel.y);
+
+            if(distanceFromMapAreaCenter == 0) {
+                vel.x -= magnitude;
             } else {
-                vel.y = Math.max(-Options.GRAVITY_SPEED_CAP, vel.y);
+                vel.x -= magnitude * entityOrigin.x / distanceFromMapAreaCenter;
+                vel.y -= magnitude * entityOrigin.y / distanceFromMapAreaCenter;
             }
         }
+    }
 
-        return vel;
+    private void clampToGravitySpeedCap(Point vel) {
+        if (vel.x > 0) {
+            vel.x = Math.min(Options.GRAVITY_SPEED_CAP, vel.x);
+        } else {
+            vel.x = Math.max(-Options.GRAVITY_SPEED_CAP, vel.x);
+        }
+        if (vel.y > 0) {
+            vel.y = Math.min(Options.GRAVITY_SPEED_CAP, vel.y);
+        } else {
+            vel.y = Math.max(-Options.GRAVITY_SPEED_CAP, vel.y);
+        }
     }
 
     @Override
     public void update(float deltaTime) {
+        Profiler.begin(Profiler.Section.MOVEMENT_SYSTEM);
         MapArea mapArea = map.getCurrentArea();
 
+        lastDeltaTime = deltaTime;
+        rebuildBroadphase(deltaTime);
+
         for (Entity e : entities) {
             HitboxComponent hitbox = Mappers.hitbox.get(e);
+            hitbox.storePreviousOrigin();
             Point origin = hitbox.getOrigin();
             Vector2 velocity = hitbox.getVelocity();
             Vector2 velocity2 = hitbox.getVelocity2();
@@ -415,97 +408,43 @@ public class MovementSystem extends EntitySystem {
             boolean isValidMovement = true;
 
             if (!hitbox.isIntangible() && !hitbox.isTravelling() && !hitbox.isDisabledMovement()) {
-                // If entity is a player, check for collisions against the edges of the MapArea, enemies, enemy bullets
-                if (Mappers.player.has(e)) {
-                    // Check if circle is outside map area radius
-                    if(mapArea != null) {
-                        // Player cannot leave boss area
-                        checkIfOutsideCurrentMapArea(e, origin, mapArea.getRadius());
-                    }
-
-                    for (CircleHitbox c : hitbox.getCircles()) {
-                        // Check against enemy bullets
-                        checkForCollision(origin, c, enemyBullets);
-                        for(int i = 0; i < collisionEntitiesToHandle.size(); i++) {
-                            handleBulletCollision(e, c, collisionEntitiesToHandle.get(i));
-                        }
-                    }
+                int layer = hitbox.getCollisionLayer();
+                // Check if circle is outside map area radius
+                if (collisionMatrix.isMapAreaExitLayer(layer) && mapArea != null) {
+                    // Player cannot leave boss area
+                    checkIfOutsideCurrentMapArea(e, origin, mapArea.getRadius());
                 }
-                else if (Mappers.enemy.has(e)) {
-                    for (CircleHitbox c : hitbox.getCircles()) {
-                        // Against player bullets
-                        checkForCollision(origin, c, playerBullets);
-                        for(int i = 0; i < collisionEntitiesToHandle.size(); i++) {
-                            handleBulletCollision(e, c, collisionEntitiesToHandle.get(i));
-                        }
-                    }
 
-                    // Calculate effect of gravity
-                    velocityAdditionDueToGravity = calculateVelocityAdditionDueToGravity(enemiesAndPlayers, e, origin);
+                // Calculate effect of gravity
+                if (collisionMatrix.getMask(layer, CollisionMatrix.Interaction.REPULSION) != 0 || collisionMatrix.getMask(layer, CollisionMatrix.Interaction.ATTRACTION) != 0) {
+                    velocityAdditionDueToGravity = calculateVelocityAdditionDueToGravity(e, origin);
                 }
-                else if(Mappers.obstacle.has(e)) {
-                    velocityAdditionDueToGravity = calculateVelocityAdditionDueToGravity(enemiesAndObstacles, e, origin);
-                }
-                else if(Mappers.ppOrb.has(e)) {
-                    velocityAdditionDueToGravity = calculatePpOrbVelocityAdditionDueToGravity(e, origin);
 
+                int pickupLayers = collisionMatrix.getMask(layer, CollisionMatrix.Interaction.PICKUP);
+                if (pickupLayers != 0) {
                     for (CircleHitbox c : hitbox.getCircles()) {
-                        checkForCollision(origin, c, players);
+                        checkForCollision(origin, c, pickupGrid, pickupLayers);
                         for(int i = 0; i < collisionEntitiesToHandle.size(); i++) {
                             isValidMovement = false;
-                            Mappers.player.get(collisionEntitiesToHandle.get(i)).addPixelPoints(main, c.getPpGain(), true);
-                            Mappers.hitbox.get(collisionEntitiesToHandle.get(i)).healWeakestCircleByPp(c.getPpGain());
-                            gainPpSound.play(Options.MASTER_VOLUME * Options.SOUND_VOLUME);
-                        }
-                        if(collisionEntitiesToHandle.size() > 0) {
-                            entityRemovalQueue.add(e);
-                        }
-                    }
-                }
-                // If entity is a player bullet, check for collisions against the square boundaries of the MapArea, enemies
-                else if (Mappers.playerBullet.has(e)) {
-                    // Square boundaries have side length of 4x the radius
-                    for (CircleHitbox c : hitbox.getCircles()) {
-                        // Check if circle is outside map area radius
-                        if(mapArea != null) {
-                            if(bulletIsOutsideBoundary(e, origin, mapArea.getRadius() * 1.5f)) {
-                                entityRemovalQueue.add(e);
+                            if(Mappers.player.has(collisionEntitiesToHandle.get(i))) {
+                                Mappers.player.get(collisionEntitiesToHandle.get(i)).addPixelPoints(simulation, c.getPpGain(), true);
                             }
-                        }
-
-                        // Against enemies
-                        checkForCollision(origin, c, enemiesAndObstacles);
-                        for(int i = 0; i < collisionEntitiesToHandle.size(); i++) {
-                            isValidMovement = false;
-                            handleBulletCollision(collisionEntitiesToHandle.get(i), collisionCirclesToHandle.get(i), e);
-                        }
-                    }
-                }
-                // If entity is an enemy bullet, check for collisions against the square boundaries of the MapArea, players
-                else if (Mappers.enemyBullet.has(e)) {
-                    for (CircleHitbox c : hitbox.getCircles()) {
-                        // Against MapArea
-                        if(mapArea != null) {
-                            if(bulletIsOutsideBoundary(e, origin, mapArea.getRadius() * 1.5f)) {
-                                entityRemovalQueue.add(e);
+                            Mappers.hitbox.get(collisionEntitiesToHandle.get(i)).healWeakestCircleByPp(c.getPpGain());
+                            if(gainPpSound != null) {
+                                gainPpSound.play(Options.MASTER_VOLUME * Options.SOUND_VOLUME);
                             }
                         }
-
-                        // Check for collision against the players
-                        checkForCollision(origin, c, playersAndObstacles);
-                        for(int i = 0; i < collisionEntitiesToHandle.size(); i++) {
-                            isValidMovement = false;
-                            handleBulletCollision(collisionEntitiesToHandle.get(i), collisionCirclesToHandle.get(i), e);
+                        if(collisionEntitiesToHandle.size() > 0) {
+                            commandBuffer.queueRemoval(e);
                         }
                     }
-
-                    calculateAndSetEnemyBulletVelocityDueToGravity(e, origin, hitbox.getVelocity(), deltaTime);
                 }
             } else if(hitbox.isTravelling()) {
                 // I already know this is bad code; it's used only for player travelling
                 if(!hitbox.isTravellingFlag() && mapAreaIsOutOfCameraRange()) {
                     if(!map.getCurrentArea().isBossArea()) {
-                        map.enterNewArea(engine, e, (int)hitbox.getTravellingMapAreaDestination().x, (int)hitbox.getTravellingMapAreaDestination().y, true);
+                        // Entities are spawned over the frames it takes the player to reach the new map area
+                        map.beginEnteringNewArea(engine, e, (int)hitbox.getTravellingMapAreaDestination().x, (int)hitbox.getTravellingMapAreaDestination().y, true);
                         hitbox.setTravellingFromSameMapArea(false);
                     } else {
                         hitbox.setTravellingFromSameMapArea(true);
@@ -514,9 +453,13 @@ public class MovementSystem extends EntitySystem {
                     // Set position of player so that the player will enter the new map area in a certain amount of time
                     final float newMapAreaRadius = map.getCurrentArea().getRadius();
 
-                    Camera camera = map.getMain().getCamera();
-                    float cameraDistanceXFromPlayer = hitbox.getOrigin().x - camera.position.x;
-                    float cameraDistanceYFromPlayer = hitbox.getOrigin().y - camera.position.y;
+                    Camera camera = simulation.getCamera();
+                    float cameraDistanceXFromPlayer = 0;
+                    float cameraDistanceYFromPlayer = 0;
+                    if(camera != null) {
+                        cameraDistanceXFromPlayer = hitbox.getOrigin().x - camera.position.x;
+                        cameraDistanceYFromPlayer = hitbox.getOrigin().y - camera.position.y;
+                    }
 
                     // No idea why these if statements are necessary
                     float newOriginX = 0;
@@ -532,10 +475,14 @@ public class MovementSystem extends EntitySystem {
                         newOriginY = -hitbox.getTravellingDirectionY() * newMapAreaRadius - (-hitbox.getTravellingDirectionY() * NEW_MAP_AREA_ENTER_TRAVEL_TIME * hitbox.getTravellingVelocityY() * Options.GLOBAL_MOVEMENT_SPEED_MULTIPLIER);
                     }
                     hitbox.setOrigin(newOriginX, newOriginY);
+                    hitbox.storePreviousOrigin();
+                    broadphaseDirty = true;
 
                     // Instantly teleport camera to the same distance behind player from before to have illusion of smooth travel
-                    camera.position.x = origin.x - cameraDistanceXFromPlayer;
-                    camera.position.y = origin.y - cameraDistanceYFromPlayer;
+                    if(camera != null) {
+                        camera.position.x = origin.x - cameraDistanceXFromPlayer;
+                        camera.position.y = origin.y - cameraDistanceYFromPlayer;
+                    }
 
                     hitbox.setVelocity(hitbox.getTravellingVelocityX(), hitbox.getTravellingVelocityY());
                     hitbox.setTravellingDestination(new Point(-hitbox.getTravellingDirectionX() * newMapAreaRadius + (hitbox.getTravellingDirectionX() * hitbox.getGravitationalRadius() * 2.5f),
@@ -545,10 +492,11 @@ public class MovementSystem extends EntitySystem {
                     hitbox.setTravellingTime(0);
                 } else if(hitbox.isTravellingFlag() && Utils.getDistance(origin, 0, 0) <= mapArea.getRadius() - hitbox.getGravitationalRadius() - 25f) {
                     hitbox.setVelocity(0, 0);
+                    map.finishEnteringNewArea();
 
                     // Save game
                     if(!hitbox.isTravellingFromSameMapArea()) {
-                        main.save();
+                        simulation.getListener().save();
                         // Manually clear new map area entityCreationData to avoid saving an empty one to the current map area
                         map.getCurrentArea().entityCreationDataArrayList.clear();
                     }
@@ -612,6 +560,25 @@ public class MovementSystem extends EntitySystem {
                 }
             }
 
+        }
+
+        applyQueuedChanges();
+        Profiler.end(Profiler.Section.MOVEMENT_SYSTEM);
+    }
+
+    /**
+     * Applies everything in {@link #commandBuffer}: circle removals first, since they can split entities into sub-entities
+     * to be added, then entity additions and finally entity removals
+     */
+    private void applyQueuedChanges() {
+        Array<Entity> circleRemovals = commandBuffer.getCircleRemovals();
+        if(circleRemovals.size > 0) {
+            broadphaseDirty = true;
+        }
+        for(int i = 0; i < circleRemovals.size; i++) {
+            Entity e = circleRemovals.get(i);
+            HitboxComponent hitbox = Mappers.hitbox.get(e);
+            Point origin = hitbox.getOrigin();
             // Remove circles in hitbox circle removal queue from array list of circles in the hitbox component
             for(CircleHitbox c : hitbox.getCircleRemovalQueue()) {
                 if(Mappers.player.has(e)) {
@@ -624,26 +591,35 @@ public class MovementSystem extends EntitySystem {
                 if(subEntities != null) {
                     map.getCurrentArea().setEnemyCount(map.getCurrentArea().getEnemyCount() + subEntities.size());
                     for (Entity sub : subEntities) {
-                        engine.addEntity(sub);
+                        commandBuffer.queueAddition(sub);
                     }
                 }
             }
             hitbox.clearCircleRemovalQueue();
         }
+        commandBuffer.clearCircleRemovals();
+
+        Array<Entity> additions = commandBuffer.getAdditions();
+        for(int i = 0; i < additions.size; i++) {
+            engine.addEntity(additions.get(i));
+        }
+        commandBuffer.clearAdditions();
 
-        // Remove entities in entity removal queue from engine
-        for(Entity e : entityRemovalQueue) {
+        // Remove entities queued for removal from engine
+        Array<Entity> removals = commandBuffer.getRemovals();
+        for(int i = 0; i < removals.size; i++) {
+            Entity e = removals.get(i);
             if(!Mappers.player.has(e)) {
                 engine.removeEntity(e);
             }
 
             if(Mappers.player.has(e)) {
-                map.getMain().onPlayerDeath(Mappers.player.get(player).getScore());
+                simulation.onPlayerDeath(Mappers.player.get(player).getScore());
                 engine.removeEntity(e);
             } else if(Mappers.enemy.has(e)) {
                 // Setting enemy count and saving done in the entity removal queue processing to avoid the extremely rare
                 // case of the user killing an enemy and exiting the game before the enemy is removed from the engine
-                map.getCurrentArea().setEnemyCount(main, map.getCurrentArea().getEnemyCount() - 1);
+                map.getCurrentArea().setEnemyCount(simulation, map.getCurrentArea().getEnemyCount() - 1);
 
                 if(map.getCurrentArea().getEnemyCount() == 0) {
                     MapArea area = map.getCurrentArea();
@@ -656,24 +632,50 @@ public class MovementSystem extends EntitySystem {
                     } else if(area.isRare()) {
                         coins += 10 + (map.getFloor() * 4);
                     }
-                    main.addCoins(coins);
+                    simulation.getListener().addCoins(coins);
 
-                    main.save();
+                    simulation.getListener().save();
                 }
             }
         }
-        entityRemovalQueue.clear();
+        commandBuffer.clearRemovals();
     }
 
     private boolean mapAreaIsOutOfCameraRange() {
-        return Math.abs(map.getMain().getCamera().position.x) - map.getMain().getCamera().viewportWidth/1.7f > map.getCurrentArea().getRadius()
-                || Math.abs(map.getMain().getCamera().position.y) - map.getMain().getCamera().viewportHeight/1.7f > map.getCurrentArea().getRadius();
+        Camera camera = simulation.getCamera();
+        if(camera == null) {
+            // No camera when running headless, so pretend there is a screen-sized one centered on the player
+            Point origin = playerHitbox.getOrigin();
+            return Math.abs(origin.x) - Main.SCREEN_WIDTH/1.7f > map.getCurrentArea().getRadius()
+                    || Math.abs(origin.y) - Main.SCREEN_HEIGHT/1.7f > map.getCurrentArea().getRadius();
+        }
+        return Math.abs(camera.position.x) - camera.viewportWidth/1.7f > map.getCurrentArea().getRadius()
+                || Math.abs(camera.position.y) - camera.viewportHeight/1.7f > map.getCurrentArea().getRadius();
     }
 
     public void setMap(Map map) {
         this.map = map;
     }
 
+    /**
+     * For structural changes made while systems are iterating over entities
+     */
+    public EntityCommandBuffer getCommandBuffer() {
+        return commandBuffer;
+    }
+
+    public CollisionMatrix getCollisionMatrix() {
+        return collisionMatrix;
+    }
+
+    /**
+     * Also used by {@link BulletSystem} for which layers bullets damage
+     */
+    public void setCollisionMatrix(CollisionMatrix collisionMatrix) {
+        this.collisionMatrix = collisionMatrix;
+        broadphaseDirty = true;
+    }
+
     public void setPlayer(Entity player) {
         this.player = player;
         playerHitbox = Mappers.hitbox.get(player);
@@ -9,26 +9,28 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.GlyphLayout;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.scenes.scene2d.utils.SpriteDrawable;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.Pool;
 import com.miv.Main;
 import com.miv.Mappers;
 import com.miv.Options;
-
-import java.util.ArrayList;
+import com.miv.Profiler;
 
 import components.HitboxComponent;
 import map.Map;
-import map.MapArea;
-import utils.CircleHitbox;
 import utils.Point;
 
 /**
@@ -36,9 +38,13 @@ import utils.Point;
  * Created by Miv on 5/25/2017.
  */
 public class RenderSystem extends EntitySystem {
-    public static class FloatingText {
-        private String text;
-        private Color textColor;
+    /**
+     * Pooled; a text is freed as soon as it fades out, so anything holding on to one should check
+     * {@link #getGeneration()} against the value it had when it was added
+     */
+    public static class FloatingText implements Pool.Poolable {
+        private StringBuilder text = new StringBuilder();
+        private Color textColor = new Color();
         private float x;
         private float y;
 
@@ -48,32 +54,46 @@ public class RenderSystem extends EntitySystem {
         private float width;
         private float height;
 
-        private Object userObject;
+        // Free for the creator to use
+        private float value;
+
+        // Incremented every time the text is freed
+        private int generation;
+        // Cells of the overlap grid the text is in
+        private int minCellX;
+        private int minCellY;
+        private int maxCellX;
+        private int maxCellY;
 
-        private FloatingText(float x, float y, String text, Color textColor, float time) {
-            this.x = x;
-            this.y = y;
-            this.text = text;
-            this.textColor = new Color(textColor);
-            timeLeft = time;
-            deltaAlpha = textColor.a/time;
+        private FloatingText() {}
+
+        @Override
+        public void reset() {
+            text.setLength(0);
+            value = 0;
+            generation++;
         }
 
-        public Object getUserObject() {
-            return userObject;
+        public float getValue() {
+            return value;
         }
 
-        public FloatingText setUserObject(Object userObject) {
-            this.userObject = userObject;
+        public FloatingText setValue(float value) {
+            this.value = value;
             return this;
         }
 
-        public String getText() {
+        public int getGeneration() {
+            return generation;
+        }
+
+        public CharSequence getText() {
             return text;
         }
 
-        public void setText(String text) {
-            this.text = text;
+        public void setText(CharSequence text) {
+            this.text.setLength(0);
+            this.text.append(text);
         }
     }
 
@@ -122,9 +142,11 @@ public class RenderSystem extends EntitySystem {
     }
 
     private static final float FLOATING_TEXT_BOUNDARY_PADDING = 20f;
+    // Seconds
+    private static final float FLOATING_TEXT_TIME = 1.5f;
+    private static final float FLOATING_TEXT_CELL_SIZE = 256f;
 
-    // Health bar y-axis offset from center of circle
-    private static final float HEALTH_BAR_Y = -20f;
+    private static final HitboxTextureType[] TEXTURE_TYPES = HitboxTextureType.values();
     public static final Color NORMAL_MAP_AREA_BACKGROUND_COLOR = new Color(224/255f, 1f, 1f, 1f);
     public static final Color UNCOMMON_MAP_AREA_BACKGROUND_COLOR = new Color(168/255f, 253/255f, 166/255f, 1f);
     public static final Color RARE_MAP_AREA_BACKGROUND_COLOR = new Color(252/255f, 184/255f, 254/255f, 1f);
@@ -140,29 +162,50 @@ public class RenderSystem extends EntitySystem {
 
     private Main main;
     private Map map;
+    // Circles outside its view are not drawn; null to draw everything
+    private OrthographicCamera camera;
 
     private ImmutableArray<Entity> entities;
+    private BulletSystem bulletSystem;
     private ShapeRenderer shapeRenderer;
     private SpriteBatch batch;
+    private MapAreaBackground mapAreaBackground;
 
     // Array of bubble textures for each color in HitboxTextureType
     public Drawable[] bubbleDrawables;
     private Drawable bubbleShieldDrawable;
 
+    // Fraction of a simulation tick elapsed since the last tick; hitboxes are drawn this far between their previous and current origins
+    private float interpolationAlpha = 1f;
+    private CircleRenderQueue circleQueue = new CircleRenderQueue();
+
     private GlyphLayout layout;
     private BitmapFont floatingTextFont;
-    private ArrayList<FloatingText> floatingTexts;
+    // Unordered, so removing is constant time
+    private Array<FloatingText> floatingTexts;
+    private Pool<FloatingText> floatingTextPool = new Pool<FloatingText>() {
+        @Override
+        protected FloatingText newObject() {
+            return new FloatingText();
+        }
+    };
+    // Texts binned by position for finding overlaps; see addToGrid(FloatingText)
+    private LongMap<Array<FloatingText>> floatingTextGrid = new LongMap<Array<FloatingText>>();
+    // How far every text has flown up since there were last no texts
+    private float floatingTextScroll;
 
     public RenderSystem(Main main) {
         this.main = main;
         layout = new GlyphLayout();
-        floatingTexts = new ArrayList<FloatingText>();
+        floatingTexts = new Array<FloatingText>(false, 16);
 
-        batch = new SpriteBatch();
+        batch = new SpriteBatch(CircleRenderQueue.SPRITE_BATCH_SIZE);
 
         // Initiate shape renderer
-        shapeRenderer = new ShapeRenderer();
+        shapeRenderer = new ShapeRenderer(CircleRenderQueue.SHAPE_RENDERER_MAX_VERTICES);
         shapeRenderer.setAutoShapeType(true);
+
+        mapAreaBackground = new MapAreaBackground();
     }
 
     public void loadTextures(AssetManager assetManager) {
@@ -186,138 +229,116 @@ public class RenderSystem extends EntitySystem {
     @Override
     public void addedToEngine(Engine engine) {
         entities = engine.getEntitiesFor(Family.all(HitboxComponent.class).get());
+        bulletSystem = engine.getSystem(BulletSystem.class);
     }
 
     @Override
     public void removedFromEngine(Engine engine) {
         entities = engine.getEntitiesFor(Family.all(HitboxComponent.class).get());
+        bulletSystem = null;
     }
 
     @Override
     public void update(float deltaTime) {
+        Profiler.begin(Profiler.Section.RENDER_SYSTEM);
         // Background color
         Gdx.gl.glClearColor(240/255f, 1, 1, 1f);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
-        shapeRenderer.begin();
         // Draw map area boundaries
         if(map != null) {
             // Color inside of map area
+            Color backgroundColor;
             Color gridLineColor;
             Color borderColor;
             if(map.getCurrentArea().getStairsDestination() == -1) {
                 if(map.getCurrentArea().isUncommon()) {
-                    shapeRenderer.setColor(UNCOMMON_MAP_AREA_BACKGROUND_COLOR);
+                    backgroundColor = UNCOMMON_MAP_AREA_BACKGROUND_COLOR;
                     gridLineColor = UNCOMMON_MAP_AREA_GRID_LINE_COLOR;
                     borderColor = UNCOMMON_MAP_AREA_BORDER_COLOR;
                 } else if(map.getCurrentArea().isRare()) {
-                    shapeRenderer.setColor(RARE_MAP_AREA_BACKGROUND_COLOR);
+                    backgroundColor = RARE_MAP_AREA_BACKGROUND_COLOR;
                     gridLineColor = RARE_MAP_AREA_GRID_LINE_COLOR;
                     borderColor = RARE_MAP_AREA_BORDER_COLOR;
                 } else {
-                    shapeRenderer.setColor(NORMAL_MAP_AREA_BACKGROUND_COLOR);
+                    backgroundColor = NORMAL_MAP_AREA_BACKGROUND_COLOR;
                     gridLineColor = NORMAL_MAP_AREA_GRID_LINE_COLOR;
                     borderColor = NORMAL_MAP_AREA_BORDER_COLOR;
                 }
             } else {
-                shapeRenderer.setColor(STAIRS_MAP_AREA_BACKGROUND_COLOR);
+                backgroundColor = STAIRS_MAP_AREA_BACKGROUND_COLOR;
                 gridLineColor = STAIRS_MAP_AREA_GRID_LINE_COLOR;
                 borderColor = STAIRS_MAP_AREA_BORDER_COLOR;
             }
-            shapeRenderer.set(ShapeRenderer.ShapeType.Filled);
-            shapeRenderer.circle(0, 0, map.getCurrentArea().getRadius());
-
-            // Draw grid lines
-            if(main.getState() != Main.GameState.MAIN_MENU) {
-                shapeRenderer.setColor(gridLineColor);
-                for (MapArea.GridLine gl : map.getCurrentArea().getGridLines()) {
-                    shapeRenderer.rectLine(gl.getStartX(), gl.getStartY(), gl.getEndX(), gl.getEndY(), 2.5f);
-                }
-            }
+            mapAreaBackground.draw(batch.getProjectionMatrix(), map.getCurrentArea(), backgroundColor, gridLineColor, borderColor,
+                    main.getState() != Main.GameState.MAIN_MENU);
+        }
 
-            // Draw border
-            Gdx.gl.glLineWidth(20);
-            shapeRenderer.set(ShapeRenderer.ShapeType.Line);
-            shapeRenderer.setColor(borderColor);
-            shapeRenderer.circle(0, 0, map.getCurrentArea().getRadius());
+        // Gather every visible circle and health bar in one pass, then draw each kind in a single run
+        if(camera == null) {
+            circleQueue.begin();
+        } else {
+            float halfWidth = camera.viewportWidth * camera.zoom / 2f;
+            float halfHeight = camera.viewportHeight * camera.zoom / 2f;
+            circleQueue.begin(camera.position.x - halfWidth, camera.position.y - halfHeight, camera.position.x + halfWidth, camera.position.y + halfHeight);
+        }
+        circleQueue.addEntities(entities, interpolationAlpha);
+        if(bulletSystem != null) {
+            bulletSystem.addTo(circleQueue, interpolationAlpha);
         }
-        shapeRenderer.end();
 
+        // Draw hitboxes; every bubble drawable is a tint of the same texture, so this never switches textures
         batch.begin();
-        for(Entity e : entities) {
-            HitboxComponent hitbox = Mappers.hitbox.get(e);
-            Point origin = hitbox.getOrigin();
-
-            // Draw hitboxes
-            for(CircleHitbox c : hitbox.getCircles()) {
-                if(c.getColor() == null) {
-                    bubbleDrawables[c.getHitboxTextureType().id].draw(batch, c.x + origin.x - c.radius, c.y + origin.y - c.radius, c.radius * 2, c.radius * 2);
-                } else {
-                    bubbleDrawables[c.getColor().id].draw(batch, c.x + origin.x - c.radius, c.y + origin.y - c.radius, c.radius * 2, c.radius * 2);
-                }
-            }
-
-            // Draw shield around entity if travelling
-            /**
-            if(hitbox.isTravelling()) {
-                bubbleShieldDrawable.draw(batch, origin.x - (hitbox.getGravitationalRadius() + 15f), origin.y - (hitbox.getGravitationalRadius() + 15f), (hitbox.getGravitationalRadius() + 15f)*2, (hitbox.getGravitationalRadius() + 15f)*2);
-            }
-             */
+        for(int i = 0; i < circleQueue.getCircleCount(); i++) {
+            float radius = circleQueue.getRadius(i);
+            bubbleDrawables[circleQueue.getTextureType(i)].draw(batch, circleQueue.getX(i) - radius, circleQueue.getY(i) - radius, radius * 2, radius * 2);
         }
         batch.end();
 
-        shapeRenderer.begin();
+        // Draw hitbox outlines
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Line);
         Gdx.gl.glLineWidth(4f);
-        for(Entity e : entities) {
-            HitboxComponent hitbox = Mappers.hitbox.get(e);
-            Point origin = hitbox.getOrigin();
-
-            // Draw hitbox outlines
-            for(CircleHitbox c : hitbox.getCircles()) {
-                if(c.getColor() == null) {
-                    shapeRenderer.setColor(c.getHitboxTextureType().outlineColor);
-                } else {
-                    shapeRenderer.setColor(c.getColor().outlineColor);
-                }
-                shapeRenderer.circle(c.x + origin.x, c.y + origin.y, c.radius);
+        int lastTextureType = -1;
+        for(int i = 0; i < circleQueue.getCircleCount(); i++) {
+            if(circleQueue.getTextureType(i) != lastTextureType) {
+                lastTextureType = circleQueue.getTextureType(i);
+                shapeRenderer.setColor(TEXTURE_TYPES[lastTextureType].outlineColor);
             }
-
-            //TODO: remove this
-            //shapeRenderer.setColor(Color.BLACK);
-            //shapeRenderer.circle(origin.x, origin.y, 3f);
-            //shapeRenderer.circle(origin.x, origin.y, hitbox.getGravitationalRadius());
+            float radius = circleQueue.getRadius(i);
+            shapeRenderer.circle(circleQueue.getX(i), circleQueue.getY(i), radius, CircleRenderQueue.getCircleSegments(radius));
         }
 
         // Draw health bars
         shapeRenderer.set(ShapeRenderer.ShapeType.Filled);
-        for(Entity e : entities) {
-            if((Options.SHOW_ENEMY_HEALTH_BARS && Mappers.enemy.has(e)) || (Options.SHOW_PLAYER_HEALTH_BARS && (Mappers.player.has(e) || Mappers.obstacle.has(e)))) {
-                HitboxComponent hitbox = Mappers.hitbox.get(e);
-                Point origin = hitbox.getOrigin();
-
-                for (CircleHitbox c : hitbox.getCircles()) {
-                    if(c.getHealth() < c.getMaxHealth()) {
-                        float healthBarWidth = c.getHealth() / c.getMaxHealth() * c.radius * 2.5f;
-                        float healthBarRadius = Math.min(18f, c.radius / 12f);
-                        float x = -healthBarWidth / 2f;
-
-                        // Color in health bar
-                        shapeRenderer.setColor(c.getHitboxTextureType().healthBarColor);
-                        // Draw start arc
-                        shapeRenderer.arc(origin.x + c.x + x, origin.y + c.y + HEALTH_BAR_Y + healthBarRadius, healthBarRadius, 90f, 180f);
-                        // Draw rectangle
-                        shapeRenderer.rect(origin.x + c.x + x, origin.y + c.y + HEALTH_BAR_Y, healthBarWidth, healthBarRadius * 2f);
-                        // Draw end arc
-                        shapeRenderer.arc(origin.x + c.x + x + healthBarWidth, origin.y + c.y + HEALTH_BAR_Y + healthBarRadius, healthBarRadius, 270f, 450f);
-                    }
-                }
+        lastTextureType = -1;
+        for(int i = 0; i < circleQueue.getHealthBarCount(); i++) {
+            if(circleQueue.getHealthBarTextureType(i) != lastTextureType) {
+                lastTextureType = circleQueue.getHealthBarTextureType(i);
+                shapeRenderer.setColor(TEXTURE_TYPES[lastTextureType].healthBarColor);
             }
+            float x = circleQueue.getHealthBarX(i);
+            float y = circleQueue.getHealthBarY(i);
+            float width = circleQueue.getHealthBarWidth(i);
+            float radius = circleQueue.getHealthBarRadius(i);
+            int segments = CircleRenderQueue.getHalfCircleSegments(radius);
+            // Draw start arc
+            shapeRenderer.arc(x, y + radius, radius, 90f, 180f, segments);
+            // Draw rectangle
+            shapeRenderer.rect(x, y, width, radius * 2f);
+            // Draw end arc
+            shapeRenderer.arc(x + width, y + radius, radius, 270f, 180f, segments);
         }
         shapeRenderer.end();
+        if(Profiler.isEnabled()) {
+            Profiler.setRenderCounts(circleQueue.getCircleCount(), circleQueue.getCulledCount(), circleQueue.getVertexCount(), circleQueue.getDrawCallCount());
+        }
 
         // Draw floating text
+        float deltaY = Options.GLOBAL_MOVEMENT_SPEED_MULTIPLIER * 3f * deltaTime;
+        floatingTextScroll += deltaY;
         batch.begin();
-        for(int i = 0; i < floatingTexts.size(); i++) {
+        // Backwards since removing swaps the last text into the removed one's place
+        for(int i = floatingTexts.size - 1; i >= 0; i--) {
             FloatingText f = floatingTexts.get(i);
 
             floatingTextFont.setColor(f.textColor);
@@ -325,68 +346,140 @@ public class RenderSystem extends EntitySystem {
 
             f.timeLeft -= deltaTime;
             f.textColor.a -= f.deltaAlpha * deltaTime;
-            f.y += Options.GLOBAL_MOVEMENT_SPEED_MULTIPLIER * 3f * deltaTime;
+            f.y += deltaY;
             if(f.timeLeft <= 0 || f.textColor.a <= 0) {
-                floatingTexts.remove(f);
-                i--;
+                removeFromGrid(f);
+                floatingTexts.removeIndex(i);
+                floatingTextPool.free(f);
             }
         }
         batch.end();
+        if(floatingTexts.size == 0) {
+            floatingTextScroll = 0;
+        }
+        Profiler.end(Profiler.Section.RENDER_SYSTEM);
     }
 
     /**
      * Adds text to originate from a point and fly up while losing alpha.
      * @param x x-coordinate of text relative to the map area
      * @param y y-coordinate of text relative to the map area
-     * @param text Text to be shown
+     * @param text Text to be shown; copied, so it can be reused by the caller
      * @param color Color of text
      */
-    public FloatingText addFloatingText(float x, float y, String text, Color color) {
-        FloatingText ft = new FloatingText(x, y, text, color, 1.5f);
+    public FloatingText addFloatingText(float x, float y, CharSequence text, Color color) {
+        FloatingText ft = floatingTextPool.obtain();
+        ft.setText(text);
+        ft.textColor.set(color);
+        ft.timeLeft = FLOATING_TEXT_TIME;
+        ft.deltaAlpha = color.a / FLOATING_TEXT_TIME;
         layout.setText(floatingTextFont, text);
         ft.width = layout.width;
         ft.height = layout.height;
 
         // Center text on position given
-        ft.x -= ft.width/2f;
+        ft.x = x - ft.width/2f;
+        ft.y = y;
 
         floatingTexts.add(ft);
+        addToGrid(ft);
 
-        checkOverlappingTexts(ft);
+        resolveOverlaps(ft);
 
         return ft;
     }
 
-    private void checkOverlappingTexts(FloatingText f1) {
-        // Check if text will overlap with any other texts
-        for(FloatingText f : floatingTexts) {
-            if(!f1.equals(f) && overlaps(f1, f)) {
-                // If it does, bump up the text that will expire first
-                if(f.timeLeft < f1.timeLeft) {
-                    f.y += f.height + FLOATING_TEXT_BOUNDARY_PADDING;
-
-                    checkOverlappingTexts(f);
-                } else {
-                    f1.y += f1.height + FLOATING_TEXT_BOUNDARY_PADDING;
+    /**
+     * Moves texts up until the given text does not overlap with any other text. Whenever two texts overlap, the one that
+     * will expire first is bumped up, which can make it overlap with another text in turn.
+     */
+    private void resolveOverlaps(FloatingText f1) {
+        FloatingText moved = f1;
+        while(moved != null) {
+            FloatingText f = findOverlappingText(moved);
+            if(f == null) {
+                break;
+            }
+            if(f.timeLeft < moved.timeLeft) {
+                moved = f;
+            }
+            removeFromGrid(moved);
+            moved.y += moved.height + FLOATING_TEXT_BOUNDARY_PADDING;
+            addToGrid(moved);
+        }
+    }
 
-                    checkOverlappingTexts(f1);
+    private FloatingText findOverlappingText(FloatingText f1) {
+        for(int cellX = f1.minCellX; cellX <= f1.maxCellX; cellX++) {
+            for(int cellY = f1.minCellY; cellY <= f1.maxCellY; cellY++) {
+                Array<FloatingText> cell = floatingTextGrid.get(toFloatingTextCellKey(cellX, cellY));
+                if(cell == null) {
+                    continue;
+                }
+                for(int i = 0; i < cell.size; i++) {
+                    FloatingText f = cell.get(i);
+                    if(f != f1 && overlaps(f1, f)) {
+                        return f;
+                    }
                 }
-                break;
             }
         }
+        return null;
     }
 
     private boolean overlaps(FloatingText f1, FloatingText f2) {
         return f1.x < f2.x + f2.width && f1.x + f1.width > f2.x && f1.y < f2.y + f2.height && f1.y + f1.height > f2.y;
     }
 
-    public FloatingText addFloatingText(Entity origin, String text, Color color) {
+    /**
+     * Every text flies up at the same speed, so texts are binned by their position relative to how far texts have
+     * flown, which only changes when a text is bumped
+     */
+    private void addToGrid(FloatingText f) {
+        float y = f.y - floatingTextScroll;
+        f.minCellX = MathUtils.floor(f.x / FLOATING_TEXT_CELL_SIZE);
+        f.maxCellX = MathUtils.floor((f.x + f.width) / FLOATING_TEXT_CELL_SIZE);
+        f.minCellY = MathUtils.floor(y / FLOATING_TEXT_CELL_SIZE);
+        f.maxCellY = MathUtils.floor((y + f.height) / FLOATING_TEXT_CELL_SIZE);
+        for(int cellX = f.minCellX; cellX <= f.maxCellX; cellX++) {
+            for(int cellY = f.minCellY; cellY <= f.maxCellY; cellY++) {
+                long key = toFloatingTextCellKey(cellX, cellY);
+                Array<FloatingText> cell = floatingTextGrid.get(key);
+                if(cell == null) {
+                    cell = new Array<FloatingText>(false, 4);
+                    floatingTextGrid.put(key, cell);
+                }
+                cell.add(f);
+            }
+        }
+    }
+
+    private void removeFromGrid(FloatingText f) {
+        for(int cellX = f.minCellX; cellX <= f.maxCellX; cellX++) {
+            for(int cellY = f.minCellY; cellY <= f.maxCellY; cellY++) {
+                floatingTextGrid.get(toFloatingTextCellKey(cellX, cellY)).removeValue(f, true);
+            }
+        }
+    }
+
+    private static long toFloatingTextCellKey(int cellX, int cellY) {
+        return ((long)cellX << 32) | (cellY & 0xffffffffL);
+    }
+
+    public FloatingText addFloatingText(Entity origin, CharSequence text, Color color) {
         Point p = Mappers.hitbox.get(origin).getOrigin();
         return addFloatingText(p.x, p.y, text, color);
     }
 
     public void clearFloatingTexts() {
+        for(int i = 0; i < floatingTexts.size; i++) {
+            floatingTextPool.free(floatingTexts.get(i));
+        }
         floatingTexts.clear();
+        for(Array<FloatingText> cell : floatingTextGrid.values()) {
+            cell.clear();
+        }
+        floatingTextScroll = 0;
     }
 
     public ShapeRenderer getShapeRenderer() {
@@ -401,7 +494,15 @@ public class RenderSystem extends EntitySystem {
         this.map = map;
     }
 
-    public boolean containsFloatingText(FloatingText ft) {
-        return floatingTexts.contains(ft);
+    public void setCamera(OrthographicCamera camera) {
+        this.camera = camera;
+    }
+
+    public CircleRenderQueue getCircleRenderQueue() {
+        return circleQueue;
+    }
+
+    public void setInterpolationAlpha(float interpolationAlpha) {
+        this.interpolationAlpha = interpolationAlpha;
     }
 }
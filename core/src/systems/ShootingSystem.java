@@ -12,6 +12,7 @@ import com.badlogic.gdx.utils.Array;
 import com.miv.Main;
 import com.miv.Mappers;
 import com.miv.Options;
+import com.miv.Profiler;
 
 import components.HitboxComponent;
 import map.Map;
@@ -55,7 +56,13 @@ public class ShootingSystem extends EntitySystem {
 
     @Override
     public void update(float deltaTime) {
-        Point ear = Mappers.hitbox.get(player).getOrigin();
+        HitboxComponent playerHitbox = Mappers.hitbox.get(player);
+        // Player died and was removed from the engine earlier in this update
+        if(playerHitbox == null) {
+            return;
+        }
+        Profiler.begin(Profiler.Section.SHOOTING_SYSTEM);
+        Point ear = playerHitbox.getOrigin();
 
         for(Entity e : entities) {
             HitboxComponent hitbox = Mappers.hitbox.get(e);
@@ -67,6 +74,7 @@ public class ShootingSystem extends EntitySystem {
                 }
             }
         }
+        Profiler.end(Profiler.Section.SHOOTING_SYSTEM);
     }
 
     public void setPlayer(Entity player) {
@@ -0,0 +1,164 @@
+package utils;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+
+import com.miv.EntityActions;
+
+/**
+ * Values at integer positions on the world map, such as map areas. Each (x, y) is packed into a single long key of a
+ * {@link LongMap}, so lookups do not allocate or build strings.
+ * Like all libGDX maps, iterating with {@link #entries()} or {@link #values()} reuses the same iterator, so they cannot be nested.
+ */
+public class AreaIndex<V> {
+    private static final EntityActions.Direction[] DIRECTIONS = EntityActions.Direction.values();
+
+    private LongMap<V> values = new LongMap<V>();
+
+    // Bounding box of all positions; only valid while boundsDirty is false
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+    private boolean boundsDirty;
+
+    public static long toKey(int x, int y) {
+        return ((long)x << 32) | (y & 0xffffffffL);
+    }
+
+    public static int getX(long key) {
+        return (int)(key >> 32);
+    }
+
+    public static int getY(long key) {
+        return (int)key;
+    }
+
+    public V get(int x, int y) {
+        return values.get(toKey(x, y));
+    }
+
+    public boolean containsKey(int x, int y) {
+        return values.containsKey(toKey(x, y));
+    }
+
+    public V put(int x, int y, V value) {
+        if(values.size == 0) {
+            minX = maxX = x;
+            minY = maxY = y;
+            boundsDirty = false;
+        } else if(!boundsDirty) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        return values.put(toKey(x, y), value);
+    }
+
+    public V remove(int x, int y) {
+        V removed = values.remove(toKey(x, y));
+        if(removed != null && (x == minX || x == maxX || y == minY || y == maxY)) {
+            boundsDirty = true;
+        }
+        return removed;
+    }
+
+    public void clear() {
+        values.clear();
+    }
+
+    public int size() {
+        return values.size;
+    }
+
+    /**
+     * Keys can be unpacked with {@link #getX(long)} and {@link #getY(long)}
+     */
+    public LongMap.Entries<V> entries() {
+        return values.entries();
+    }
+
+    public LongMap.Values<V> values() {
+        return values.values();
+    }
+
+    /**
+     * Adds the values directly above, below, left and right of (x, y) to out
+     */
+    public void getNeighbors(int x, int y, Array<V> out) {
+        for(EntityActions.Direction direction : DIRECTIONS) {
+            V neighbor = get(x + direction.getDeltaX(), y + direction.getDeltaY());
+            if(neighbor != null) {
+                out.add(neighbor);
+            }
+        }
+    }
+
+    /**
+     * Adds every value with minX <= x <= maxX and minY <= y <= maxY to out
+     */
+    public void getInBounds(int minX, int minY, int maxX, int maxY, Array<V> out) {
+        // Scan whichever is smaller out of the rectangle and the whole index
+        if((long)(maxX - minX + 1) * (maxY - minY + 1) < values.size) {
+            for(int x = minX; x <= maxX; x++) {
+                for(int y = minY; y <= maxY; y++) {
+                    V value = get(x, y);
+                    if(value != null) {
+                        out.add(value);
+                    }
+                }
+            }
+        } else {
+            for(LongMap.Entry<V> entry : values.entries()) {
+                int x = getX(entry.key);
+                int y = getY(entry.key);
+                if(x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    out.add(entry.value);
+                }
+            }
+        }
+    }
+
+    public int getMinX() {
+        updateBounds();
+        return minX;
+    }
+
+    public int getMinY() {
+        updateBounds();
+        return minY;
+    }
+
+    public int getMaxX() {
+        updateBounds();
+        return maxX;
+    }
+
+    public int getMaxY() {
+        updateBounds();
+        return maxY;
+    }
+
+    private void updateBounds() {
+        if(!boundsDirty) {
+            return;
+        }
+        boolean first = true;
+        for(LongMap.Entry<V> entry : values.entries()) {
+            int x = getX(entry.key);
+            int y = getY(entry.key);
+            if(first) {
+                minX = maxX = x;
+                minY = maxY = y;
+                first = false;
+            } else {
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+        }
+        boundsDirty = false;
+    }
+}
@@ -5,6 +5,7 @@ import com.badlogic.ashley.core.PooledEngine;
 import com.badlogic.gdx.math.Circle;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
 import com.miv.AttackPart;
 import com.miv.AttackPattern;
 import com.miv.Options;
@@ -18,7 +19,7 @@ import systems.RenderSystem;
 /**
  * Created by Miv on 6/5/2017.
  */
-public class CircleHitbox extends Circle {
+public class CircleHitbox extends Circle implements Pool.Poolable {
     private static final float DAMAGE_DELTA_HEALTH_MULTIPLIER = 0.4f;
     private static final float HEALTH_DELTA_HEALTH_MULTIPLIER = 2f;
     public enum Specialization {
@@ -467,8 +468,85 @@ public class CircleHitbox extends Circle {
 
     private boolean isInvincible;
 
+    // Map areas are generated on a worker thread, so the pool is only used while synchronized on it
+    private static final Pool<CircleHitbox> pool = new Pool<CircleHitbox>(64, 2048) {
+        @Override
+        protected CircleHitbox newObject() {
+            return new CircleHitbox();
+        }
+    };
+
     public CircleHitbox() {}
 
+    /**
+     * Same as {@link #CircleHitbox()} but reuses a circle freed with {@link #free(CircleHitbox)} if there is one
+     */
+    public static CircleHitbox obtain() {
+        synchronized(pool) {
+            return pool.obtain();
+        }
+    }
+
+    /**
+     * Resets the circle and makes it available to {@link #obtain()}. The circle must not be used afterwards.
+     */
+    public static void free(CircleHitbox circle) {
+        synchronized(pool) {
+            pool.free(circle);
+        }
+    }
+
+    /**
+     * Number of circles that can be obtained without allocating
+     */
+    public static int getFreeCount() {
+        synchronized(pool) {
+            return pool.getFree();
+        }
+    }
+
+    /**
+     * Highest number of free circles the pool has held at once
+     */
+    public static int getPeakFreeCount() {
+        synchronized(pool) {
+            return pool.peak;
+        }
+    }
+
+    @Override
+    public void reset() {
+        x = 0;
+        y = 0;
+        radius = 0;
+        hitboxTextureType = null;
+        baseMaxHealth = 0;
+        maxHealth = 0;
+        health = 0;
+        speedBoost = 0;
+        attackPattern = null;
+        fired = null;
+        time = 0;
+        originalPosX = 0;
+        originalPosY = 0;
+        unsavedCreationCost = 0;
+        unsavedUpgradeCost = 0;
+        invalidPosition = false;
+        specialization = Specialization.NONE;
+        level = 0;
+        specializationAvailable = false;
+        totalUpgradesPp = 0;
+        damageTakenMultiplierFromAura = 1f;
+        lifestealMultiplierFromAura = 0;
+        maxHealthMultiplierFromAura = 1f;
+        color = null;
+        ppGain = 0;
+        basePpGain = 0;
+        ppGainMultiplier = 1f;
+        isResultOfFracture = false;
+        isInvincible = false;
+    }
+
     public CircleHitbox(RenderSystem.HitboxTextureType textureType, AttackPattern attackPattern, float x, float y, float radius, float health, float basePpGain) {
         setHitboxTextureType(textureType);
         setAttackPattern(attackPattern);
@@ -525,7 +603,7 @@ public class CircleHitbox extends Circle {
     }
 
     public CircleHitbox clone() {
-        CircleHitbox c = new CircleHitbox();
+        CircleHitbox c = obtain();
         c.x = x;
         c.y = y;
         c.radius = radius;
@@ -542,6 +620,7 @@ public class CircleHitbox extends Circle {
         c.setPpGainMultiplier(ppGainMultiplier);
         c.setBasePpGain(basePpGain);
         c.setUnsavedCreationCost(unsavedCreationCost);
+        c.setSpeedBoost(speedBoost);
         c.setSpecializationAvailable(specializationAvailable);
         c.specialization = specialization;
         c.level = level;
@@ -21,7 +21,7 @@ public class CircleUtils {
         float subRadius = (MathUtils.PI * mainRadius)/(circlesCount - MathUtils.PI);
         float combinedRadius = mainRadius + subRadius;
         for(int i = 0; i < circlesCount; i++) {
-            CircleHitbox c = new CircleHitbox();
+            CircleHitbox c = CircleHitbox.obtain();
             c.setHitboxTextureType(main.getHitboxTextureType());
             c.set(main.x + combinedRadius*MathUtils.cos(i * MathUtils.PI2/circlesCount), main.y + combinedRadius*MathUtils.sin(i * MathUtils.PI2/circlesCount), subRadius);
             circles.add(c);
@@ -0,0 +1,55 @@
+package utils;
+
+/**
+ * Formats numbers straight into a StringBuilder without String.format, so that text that changes every frame can be
+ * rebuilt in a reused buffer without allocating.
+ */
+public class NumberFormatter {
+    private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L };
+
+    /**
+     * Same as String.format("%.[decimals]f", value), except that values that round to 0 are never shown as negative
+     * @param decimals from 0 to 6
+     */
+    public static StringBuilder appendFixed(StringBuilder sb, float value, int decimals) {
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs((double)value) * scale);
+        if(value < 0 && scaled != 0) {
+            sb.append('-');
+        }
+        sb.append(scaled / scale);
+        if(decimals > 0) {
+            sb.append('.');
+            long fraction = scaled % scale;
+            for(long digit = scale / 10; digit > 0; digit /= 10) {
+                sb.append((char)('0' + fraction / digit % 10));
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Whole numbers from 100 up, otherwise 1 to 3 decimal places depending on how small the number is, with trailing
+     * zeros removed
+     */
+    public static StringBuilder appendNumber(StringBuilder sb, float value) {
+        float magnitude = Math.abs(value);
+        if(value == 0) {
+            return sb.append('0');
+        } else if(magnitude >= 100) {
+            return sb.append(Math.round(value));
+        }
+
+        appendFixed(sb, value, magnitude < 1 ? 3 : (magnitude < 10 ? 2 : 1));
+        // There is always a decimal point to stop at
+        int length = sb.length();
+        while(sb.charAt(length - 1) == '0') {
+            length--;
+        }
+        if(sb.charAt(length - 1) == '.') {
+            length--;
+        }
+        sb.setLength(length);
+        return sb;
+    }
+}
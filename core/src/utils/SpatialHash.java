@@ -0,0 +1,147 @@
+package utils;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+
+import java.util.Comparator;
+
+/**
+ * Uniform grid broadphase. Each inserted circle is stored in every cell its bounding box overlaps.
+ * Entries and cell arrays are reused across {@link #clear()} calls so rebuilding every frame does not allocate.
+ */
+public class SpatialHash {
+    public static class Entry {
+        private Entity entity;
+        private CircleHitbox circle;
+        // Order of insertion; queries return entries sorted by this so that results are in the same order as the arrays they were built from
+        private int index;
+        private int queryStamp;
+
+        public Entity getEntity() {
+            return entity;
+        }
+
+        public CircleHitbox getCircle() {
+            return circle;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+    }
+
+    private static final Comparator<Entry> INSERTION_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return a.index - b.index;
+        }
+    };
+
+    private float cellSize;
+    private LongMap<Array<Entry>> cells;
+    // All entries ever created; only the first size are in use
+    private Array<Entry> entries;
+    private int size;
+    private int queryStamp;
+
+    public SpatialHash(float cellSize) {
+        this.cellSize = cellSize;
+        cells = new LongMap<Array<Entry>>();
+        entries = new Array<Entry>();
+    }
+
+    public void clear() {
+        for(Array<Entry> cell : cells.values()) {
+            cell.clear();
+        }
+        for(int i = 0; i < size; i++) {
+            Entry entry = entries.get(i);
+            entry.entity = null;
+            entry.circle = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * @param circle - can be null if only the entity is of interest
+     * @param x - world x-position of the circle's center
+     * @param y - world y-position of the circle's center
+     */
+    public void insert(Entity entity, CircleHitbox circle, float x, float y, float radius) {
+        Entry entry;
+        if(size < entries.size) {
+            entry = entries.get(size);
+        } else {
+            entry = new Entry();
+            entries.add(entry);
+        }
+        entry.entity = entity;
+        entry.circle = circle;
+        entry.index = size;
+        entry.queryStamp = queryStamp;
+        size++;
+
+        int minCellX = toCell(x - radius);
+        int maxCellX = toCell(x + radius);
+        int minCellY = toCell(y - radius);
+        int maxCellY = toCell(y + radius);
+        for(int cx = minCellX; cx <= maxCellX; cx++) {
+            for(int cy = minCellY; cy <= maxCellY; cy++) {
+                long key = toKey(cx, cy);
+                Array<Entry> cell = cells.get(key);
+                if(cell == null) {
+                    cell = new Array<Entry>(false, 8);
+                    cells.put(key, cell);
+                }
+                cell.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Adds to out every entry whose bounding box may overlap the circle at (x, y), sorted by order of insertion.
+     * Callers still have to do their own narrow-phase check.
+     */
+    public void query(float x, float y, float radius, Array<Entry> out) {
+        out.clear();
+        queryStamp++;
+
+        int minCellX = toCell(x - radius);
+        int maxCellX = toCell(x + radius);
+        int minCellY = toCell(y - radius);
+        int maxCellY = toCell(y + radius);
+        for(int cx = minCellX; cx <= maxCellX; cx++) {
+            for(int cy = minCellY; cy <= maxCellY; cy++) {
+                Array<Entry> cell = cells.get(toKey(cx, cy));
+                if(cell == null) {
+                    continue;
+                }
+                for(int i = 0; i < cell.size; i++) {
+                    Entry entry = cell.get(i);
+                    // Entries spanning multiple cells are only added once
+                    if(entry.queryStamp != queryStamp) {
+                        entry.queryStamp = queryStamp;
+                        out.add(entry);
+                    }
+                }
+            }
+        }
+
+        if(out.size > 1) {
+            out.sort(INSERTION_ORDER);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int toCell(float v) {
+        return (int)Math.floor(v / cellSize);
+    }
+
+    private static long toKey(int cellX, int cellY) {
+        return ((long)cellX << 32) | (cellY & 0xffffffffL);
+    }
+}
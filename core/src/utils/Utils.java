@@ -9,6 +9,7 @@ import com.miv.Mappers;
 import com.miv.Options;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import components.AIComponent;
 import components.BossComponent;
@@ -16,6 +17,7 @@ import components.EnemyComponent;
 import components.ObstacleComponent;
 import components.PpOrbComponent;
 import components.HitboxComponent;
+import systems.CollisionMatrix;
 import systems.RenderSystem;
 
 /**
@@ -64,6 +66,20 @@ public class Utils {
         }
     }
 
+    /**
+     * Same as {@link MathUtils#random(float, float)} but drawn from the given generator
+     */
+    public static float random(Random random, float start, float end) {
+        return start + random.nextFloat() * (end - start);
+    }
+
+    /**
+     * Same as {@link MathUtils#random(int, int)} but drawn from the given generator
+     */
+    public static int random(Random random, int start, int end) {
+        return start + random.nextInt(end - start + 1);
+    }
+
     /**
      * Checks if c overlaps with any circle in circles
      */
@@ -129,11 +145,10 @@ public class Utils {
         hitbox.setMaxSpeed(originalHitbox.getMaxSpeed());
         hitbox.setOrigin(originalHitbox.getOrigin().x, originalHitbox.getOrigin().y);
         hitbox.setIsShooting(true);
+        hitbox.setCollisionLayer(CollisionMatrix.ENEMY);
         hitbox.setVelocity(originalHitbox.getVelocity().x, originalHitbox.getVelocity().y);
         hitbox.setAcceleration(originalHitbox.getAcceleration().x, originalHitbox.getAcceleration().y, originalHitbox.getAccelerationTime());
-        for(CircleHitbox c : circles) {
-            hitbox.addCircle(c, false);
-        }
+        hitbox.addCircles(circles, false);
         hitbox.setLastFacedAngle(originalHitbox.getLastFacedAngle());
         hitbox.setAimingAngle(originalHitbox.getAimingAngle());
         e.add(hitbox);
@@ -204,7 +219,8 @@ public class Utils {
 
             HitboxComponent hitbox = engine.createComponent(HitboxComponent.class);
             hitbox.setOrigin(x, y);
-            CircleHitbox c = new CircleHitbox();
+            hitbox.setCollisionLayer(CollisionMatrix.PP_ORB);
+            CircleHitbox c = CircleHitbox.obtain();
             c.setRadius(orbRadius);
             c.setHitboxTextureType(RenderSystem.HitboxTextureType.PP_ORB);
             c.setBasePpGain(totalPp * ppPercents[i]);
@@ -240,6 +256,10 @@ public class Utils {
      * Plays a random sound from the given array whose volume decreases as distance from ear position increases
      */
     public static void playDecayingSound(Sound sound, float volume, float soundOriginX, float soundOriginY, Point earPos) {
+        // Sounds are never loaded when running headless
+        if(sound == null) {
+            return;
+        }
         float distance = Utils.getDistance(earPos, soundOriginX, soundOriginY);
         float distanceVolume = 0;
         if(distance < Options.MIN_BUBBLE_POP_VOLUME_DROP_OFF_DISTANCE) {
@@ -0,0 +1,116 @@
+package com.miv.desktop;
+
+import com.badlogic.ashley.core.Entity;
+import com.badlogic.ashley.core.Family;
+import com.badlogic.ashley.utils.ImmutableArray;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.math.MathUtils;
+import com.miv.EntityActions;
+import com.miv.Main;
+import com.miv.Options;
+import com.miv.PoolStatistics;
+import com.miv.Simulation;
+
+import components.HitboxComponent;
+import systems.CircleRenderQueue;
+import utils.Point;
+
+/**
+ * Runs the simulation with no window, audio or assets, driving the player with random input.
+ * Arguments: [ticks] [seed]
+ */
+public class HeadlessLauncher {
+	private static final int DEFAULT_TICKS = 60 * 60 * 5;
+	private static final int LOG_INTERVAL_TICKS = 60 * 30;
+	// How often what would be drawn is counted, with and without culling to a screen centered on the player
+	private static final int RENDER_SAMPLE_INTERVAL_TICKS = 60;
+
+	public static void main (String[] arg) {
+		final int ticks = arg.length > 0 ? Integer.parseInt(arg[0]) : DEFAULT_TICKS;
+		final long seed = arg.length > 1 ? Long.parseLong(arg[1]) : System.nanoTime();
+
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		// The simulation is run to completion in create() so render() should never need to be called
+		config.renderInterval = -1;
+		new HeadlessApplication(new ApplicationAdapter() {
+			@Override
+			public void create() {
+				MathUtils.random.setSeed(seed);
+				run(ticks, seed);
+				Gdx.app.exit();
+			}
+		}, config);
+	}
+
+	private static void run(int ticks, long seed) {
+		Simulation simulation = new Simulation(new Simulation.ListenerAdapter());
+		simulation.newGame();
+		simulation.setPlayerShooting(true);
+
+		float tickTime = 1f / Options.SIMULATION_TICK_RATE;
+		int deaths = 0;
+		ImmutableArray<Entity> hitboxEntities = simulation.getEngine().getEntitiesFor(Family.all(HitboxComponent.class).get());
+		CircleRenderQueue renderQueue = new CircleRenderQueue();
+		int renderSamples = 0;
+		long culledCircles = 0, culledVertices = 0, culledDrawCalls = 0;
+		long allCircles = 0, allVertices = 0, allDrawCalls = 0;
+		long start = System.nanoTime();
+		for(int i = 1; i <= ticks; i++) {
+			// Change direction about once a second
+			if(MathUtils.random(60) == 0) {
+				simulation.setPlayerMovement(MathUtils.random(MathUtils.PI2), MathUtils.random());
+				simulation.setPlayerAimAngle(MathUtils.random(MathUtils.PI2));
+			}
+
+			// Move on once the current area is cleared
+			if(simulation.getEnemyCount() == 0 && !simulation.isPlayerTravelling()) {
+				simulation.travel(EntityActions.Direction.values()[MathUtils.random(EntityActions.Direction.values().length - 1)]);
+			}
+
+			simulation.step(tickTime);
+			PoolStatistics.sample();
+
+			if(i % RENDER_SAMPLE_INTERVAL_TICKS == 0) {
+				Point player = simulation.getPlayerOrigin();
+				renderQueue.begin(player.x - Main.SCREEN_WIDTH / 2f, player.y - Main.SCREEN_HEIGHT / 2f, player.x + Main.SCREEN_WIDTH / 2f, player.y + Main.SCREEN_HEIGHT / 2f);
+				renderQueue.addEntities(hitboxEntities, 1f);
+				simulation.getBulletSystem().addTo(renderQueue, 1f);
+				culledCircles += renderQueue.getCircleCount();
+				culledVertices += renderQueue.getVertexCount();
+				culledDrawCalls += renderQueue.getDrawCallCount();
+
+				renderQueue.begin();
+				renderQueue.addEntities(hitboxEntities, 1f);
+				simulation.getBulletSystem().addTo(renderQueue, 1f);
+				allCircles += renderQueue.getCircleCount();
+				allVertices += renderQueue.getVertexCount();
+				allDrawCalls += renderQueue.getDrawCallCount();
+				renderSamples++;
+			}
+
+			if(simulation.isPlayerDead()) {
+				deaths++;
+				simulation.newGame();
+				simulation.setPlayerShooting(true);
+			}
+
+			if(i % LOG_INTERVAL_TICKS == 0) {
+				System.out.println("tick " + i + ": entities=" + simulation.getEntityCount() + " bullets=" + simulation.getBulletCount()
+						+ " enemies=" + simulation.getEnemyCount() + " playerHealth=" + simulation.getPlayerHealth() + " pp=" + simulation.getPlayerPixelPoints());
+			}
+		}
+		float seconds = (System.nanoTime() - start) / 1000000000f;
+		if(renderSamples > 0) {
+			System.out.println("Hitboxes drawn per frame: " + culledCircles / renderSamples + " circles, " + culledVertices / renderSamples + " vertices, "
+					+ culledDrawCalls / renderSamples + " draw calls (without culling: " + allCircles / renderSamples + " circles, "
+					+ allVertices / renderSamples + " vertices, " + allDrawCalls / renderSamples + " draw calls)");
+		}
+		for(PoolStatistics.Stats stats : PoolStatistics.getStatistics()) {
+			System.out.println(stats);
+		}
+		System.out.println("Simulated " + ticks + " ticks (seed " + seed + ") in " + seconds + "s, " + (ticks / seconds) + " ticks/s, " + deaths + " deaths");
+	}
+}